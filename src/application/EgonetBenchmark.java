@@ -0,0 +1,97 @@
+package application;
+
+import java.util.List;
+
+import graph.CapGraph;
+import graph.Graph;
+import util.GraphLoader;
+
+/** Compares egonet extraction by hash set lookups (getEgonet on an
+ * unfrozen graph) with sorted adjacency intersection (getEgonet on a
+ * frozen graph, and getEgonets on an unfrozen one), finding the egonet of
+ * every vertex, and checks all three give the same egonets.
+ *
+ * Usage: EgonetBenchmark [edgeListFile] [runs]
+ *
+ * Defaults to data/facebook_2000.txt (the EgoGrader's kind of data) and
+ * 5 runs.  The first run of each method is a JIT warm up and not counted.
+ */
+public class EgonetBenchmark {
+
+	public static void main(String[] args) {
+
+		String edgeListFile = "data/facebook_2000.txt";
+		int runs = 5;
+
+		if (args.length > 0) {
+			edgeListFile = args[0];
+		}
+		if (args.length > 1) {
+			runs = Integer.parseInt(args[1]);
+		}
+
+		CapGraph graph = new CapGraph();
+		GraphLoader.loadGraph(graph, edgeListFile);
+		CapGraph frozenGraph = new CapGraph();
+		GraphLoader.loadGraph(frozenGraph, edgeListFile);
+		frozenGraph.freeze();
+
+		int[] centers = new int[graph.getVertices().size()];
+		int i = 0;
+		for (int vertexID : graph.getVertices().keySet()) {
+			centers[i++] = vertexID;
+		}
+
+		long hashNanos = 0;
+		long frozenNanos = 0;
+		long bulkNanos = 0;
+
+		for (int run = 0; run <= runs; run++) {
+
+			long start = System.nanoTime();
+			for (int center : centers) {
+				graph.getEgonet(center);
+			}
+			long hashRun = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int center : centers) {
+				frozenGraph.getEgonet(center);
+			}
+			long frozenRun = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			graph.getEgonets(centers);
+			long bulkRun = System.nanoTime() - start;
+
+			if (run > 0) {
+				hashNanos += hashRun;
+				frozenNanos += frozenRun;
+				bulkNanos += bulkRun;
+			}
+		}
+
+		List<Graph> bulkEgonets = graph.getEgonets(centers);
+		int mismatches = 0;
+		for (i = 0; i < centers.length; i++) {
+			if (!graph.getEgonet(centers[i]).exportGraph().equals(
+					bulkEgonets.get(i).exportGraph()) ||
+				!frozenGraph.getEgonet(centers[i]).exportGraph().equals(
+					bulkEgonets.get(i).exportGraph())) {
+				mismatches++;
+			}
+		}
+
+		System.out.println("Edge list: " + edgeListFile + " ("
+				+ centers.length + " egonets per run)");
+		System.out.println("Hash set getEgonet: " + (hashNanos / runs / 1000000)
+				+ " ms per run");
+		System.out.println("Frozen getEgonet: " + (frozenNanos / runs / 1000000)
+				+ " ms per run, speedup "
+				+ String.format("%.2f", (double)hashNanos / frozenNanos));
+		System.out.println("Bulk getEgonets: " + (bulkNanos / runs / 1000000)
+				+ " ms per run, speedup "
+				+ String.format("%.2f", (double)hashNanos / bulkNanos));
+		System.out.println("Mismatched egonets: " + mismatches);
+	}
+}
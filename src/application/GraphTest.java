@@ -46,11 +46,11 @@ public class GraphTest {
 		
 		for (int level : graph.getCommunities().keySet()) {
 			
-			Map<Integer,StackExchangeTopicGraph> communityMap = graph.getCommunities().get(level);
+			Map<Integer,SubgraphView> communityMap = graph.getCommunities().get(level);
 			
 			for (int communityID : communityMap.keySet()) {
 				
-				communityMap.get(communityID).printGraph();
+				communityMap.get(communityID).materialize().printGraph();
 			}
 		}
 		//*/
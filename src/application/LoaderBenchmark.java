@@ -0,0 +1,68 @@
+package application;
+
+import java.io.IOException;
+
+import graph.CapGraph;
+import util.GraphLoader;
+
+/** Compares the Scanner-based edge list loader with the memory-mapped one.
+ * 
+ * Usage: LoaderBenchmark [edgeListFile] [numThreads] [runs]
+ * 
+ * Defaults to data/twitter_higgs.txt, the number of available cores and
+ * 5 runs.  The first run of each loader is a JIT warm up and not counted.
+ */
+public class LoaderBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		
+		String edgeListFile = "data/twitter_higgs.txt";
+		int numThreads = Runtime.getRuntime().availableProcessors();
+		int runs = 5;
+		
+		if (args.length > 0) {
+			edgeListFile = args[0];
+		}
+		if (args.length > 1) {
+			numThreads = Integer.parseInt(args[1]);
+		}
+		if (args.length > 2) {
+			runs = Integer.parseInt(args[2]);
+		}
+		
+		long scannerNanos = 0;
+		long mappedNanos = 0;
+		int scannerVertices = 0;
+		int mappedVertices = 0;
+		
+		for (int run = 0; run <= runs; run++) {
+			
+			CapGraph scannerGraph = new CapGraph();
+			long start = System.nanoTime();
+			GraphLoader.loadGraph(scannerGraph, edgeListFile);
+			long scannerRun = System.nanoTime() - start;
+			scannerVertices = scannerGraph.getVertices().size();
+			scannerGraph = null;
+			
+			CapGraph mappedGraph = new CapGraph();
+			start = System.nanoTime();
+			GraphLoader.loadGraphMapped(mappedGraph, edgeListFile, numThreads);
+			long mappedRun = System.nanoTime() - start;
+			mappedVertices = mappedGraph.getVertices().size();
+			mappedGraph = null;
+			
+			if (run > 0) {
+				scannerNanos += scannerRun;
+				mappedNanos += mappedRun;
+			}
+		}
+		
+		System.out.println("Edge list: " + edgeListFile);
+		System.out.println("Scanner loader: " + (scannerNanos / runs / 1000000) 
+				+ " ms per load (" + scannerVertices + " vertices)");
+		System.out.println("Mapped loader (" + numThreads + " threads): " 
+				+ (mappedNanos / runs / 1000000) + " ms per load (" 
+				+ mappedVertices + " vertices)");
+		System.out.println("Speedup: " + ((double)scannerNanos / mappedNanos));
+	}
+}
@@ -0,0 +1,148 @@
+package application;
+
+import java.util.Random;
+
+import graph.CapGraph;
+import graph.LouvainHierarchy;
+import util.GraphLoader;
+
+/** Times sequential and parallel Louvain community detection at 1, 2, 4, 8
+ * and 16 threads, and prints the number of communities and modularity of
+ * every level of each, so the parallel method's quality can be checked
+ * against the sequential one's.
+ *
+ * Usage: LouvainBenchmark [edgeListFile | random:numVertices:avgOutDegree]
+ * [maxThreads] [runs]
+ *
+ * Defaults to data/twitter_higgs.txt, 16 threads and 5 runs.  A random
+ * graph (fixed seed) with planted communities of 64 vertices, holding 90%
+ * of the edges, can stand in for a bigger data set.  The first run of
+ * each setting is a JIT warm up and not counted.  Speedups above the
+ * machine's core count should not be expected.
+ */
+public class LouvainBenchmark {
+
+	private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16};
+	private static final int PLANTED_COMMUNITY_SIZE = 64;
+
+	public static void main(String[] args) {
+
+		String source = "data/twitter_higgs.txt";
+		int maxThreads = 16;
+		int runs = 5;
+
+		if (args.length > 0) {
+			source = args[0];
+		}
+		if (args.length > 1) {
+			maxThreads = Integer.parseInt(args[1]);
+		}
+		if (args.length > 2) {
+			runs = Integer.parseInt(args[2]);
+		}
+
+		CapGraph graph = new CapGraph();
+		if (source.startsWith("random:")) {
+			String[] parts = source.split(":");
+			makeRandomGraph(graph, Integer.parseInt(parts[1]),
+							Integer.parseInt(parts[2]));
+		}
+		else {
+			GraphLoader.loadGraph(graph, source);
+		}
+		graph.freeze();
+
+		long sequentialNanos = 0;
+		LouvainHierarchy sequential = null;
+
+		for (int run = 0; run <= runs; run++) {
+
+			long start = System.nanoTime();
+			sequential = graph.findCommunities();
+			long sequentialRun = System.nanoTime() - start;
+
+			if (run > 0) {
+				sequentialNanos += sequentialRun;
+			}
+		}
+
+		System.out.println("Graph: " + source + " ("
+				+ graph.getVertexIndex().size() + " vertices)");
+		System.out.println("Available cores: "
+				+ Runtime.getRuntime().availableProcessors());
+		System.out.println("Sequential: "
+				+ (sequentialNanos / runs / 1000000) + " ms");
+		printLevels(sequential);
+
+		for (int numThreads : THREAD_COUNTS) {
+
+			if (numThreads > maxThreads) {
+				break;
+			}
+
+			long parallelNanos = 0;
+			LouvainHierarchy parallel = null;
+
+			for (int run = 0; run <= runs; run++) {
+
+				long start = System.nanoTime();
+				parallel = graph.findCommunities(numThreads);
+				long parallelRun = System.nanoTime() - start;
+
+				if (run > 0) {
+					parallelNanos += parallelRun;
+				}
+			}
+
+			double sequentialModularity =
+					sequential.getModularity(sequential.getHighestLevel());
+			double parallelModularity =
+					parallel.getModularity(parallel.getHighestLevel());
+
+			System.out.println("Parallel (" + numThreads + " threads): "
+					+ (parallelNanos / runs / 1000000) + " ms, speedup "
+					+ String.format("%.2f", (double)sequentialNanos / parallelNanos)
+					+ ", modularity " + String.format("%+.2f%%",
+							100 * (parallelModularity - sequentialModularity)
+							/ sequentialModularity)
+					+ " of sequential");
+			printLevels(parallel);
+		}
+	}
+
+	private static void printLevels(LouvainHierarchy hierarchy) {
+
+		for (int level = 0; level < hierarchy.getNumLevels(); level++) {
+			System.out.println("  level " + level + ": "
+					+ hierarchy.getNumCommunities(level) + " communities, "
+					+ "modularity " + String.format("%.6f",
+							hierarchy.getModularity(level)));
+		}
+	}
+
+	// most edges stay within blocks of consecutive vertices
+	private static void makeRandomGraph(CapGraph graph, int numVertices,
+										int avgOutDegree) {
+
+		Random random = new Random(2016);
+
+		for (int v = 0; v < numVertices; v++) {
+			graph.addVertex(v, 1);
+		}
+
+		long numEdges = (long)numVertices * avgOutDegree;
+		for (long e = 0; e < numEdges; e++) {
+			int from = random.nextInt(numVertices);
+			int to;
+			if (random.nextInt(10) < 9) {
+				int blockStart = from - from % PLANTED_COMMUNITY_SIZE;
+				to = Math.min(blockStart + random.nextInt(PLANTED_COMMUNITY_SIZE),
+							  numVertices - 1);
+			}
+			else {
+				to = random.nextInt(numVertices);
+			}
+			graph.addEdge(from, to);
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package application;
+
+import java.io.IOException;
+import java.util.Random;
+
+import graph.CapGraph;
+import graph.SCCResult;
+import util.GraphLoader;
+
+/** Times sequential and parallel SCC decomposition at 1, 2, 4, 8 and 16
+ * threads, and checks every parallel result has the same components as
+ * the sequential one.
+ *
+ * Usage: SCCBenchmark [edgeListFile | random:numVertices:avgOutDegree |
+ * path:numVertices | cyclechain:numCycles] [maxThreads] [runs]
+ *
+ * Defaults to data/twitter_higgs.txt, 16 threads and 5 runs.  A random
+ * graph (fixed seed) can stand in for a bigger data set.  A path, or a
+ * chain of 2-cycles, is the worst case for FW-BW: each split only peels
+ * a few vertices off the chain.  The first run
+ * of each setting is a JIT warm up and not counted.  Speedups above the
+ * machine's core count should not be expected.
+ */
+public class SCCBenchmark {
+
+	private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16};
+
+	public static void main(String[] args) throws IOException {
+
+		String source = "data/twitter_higgs.txt";
+		int maxThreads = 16;
+		int runs = 5;
+
+		if (args.length > 0) {
+			source = args[0];
+		}
+		if (args.length > 1) {
+			maxThreads = Integer.parseInt(args[1]);
+		}
+		if (args.length > 2) {
+			runs = Integer.parseInt(args[2]);
+		}
+
+		CapGraph graph = new CapGraph();
+		if (source.startsWith("random:")) {
+			String[] parts = source.split(":");
+			makeRandomGraph(graph, Integer.parseInt(parts[1]),
+							Integer.parseInt(parts[2]));
+		}
+		else if (source.startsWith("path:")) {
+			makeChain(graph, Integer.parseInt(source.split(":")[1]), false);
+		}
+		else if (source.startsWith("cyclechain:")) {
+			makeChain(graph, Integer.parseInt(source.split(":")[1]), true);
+		}
+		else {
+			GraphLoader.loadGraph(graph, source);
+		}
+		graph.freeze();
+
+		long sequentialNanos = 0;
+		SCCResult sequential = null;
+
+		for (int run = 0; run <= runs; run++) {
+
+			long start = System.nanoTime();
+			sequential = graph.findSCCs();
+			long sequentialRun = System.nanoTime() - start;
+
+			if (run > 0) {
+				sequentialNanos += sequentialRun;
+			}
+		}
+
+		System.out.println("Graph: " + source + " (" + graph.getVertexIndex().size()
+				+ " vertices, " + sequential.getNumComponents() + " SCCs, "
+				+ "largest " + sequential.getComponentSize(
+						sequential.getLargestComponent()) + ")");
+		System.out.println("Available cores: "
+				+ Runtime.getRuntime().availableProcessors());
+		System.out.println("Sequential Tarjan: "
+				+ (sequentialNanos / runs / 1000000) + " ms");
+
+		for (int numThreads : THREAD_COUNTS) {
+
+			if (numThreads > maxThreads) {
+				break;
+			}
+
+			long parallelNanos = 0;
+			boolean same = true;
+
+			for (int run = 0; run <= runs; run++) {
+
+				long start = System.nanoTime();
+				SCCResult parallel = graph.findSCCs(numThreads);
+				long parallelRun = System.nanoTime() - start;
+
+				same = same && parallel.hasSameComponents(sequential);
+
+				if (run > 0) {
+					parallelNanos += parallelRun;
+				}
+			}
+
+			System.out.println("Parallel (" + numThreads + " threads): "
+					+ (parallelNanos / runs / 1000000) + " ms, speedup "
+					+ String.format("%.2f", (double)sequentialNanos / parallelNanos)
+					+ (same ? "" : " (COMPONENTS DIFFER)"));
+		}
+	}
+
+	// random out edges, so most vertices land in one giant SCC
+	private static void makeRandomGraph(CapGraph graph, int numVertices,
+										int avgOutDegree) {
+
+		Random random = new Random(2016);
+
+		for (int v = 0; v < numVertices; v++) {
+			graph.addVertex(v, 1);
+		}
+
+		long numEdges = (long)numVertices * avgOutDegree;
+		for (long e = 0; e < numEdges; e++) {
+			graph.addEdge(random.nextInt(numVertices), random.nextInt(numVertices));
+		}
+	}
+
+	// 0 -> 1 -> 2 -> ..., or a chain of 2-cycles (2i <-> 2i+1) linked by
+	// 2i+1 -> 2i+2
+	private static void makeChain(CapGraph graph, int length, boolean cycles) {
+
+		int numVertices = cycles ? 2 * length : length;
+
+		for (int v = 0; v < numVertices; v++) {
+			graph.addVertex(v, 1);
+		}
+
+		for (int v = 0; v + 1 < numVertices; v++) {
+			graph.addEdge(v, v + 1);
+			if (cycles && v % 2 == 0) {
+				graph.addEdge(v + 1, v);
+			}
+		}
+	}
+}
@@ -0,0 +1,435 @@
+/** Betweenness centrality of every vertex and edge of a
+ * StackExchangeTopicGraph, estimated from a sample of source vertices.
+ *
+ * Exact betweenness needs a breadth-first search from every vertex (see
+ * BrandesBetweenness).  Instead, k sources are drawn uniformly at random,
+ * with replacement, and their searches' dependencies scaled up by n/k.
+ * Each estimate is unbiased, and is the mean of k independent samples
+ * that each lie in a bounded range, so Hoeffding's inequality bounds its
+ * error: with probability at least the confidence, every vertex's and
+ * every edge's estimate is within getErrorBound(confidence) of the truth
+ * at once (a union bound over all n vertices and m edges).  See "Fast
+ * Approximation of Centrality", D. Eppstein and J. Wang, 2001, and
+ * "Centrality Estimation in Large Networks", U. Brandes and C. Pich, 2007.
+ *
+ * Scores are normalized: the share of all ordered pairs of vertices whose
+ * shortest paths go through the vertex or edge, between 0 and 1.  Edges
+ * are taken as undirected, as for community detection.  With as many
+ * samples as vertices, every vertex is searched from once instead, and
+ * the scores are exact.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class BetweennessEstimate {
+
+	private final VertexIndex vertexIndex;
+	private final double[] vertexScores;
+	// edges by number, as vertex IDs
+	private final int[] edgeFromIDs;
+	private final int[] edgeToIDs;
+	private final double[] edgeScores;
+	private final boolean[] isUser;
+	private final int numSamples;
+	private final boolean exact;
+
+	private BetweennessEstimate(VertexIndex vertexIndex, double[] vertexScores,
+								int[] edgeFromIDs, int[] edgeToIDs,
+								double[] edgeScores, boolean[] isUser,
+								int numSamples, boolean exact) {
+
+		this.vertexIndex = vertexIndex;
+		this.vertexScores = vertexScores;
+		this.edgeFromIDs = edgeFromIDs;
+		this.edgeToIDs = edgeToIDs;
+		this.edgeScores = edgeScores;
+		this.isUser = isUser;
+		this.numSamples = numSamples;
+		this.exact = exact;
+	}
+
+	/** Estimate the betweenness of a graph's vertices and edges.
+	 *
+	 * @param numSamples is the number of sources to search from; at least
+	 * the number of vertices gives exact scores
+	 * @param numThreads is the number of threads to search with
+	 */
+	static BetweennessEstimate compute(StackExchangeTopicGraph graph,
+									   int numSamples, int numThreads,
+									   Random random) {
+
+		if (numSamples < 1) {
+			throw new IllegalArgumentException("Need at least one sample");
+		}
+
+		return compute(graph, undirected(graph), numSamples, numThreads,
+					   random);
+	}
+
+	/** Estimate the betweenness of a graph's vertices and edges, each within
+	 * an error bound with some confidence (see getNumSamplesFor()).
+	 *
+	 * @param numThreads is the number of threads to search with
+	 */
+	static BetweennessEstimate compute(StackExchangeTopicGraph graph,
+									   double errorBound, double confidence,
+									   int numThreads, Random random) {
+
+		BrandesBetweenness engine = undirected(graph);
+
+		return compute(graph, engine, getNumSamplesFor(errorBound, confidence,
+				engine.n, engine.numEdges), numThreads, random);
+	}
+
+	private static BrandesBetweenness undirected(StackExchangeTopicGraph graph) {
+
+		return BrandesBetweenness.undirected(new VertexListAdjacency(
+				graph.getVertices(), graph.getVertexIndex()));
+	}
+
+	private static BetweennessEstimate compute(StackExchangeTopicGraph graph,
+											   BrandesBetweenness engine,
+											   int numSamples, int numThreads,
+											   Random random) {
+
+		if (numThreads < 1) {
+			throw new IllegalArgumentException("Need at least one thread");
+		}
+
+		VertexIndex vertexIndex = graph.getVertexIndex();
+		int n = engine.n;
+
+		boolean exact = numSamples >= n;
+		int[] sources;
+		if (exact) {
+			sources = new int[n];
+			for (int i = 0; i < n; i++) {
+				sources[i] = i;
+			}
+		}
+		else {
+			sources = new int[numSamples];
+			for (int s = 0; s < numSamples; s++) {
+				sources[s] = random.nextInt(n);
+			}
+		}
+
+		double[] vertexScores = new double[n];
+		double[] edgeScores = new double[engine.numEdges];
+
+		ForkJoinPool pool = numThreads > 1 ? new ForkJoinPool(numThreads) : null;
+		try {
+			engine.accumulate(sources, sources.length, edgeScores, vertexScores,
+							  pool);
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
+
+		// scale the sample up to all n sources, then to a share of the
+		// n(n-1) ordered pairs
+		if (n > 1) {
+			double scale = (double)n / sources.length / ((double)n * (n - 1));
+			for (int i = 0; i < n; i++) {
+				vertexScores[i] *= scale;
+			}
+			for (int e = 0; e < engine.numEdges; e++) {
+				edgeScores[e] *= scale;
+			}
+		}
+
+		int[] edgeFromIDs = new int[engine.numEdges];
+		int[] edgeToIDs = new int[engine.numEdges];
+		for (int e = 0; e < engine.numEdges; e++) {
+			edgeFromIDs[e] = vertexIndex.getVertexID(engine.edgeFrom[e]);
+			edgeToIDs[e] = vertexIndex.getVertexID(engine.edgeTo[e]);
+		}
+
+		boolean[] isUser = new boolean[n];
+		for (int i = 0; i < n; i++) {
+			isUser[i] = graph.getVertices().get(vertexIndex.getVertexID(i))
+					instanceof UserNode;
+		}
+
+		return new BetweennessEstimate(vertexIndex, vertexScores, edgeFromIDs,
+				edgeToIDs, edgeScores, isUser, sources.length, exact);
+	}
+
+	/** Get the number of samples needed for every estimate to be within an
+	 * error bound, with some confidence.
+	 *
+	 * From Hoeffding's inequality and a union bound over the n vertices and
+	 * m edges: k >= ln(2(n + m) / (1 - confidence)) / (2 errorBound^2).
+	 *
+	 * @param errorBound is the largest error wanted, as a share of pairs
+	 * @param confidence is the probability wanted that no estimate is off
+	 * by more, between 0 and 1
+	 */
+	public static int getNumSamplesFor(double errorBound, double confidence,
+									   int numVertices, int numEdges) {
+
+		checkConfidence(confidence);
+		if (!(errorBound > 0)) {
+			throw new IllegalArgumentException("Error bound must be positive");
+		}
+
+		double samples = Math.log(2.0 * ((double)numVertices + numEdges)
+				/ (1 - confidence)) / (2 * errorBound * errorBound);
+
+		return (int)Math.min(Integer.MAX_VALUE, Math.ceil(samples));
+	}
+
+	/** Get how far every estimate is from the true betweenness, at most,
+	 * with some confidence: sqrt(ln(2(n + m) / (1 - confidence)) / (2k)).
+	 *
+	 * @param confidence is the probability that no estimate is off by more,
+	 * between 0 and 1
+	 * @return the error bound, as a share of pairs; 0 if the scores are
+	 * exact
+	 */
+	public double getErrorBound(double confidence) {
+
+		checkConfidence(confidence);
+
+		if (exact) {
+			return 0;
+		}
+
+		double items = (double)vertexScores.length + edgeScores.length;
+
+		return Math.sqrt(Math.log(2 * items / (1 - confidence))
+				/ (2.0 * numSamples));
+	}
+
+	public int getNumSamples() {
+
+		return numSamples;
+	}
+
+	/** Get whether every vertex was searched from, so the scores are exact.
+	 */
+	public boolean isExact() {
+
+		return exact;
+	}
+
+	/** Get the estimated betweenness of a vertex.
+	 *
+	 * @param vertexID is the ID of a vertex in the graph
+	 */
+	public double getBetweenness(int vertexID) {
+
+		return vertexScores[indexOf(vertexID)];
+	}
+
+	/** Get the lowest the betweenness of a vertex can be, with some
+	 * confidence (see getErrorBound()).
+	 */
+	public double getLowerBound(int vertexID, double confidence) {
+
+		return Math.max(0, getBetweenness(vertexID) - getErrorBound(confidence));
+	}
+
+	/** Get the highest the betweenness of a vertex can be, with some
+	 * confidence (see getErrorBound()).
+	 */
+	public double getUpperBound(int vertexID, double confidence) {
+
+		return Math.min(1, getBetweenness(vertexID) + getErrorBound(confidence));
+	}
+
+	/** Get the users of highest estimated betweenness, highest first.
+	 *
+	 * @return the users' vertex IDs
+	 */
+	public int[] getTopUsers(int k) {
+
+		return topVertices(k, true);
+	}
+
+	/** Get the posts (questions, answers and comments) of highest estimated
+	 * betweenness, highest first.
+	 *
+	 * @return the posts' vertex IDs
+	 */
+	public int[] getTopPosts(int k) {
+
+		return topVertices(k, false);
+	}
+
+	/** Get whether the top k users are the true top k, with some
+	 * confidence: whether the kth user's lower bound is above every other
+	 * user's upper bound.
+	 */
+	public boolean isTopUsersCertain(int k, double confidence) {
+
+		return isTopCertain(getTopUsers(k + 1), k, confidence);
+	}
+
+	/** Get whether the top k posts are the true top k, with some
+	 * confidence (see isTopUsersCertain()).
+	 */
+	public boolean isTopPostsCertain(int k, double confidence) {
+
+		return isTopCertain(getTopPosts(k + 1), k, confidence);
+	}
+
+	public int getNumEdges() {
+
+		return edgeScores.length;
+	}
+
+	/** Get the vertex ID of the lower indexed end of an edge.
+	 *
+	 * @param edge is the edge's number, from 0 to getNumEdges()-1
+	 */
+	public int getEdgeFromID(int edge) {
+
+		checkEdge(edge);
+
+		return edgeFromIDs[edge];
+	}
+
+	/** Get the vertex ID of the other end of an edge.
+	 */
+	public int getEdgeToID(int edge) {
+
+		checkEdge(edge);
+
+		return edgeToIDs[edge];
+	}
+
+	public double getEdgeBetweenness(int edge) {
+
+		checkEdge(edge);
+
+		return edgeScores[edge];
+	}
+
+	/** Get the edges of highest estimated betweenness, highest first.
+	 *
+	 * @return the edges' numbers (see getEdgeFromID() and getEdgeToID())
+	 */
+	public int[] getTopEdges(int k) {
+
+		return top(edgeScores, null, false, k);
+	}
+
+	/** Get the estimated betweenness of every vertex, indexed by the
+	 * graph's dense vertex index (see getVertexIndex()).
+	 */
+	public double[] getVertexScores() {
+
+		return Arrays.copyOf(vertexScores, vertexScores.length);
+	}
+
+	public VertexIndex getVertexIndex() {
+
+		return vertexIndex.readOnly();
+	}
+
+	private int[] topVertices(int k, boolean users) {
+
+		int[] top = top(vertexScores, isUser, users, k);
+		for (int r = 0; r < top.length; r++) {
+			top[r] = vertexIndex.getVertexID(top[r]);
+		}
+
+		return top;
+	}
+
+	/** Find the k highest scores, by a min-heap of the best so far, in
+	 * O(n log k).  Ties go to the lower index.
+	 *
+	 * @param kind picks the items to rank, with want, or is null to rank
+	 * them all
+	 * @return the items' indices, highest first
+	 */
+	private static int[] top(final double[] scores, boolean[] kind,
+							 boolean want, int k) {
+
+		if (k < 0) {
+			throw new IllegalArgumentException("Cannot find the top " + k);
+		}
+
+		// worst of the best first
+		Comparator<Integer> worstFirst = new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer a, Integer b) {
+
+				int byScore = Double.compare(scores[a], scores[b]);
+
+				return byScore != 0 ? byScore : Integer.compare(b, a);
+			}
+		};
+		PriorityQueue<Integer> best = new PriorityQueue<Integer>(
+				Math.max(1, Math.min(k, scores.length)), worstFirst);
+
+		for (int i = 0; i < scores.length && k > 0; i++) {
+			if (kind != null && kind[i] != want) {
+				continue;
+			}
+			if (best.size() < k) {
+				best.add(i);
+			}
+			else if (worstFirst.compare(i, best.peek()) > 0) {
+				best.poll();
+				best.add(i);
+			}
+		}
+
+		int[] top = new int[best.size()];
+		for (int r = top.length - 1; r >= 0; r--) {
+			top[r] = best.poll();
+		}
+
+		return top;
+	}
+
+	private boolean isTopCertain(int[] top, int k, double confidence) {
+
+		if (k < 1 || top.length <= k) {
+			return true;
+		}
+
+		return getLowerBound(top[k - 1], confidence)
+				> getUpperBound(top[k], confidence);
+	}
+
+	private int indexOf(int vertexID) {
+
+		int index = vertexIndex.indexOf(vertexID);
+
+		if (index < 0 || index >= vertexScores.length) {
+			throw new IllegalArgumentException("Vertex " + vertexID
+					+ " is not in the graph");
+		}
+
+		return index;
+	}
+
+	private void checkEdge(int edge) {
+
+		if (edge < 0 || edge >= edgeScores.length) {
+			throw new IllegalArgumentException("No edge " + edge);
+		}
+	}
+
+	private static void checkConfidence(double confidence) {
+
+		if (!(confidence > 0 && confidence < 1)) {
+			throw new IllegalArgumentException("Confidence must be between "
+					+ "0 and 1");
+		}
+	}
+}
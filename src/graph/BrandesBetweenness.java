@@ -0,0 +1,363 @@
+/** Betweenness centrality of edges and vertices, by Brandes' algorithm.
+ *
+ * The betweenness of an edge (or vertex) is the number of shortest paths,
+ * over all pairs of vertices, that go through it, with a pair's paths
+ * sharing one path's worth among them.  Brandes' algorithm gets it with
+ * one breadth-first search per source vertex: the search counts the
+ * shortest paths to every vertex, and walking back from the farthest
+ * vertex spreads each vertex's dependency onto the edges leading to it.
+ * See "A Faster Algorithm for Betweenness Centrality", U. Brandes, 2001.
+ *
+ * The graph is held in CSR form, with an ID for each edge (repeated edges
+ * and loops dropped), so per-edge scores are a double array.  Edges can
+ * be removed, as Girvan-Newman community detection does (see
+ * GirvanNewman); searches then skip them.
+ *
+ * Sources are independent, so with a fork-join pool they are searched by
+ * several threads at once, each adding into accumulators of its own that
+ * are summed at the end, so no locks or atomics are needed.
+ *
+ * Every ordered pair of vertices counts once, so in an undirected graph
+ * each pair of vertices is counted from both ends.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+final class BrandesBetweenness {
+
+	// sources per task
+	private static final int SOURCE_CHUNK = 16;
+	// fewer sources than this are searched by the calling thread
+	private static final int PARALLEL_SOURCES = 64;
+
+	final int n;
+	final int numEdges;
+	final boolean directed;
+
+	// out edges (followed from a source) and in edges (walked back), with
+	// the ID of the edge each entry is
+	final int[] outOffsets;
+	final int[] outNeighbors;
+	final int[] outEdges;
+	final int[] inOffsets;
+	final int[] inNeighbors;
+	final int[] inEdges;
+
+	// ends of each edge (lower index first if undirected)
+	final int[] edgeFrom;
+	final int[] edgeTo;
+
+	private final boolean[] removed;
+	// used when searching on the calling thread
+	private Search search;
+
+	private BrandesBetweenness(int n, int[] edgeFrom, int[] edgeTo,
+							   boolean directed) {
+
+		this.n = n;
+		this.numEdges = edgeFrom.length;
+		this.directed = directed;
+		this.edgeFrom = edgeFrom;
+		this.edgeTo = edgeTo;
+		this.removed = new boolean[numEdges];
+
+		int[][] out = toCSR(n, edgeFrom, edgeTo, directed);
+		this.outOffsets = out[0];
+		this.outNeighbors = out[1];
+		this.outEdges = out[2];
+
+		if (directed) {
+			int[][] in = toCSR(n, edgeTo, edgeFrom, true);
+			this.inOffsets = in[0];
+			this.inNeighbors = in[1];
+			this.inEdges = in[2];
+		}
+		else {
+			this.inOffsets = outOffsets;
+			this.inNeighbors = outNeighbors;
+			this.inEdges = outEdges;
+		}
+	}
+
+	/** Build the engine for a graph's edges, ignoring their direction: an
+	 * edge either way, or both, between two vertices is one edge.
+	 */
+	static BrandesBetweenness undirected(IndexedAdjacency graph) {
+
+		return build(graph, false);
+	}
+
+	/** Build the engine for a graph's directed edges.
+	 */
+	static BrandesBetweenness directed(IndexedAdjacency graph) {
+
+		return build(graph, true);
+	}
+
+	private static BrandesBetweenness build(IndexedAdjacency graph,
+											boolean directed) {
+
+		int n = graph.size();
+
+		// each edge as one long, so repeats sort together
+		long m = 0;
+		for (int i = 0; i < n; i++) {
+			m += graph.outDegree(i);
+		}
+		if (m > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many edges: " + m);
+		}
+
+		long[] pairs = new long[(int)m];
+		int numPairs = 0;
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < graph.outDegree(i); j++) {
+				int to = graph.outNeighbor(i, j);
+				if (to == i) {
+					continue;
+				}
+				int from = i;
+				if (!directed && to < from) {
+					from = to;
+					to = i;
+				}
+				pairs[numPairs++] = ((long)from << 32) | to;
+			}
+		}
+		Arrays.sort(pairs, 0, numPairs);
+
+		int numEdges = 0;
+		for (int p = 0; p < numPairs; p++) {
+			if (p == 0 || pairs[p] != pairs[p - 1]) {
+				pairs[numEdges++] = pairs[p];
+			}
+		}
+
+		int[] edgeFrom = new int[numEdges];
+		int[] edgeTo = new int[numEdges];
+		for (int e = 0; e < numEdges; e++) {
+			edgeFrom[e] = (int)(pairs[e] >>> 32);
+			edgeTo[e] = (int)pairs[e];
+		}
+
+		return new BrandesBetweenness(n, edgeFrom, edgeTo, directed);
+	}
+
+	// offsets, neighbors and edge IDs of each vertex's edges, from its
+	// "from" end only if directed, or from both ends if not
+	private static int[][] toCSR(int n, int[] from, int[] to, boolean directed) {
+
+		int[] offsets = new int[n + 1];
+		for (int e = 0; e < from.length; e++) {
+			offsets[from[e] + 1]++;
+			if (!directed) {
+				offsets[to[e] + 1]++;
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+
+		int[] fill = Arrays.copyOf(offsets, n);
+		int[] neighbors = new int[offsets[n]];
+		int[] edges = new int[offsets[n]];
+		for (int e = 0; e < from.length; e++) {
+			neighbors[fill[from[e]]] = to[e];
+			edges[fill[from[e]]++] = e;
+			if (!directed) {
+				neighbors[fill[to[e]]] = from[e];
+				edges[fill[to[e]]++] = e;
+			}
+		}
+
+		return new int[][] {offsets, neighbors, edges};
+	}
+
+	void removeEdge(int edge) {
+
+		removed[edge] = true;
+	}
+
+	boolean isRemoved(int edge) {
+
+		return removed[edge];
+	}
+
+	/** Add the betweenness from some source vertices' shortest paths.
+	 *
+	 * @param sources are the sources, in sources[0..numSources)
+	 * @param edgeScores gets each edge's betweenness added, by edge ID
+	 * @param vertexScores gets each vertex's betweenness added, by index,
+	 * or is null if not wanted
+	 * @param pool searches the sources in parallel, or is null to search
+	 * them on the calling thread
+	 */
+	void accumulate(final int[] sources, int numSources,
+					double[] edgeScores, double[] vertexScores,
+					ForkJoinPool pool) {
+
+		if (pool == null || numSources < PARALLEL_SOURCES) {
+			if (search == null) {
+				search = new Search();
+			}
+			for (int s = 0; s < numSources; s++) {
+				search.run(sources[s], edgeScores, vertexScores);
+			}
+			return;
+		}
+
+		// each thread's own search and accumulators
+		final boolean wantVertices = vertexScores != null;
+		final List<Search> searches = Collections.synchronizedList(
+				new ArrayList<Search>());
+		final ThreadLocal<Search> threadSearch = new ThreadLocal<Search>() {
+
+			@Override
+			protected Search initialValue() {
+
+				Search threadOwn = new Search();
+				threadOwn.edgeScores = new double[numEdges];
+				threadOwn.vertexScores = wantVertices ? new double[n] : null;
+				searches.add(threadOwn);
+
+				return threadOwn;
+			}
+		};
+
+		class SourceChunk extends RecursiveAction {
+
+			private static final long serialVersionUID = 1L;
+
+			private final int start;
+			private final int end;
+
+			SourceChunk(int start, int end) {
+
+				this.start = start;
+				this.end = end;
+			}
+
+			@Override
+			protected void compute() {
+
+				if (end - start > SOURCE_CHUNK) {
+					int middle = (start + end) >>> 1;
+					invokeAll(new SourceChunk(start, middle),
+							  new SourceChunk(middle, end));
+					return;
+				}
+
+				Search threadOwn = threadSearch.get();
+				for (int s = start; s < end; s++) {
+					threadOwn.run(sources[s], threadOwn.edgeScores,
+								  threadOwn.vertexScores);
+				}
+			}
+		}
+
+		pool.invoke(new SourceChunk(0, numSources));
+
+		for (Search threadOwn : searches) {
+			for (int e = 0; e < numEdges; e++) {
+				edgeScores[e] += threadOwn.edgeScores[e];
+			}
+			if (wantVertices) {
+				for (int i = 0; i < n; i++) {
+					vertexScores[i] += threadOwn.vertexScores[i];
+				}
+			}
+		}
+	}
+
+	/** Scratch for one source's search at a time.
+	 */
+	private final class Search {
+
+		private final int[] distance;
+		private final double[] pathCounts;
+		private final double[] dependency;
+		// vertices in the order the search reached them
+		private final int[] order;
+
+		// a thread's own accumulators, when searching in parallel
+		double[] edgeScores;
+		double[] vertexScores;
+
+		Search() {
+
+			this.distance = new int[n];
+			Arrays.fill(distance, -1);
+			this.pathCounts = new double[n];
+			this.dependency = new double[n];
+			this.order = new int[n];
+		}
+
+		void run(int source, double[] edgeScores, double[] vertexScores) {
+
+			// breadth-first search, counting shortest paths
+			int reached = 0;
+			order[reached++] = source;
+			distance[source] = 0;
+			pathCounts[source] = 1;
+
+			for (int next = 0; next < reached; next++) {
+
+				int v = order[next];
+
+				for (int k = outOffsets[v]; k < outOffsets[v + 1]; k++) {
+
+					if (removed[outEdges[k]]) {
+						continue;
+					}
+
+					int w = outNeighbors[k];
+					if (distance[w] < 0) {
+						distance[w] = distance[v] + 1;
+						order[reached++] = w;
+					}
+					if (distance[w] == distance[v] + 1) {
+						pathCounts[w] += pathCounts[v];
+					}
+				}
+			}
+
+			// farthest first, spread each vertex's dependency back along
+			// the edges into it that are on shortest paths
+			for (int next = reached - 1; next > 0; next--) {
+
+				int w = order[next];
+				double share = (1 + dependency[w]) / pathCounts[w];
+
+				for (int k = inOffsets[w]; k < inOffsets[w + 1]; k++) {
+
+					int v = inNeighbors[k];
+					if (distance[v] == distance[w] - 1 && !removed[inEdges[k]]) {
+						double credit = pathCounts[v] * share;
+						edgeScores[inEdges[k]] += credit;
+						dependency[v] += credit;
+					}
+				}
+
+				if (vertexScores != null) {
+					vertexScores[w] += dependency[w];
+				}
+			}
+
+			for (int next = 0; next < reached; next++) {
+				int v = order[next];
+				distance[v] = -1;
+				pathCounts[v] = 0;
+				dependency[v] = 0;
+			}
+		}
+	}
+}
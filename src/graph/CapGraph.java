@@ -8,13 +8,15 @@
  */
 package graph;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.Stack;
 
 public class CapGraph implements Graph {
 	
@@ -22,7 +24,11 @@ public class CapGraph implements Graph {
 	
 	private String name;
 	private Map<Integer,Vertex> vertices;
+	// dense index of every vertex ID, for array-based algorithms
+	private VertexIndex vertexIndex;
 	private List<Graph> SCCList;
+	// set by freeze(); vertices is then a read-only view of it
+	private CompactAdjacency compact;
 	
 	public CapGraph() {
 		
@@ -33,8 +39,53 @@ public class CapGraph implements Graph {
 		
 		this.name = name;
 		this.vertices = new HashMap<Integer,Vertex>();
+		this.vertexIndex = new VertexIndex();
 		// might be inefficient because list will keep doubling
 		this.SCCList = new ArrayList<Graph>();
+		this.compact = null;
+	}
+	
+	private CapGraph(String name, CompactAdjacency compact) {
+		
+		this(name);
+		
+		this.compact = compact;
+		this.vertices = compact.asVertexMap();
+		this.vertexIndex = VertexIndex.of(compact.vertexIDs);
+	}
+	
+	/** Compact the graph into a frozen compressed sparse row form.
+	 * 
+	 * Meant to be called once loading is done.  Afterwards the graph takes
+	 * three int arrays instead of a Vertex and a list of boxed Integers per
+	 * vertex, and the egonet, SCC and transpose methods walk those arrays
+	 * directly.
+	 * 
+	 * A frozen graph cannot be changed: addVertex and addEdge throw an
+	 * IllegalStateException.  getVertices() still works, but returns a 
+	 * read-only view whose Vertex objects are made on each lookup, so
+	 * changes to them are not kept.  Vertex names are not kept either 
+	 * (every vertex is named by its ID, as addVertex names them anyway).
+	 * 
+	 * Freezing renumbers the vertex index in ascending vertex ID order, 
+	 * which is also the order of the CSR arrays.
+	 * 
+	 * Calling freeze on a frozen graph does nothing.
+	 */
+	public void freeze() {
+		
+		if (compact != null) {
+			return;
+		}
+		
+		compact = CompactAdjacency.build(vertices);
+		vertices = compact.asVertexMap();
+		vertexIndex = VertexIndex.of(compact.vertexIDs);
+	}
+	
+	public boolean isFrozen() {
+		
+		return compact != null;
 	}
 
 	/** Add a vertex to the graph.
@@ -46,6 +97,11 @@ public class CapGraph implements Graph {
 	@Override 
 	public void addVertex(int num, int vertexType) {
 		
+		if (compact != null) {
+			throw new IllegalStateException("Cannot add a vertex to frozen "
+					+ "graph " + name);
+		}
+		
 		if (vertexType != DEFAULT_VERTEX) {
 			throw new IllegalArgumentException("CapGraph only supports "
 					+ "default vertices");
@@ -53,6 +109,7 @@ public class CapGraph implements Graph {
 		
 		Vertex vertex = new Vertex(num);
 		vertices.put(num,vertex);
+		vertexIndex.add(num);
 	}
 
 	/** Add a directed edge to the graph.
@@ -65,6 +122,11 @@ public class CapGraph implements Graph {
 	@Override
 	public void addEdge(int from, int to) {
 		
+		if (compact != null) {
+			throw new IllegalStateException("Cannot add an edge to frozen "
+					+ "graph " + name);
+		}
+		
 		Vertex fromVertex = vertices.get(from);
 		Vertex toVertex = vertices.get(to);
 		
@@ -79,6 +141,8 @@ public class CapGraph implements Graph {
 	 * and 4) and all of the edges between each v.
 	 * 
 	 * The returned graph does not share any objects with the original graph.
+	 * The egonet of a frozen graph is found by sorted adjacency intersection
+	 * and is itself frozen.  Use getEgonets to find many egonets at once.
 	 * 
 	 * @param center is the vertex at the center of the egonet
 	 * 
@@ -89,11 +153,15 @@ public class CapGraph implements Graph {
 	@Override
 	public Graph getEgonet(int center) {
 		
+		if (compact != null) {
+			return getCompactEgonet(center);
+		}
+		
 		Graph egonet = new CapGraph("Egonet for vertex " + center + 
 									" within " + name); 
 		
 		Vertex centVertInParent = vertices.get(center);
-		List<Integer> centOutVertsInParent = centVertInParent.getOutEdges();
+		IntList centOutVertsInParent = centVertInParent.getOutEdgeIDs();
 		
 		// add the center to the egonet
 		egonet.addVertex(center, DEFAULT_VERTEX);
@@ -103,22 +171,25 @@ public class CapGraph implements Graph {
 		Set<Integer> centOutVertsInParentSet = 
 				new HashSet<Integer>(centOutVertsInParent.size()*2,1);
 		
-		for (Integer outVertexID : centOutVertsInParent) {
+		for (int i = 0; i < centOutVertsInParent.size(); i++) {
 			
+			int outVertexID = centOutVertsInParent.getInt(i);
 			centOutVertsInParentSet.add(outVertexID);
 			// add the out vertex and the edge between it and center
 			egonet.addVertex(outVertexID, DEFAULT_VERTEX);
 			egonet.addEdge(center, outVertexID);
 		}
 		
-		for (Integer outVertexID : centOutVertsInParent) {
-			
+		for (int i = 0; i < centOutVertsInParent.size(); i++) {
 			
+			int outVertexID = centOutVertsInParent.getInt(i);
 			Vertex outVertex = vertices.get(outVertexID);
 			
-			List<Integer> outVertOutVertsInParent = outVertex.getOutEdges();
+			IntList outVertOutVertsInParent = outVertex.getOutEdgeIDs();
 			
-			for (Integer outVertOutVert : outVertOutVertsInParent) {
+			for (int j = 0; j < outVertOutVertsInParent.size(); j++) {
+				
+				int outVertOutVert = outVertOutVertsInParent.getInt(j);
 				
 				// add edges between out verts if center is connected to both
 				// need to use parent adjacency set because
@@ -132,165 +203,239 @@ public class CapGraph implements Graph {
 
 		return egonet;
 	}
-
-	/** Find all strongly connected components (SCCs) in a directed graph.
+	
+	/** getEgonet for a frozen graph.
 	 * 
-	 * The returned graph(s) do not share any objects with the original graph.
+	 * Intersects the center's sorted neighbors with each neighbor's (see
+	 * EgonetExtractor) and returns the result as a frozen graph.
+	 */
+	private Graph getCompactEgonet(int center) {
+		
+		int centerIndex = compact.indexOf(center);
+		if (centerIndex < 0) {
+			throw new IllegalArgumentException("Vertex " + center + 
+											   " is not in " + name);
+		}
+		
+		return new CapGraph("Egonet for vertex " + center + " within " + name,
+							new EgonetExtractor(compact).extract(centerIndex));
+	}
+	
+	/** Construct the egonets for many vertices at once.
 	 * 
-	 * @return a list of subgraphs that comprise the strongly connected components
-	 * of this graph.
+	 * Each egonet is extracted by sorted adjacency intersection, as on a
+	 * frozen graph.  An unfrozen graph is put in CSR form once for the 
+	 * whole batch (the graph itself stays unfrozen), so this is much 
+	 * faster than calling getEgonet for each center.
 	 * 
-	 * @see graph.Graph#getSCCs()
+	 * @param centers are the vertex IDs of the egonets' centers
+	 * @return the egonets, in the order of centers, each a frozen CapGraph
+	 * with the same vertices and edges as getEgonet gives
 	 */
-	@Override
-	public List<Graph> getSCCs() {
-
-		Stack<Integer> vertexIDStack = new Stack<Integer>();
+	public List<Graph> getEgonets(int[] centers) {
 		
-		for (int vertexID : vertices.keySet()) {
+		CompactAdjacency adjacency = 
+				compact != null ? compact : CompactAdjacency.build(vertices);
+		EgonetExtractor extractor = new EgonetExtractor(adjacency);
+		
+		List<Graph> egonets = new ArrayList<Graph>(centers.length);
+		
+		for (int center : centers) {
 			
-			vertexIDStack.push(vertexID);
+			int centerIndex = adjacency.indexOf(center);
+			if (centerIndex < 0) {
+				throw new IllegalArgumentException("Vertex " + center + 
+												   " is not in " + name);
+			}
+			
+			egonets.add(new CapGraph("Egonet for vertex " + center + 
+									 " within " + name, 
+									 extractor.extract(centerIndex)));
 		}
 		
-		Stack<Integer> finishOrder = allDFS(this, vertexIDStack, false);
-		CapGraph thisTranspose = getTranspose();
-		// don't need the finishing order after second pass
-		allDFS(thisTranspose, finishOrder, true);
-		
-		return SCCList;
+		return egonets;
 	}
 	
-	/** Use depth-first search (DFS) to discover all vertices and all strongly
-	 * connected components (SCCs) in a graph.
-	 * 
-	 * Returns vertices in a stack with later finishing DFS times on top to
-	 * first finishing DFS times on bottom.  A vertex is "finished" with 
-	 * DFS when DFS has discovered everything there is to discover from that
-	 * vertex.
-	 * 
-	 * @param graph is the graph in which to do DFS and uncover SCCs.  If
-	 *   secondPass is true, this should be a transpose of the original graph.
-	 * @param verticesToVisit is the (possibly ordered) list of all vertices to
-	 *   visit.  If secondPass is true, the stack should be ordered as if it were
-	 *   given by the return value of this method on the first pass.
-	 * @param secondPass is a boolean that indicates whether the graph is the
-	 *   transpose of the graph in which we want to discover SCCs and whether
-	 *   verticesToVisit is ordered according to the ordering mentioned above.
-	 * @return 
+	/** Find all strongly connected components (SCCs) in a directed graph.
+	 * 
+	 * The returned graph(s) do not share any objects with the original graph.
+	 * 
+	 * The components are found up front by findSCCs(), but each SCC graph
+	 * is only built the first time it is read from the returned list (and
+	 * kept after that), so callers that only need a few of them, or only
+	 * need the count, do not pay for the rest.  The list is not safe for 
+	 * use by several threads at once.
+	 * 
+	 * @return a list of subgraphs that comprise the strongly connected components
+	 * of this graph, in the order of findSCCs().
+	 * 
+	 * @see graph.Graph#getSCCs()
 	 */
-	public Stack<Integer> allDFS(CapGraph graph, Stack<Integer> verticesToVisit,
-								 boolean secondPass) {
+	@Override
+	public List<Graph> getSCCs() {
 		
-		Stack<Integer> finished = new Stack<Integer>();
-		Set<Integer> visited = new HashSet<Integer>(graph.vertices.size()*2,1);
+		final IndexedAdjacency adjacency = indexedAdjacency();
+		final SCCResult sccs = TarjanSCC.findComponents(adjacency, vertexIndex);
+		final List<int[]> members = sccs.getMemberIndicesByComponent();
 		
-		while (!verticesToVisit.isEmpty()) {
+		SCCList = new AbstractList<Graph>() {
 			
-			int vertexToVisit = verticesToVisit.pop();
+			private final Graph[] built = new Graph[members.size()];
 			
-			if (!visited.contains(vertexToVisit)) {
-
-				CapGraph SCC = null;
+			@Override
+			public Graph get(int component) {
 				
-				if (secondPass) {
-					// if second pass, need to create an SCC
-					// the SCC will include all vertexes reachable
-					// from this vertex
-					// TODO: copy other info (e.g. vertex name)
-					SCC = new CapGraph("SCC with Parent '" + name + "' and " +
-									   "Root " + vertexToVisit);
-					SCC.addVertex(vertexToVisit, DEFAULT_VERTEX);
+				if (built[component] == null) {
+					built[component] = buildSCC(adjacency, sccs, component, 
+												members.get(component));
 				}
-
-				singleDFS(graph, vertexToVisit, vertexToVisit, 
-						  visited, finished, secondPass, SCC);
 				
-				if (secondPass) {
-					
-					SCCList.add(SCC);
-				}
+				return built[component];
+			}
+			
+			@Override
+			public int size() {
+				
+				return built.length;
 			}
+		};
+		
+		return SCCList;
+	}
+	
+	/** Find the strongly connected components (SCCs) of this graph as labels.
+	 * 
+	 * Uses an iterative version of Tarjan's algorithm: one pass, no 
+	 * transpose, and no recursion, so long paths cannot overflow the stack.
+	 * 
+	 * @return the component of every vertex
+	 */
+	public SCCResult findSCCs() {
+		
+		return TarjanSCC.findComponents(indexedAdjacency(), vertexIndex);
+	}
+	
+	/** Find the strongly connected components (SCCs) of this graph as labels,
+	 * using several threads.
+	 * 
+	 * Trims vertices that are SCCs on their own, then splits the rest with
+	 * parallel forward-backward searches (see ParallelSCC).  The components
+	 * are the same as findSCCs() gives, but they are numbered in order of 
+	 * their lowest dense vertex index rather than in reverse topological 
+	 * order; use SCCResult.hasSameComponents() to compare the two.
+	 * 
+	 * @param numThreads is the number of threads to use
+	 * @return the component of every vertex
+	 */
+	public SCCResult findSCCs(int numThreads) {
+		
+		return ParallelSCC.findComponents(indexedAdjacency(), vertexIndex, 
+										  numThreads);
+	}
+	
+	/** Build the condensation of this graph: its SCCs and the DAG of edges
+	 * between them.
+	 * 
+	 * @return the condensation of the components findSCCs() finds
+	 */
+	public Condensation getCondensation() {
+		
+		return getCondensation(findSCCs());
+	}
+	
+	/** Build the condensation of this graph from components already found.
+	 * 
+	 * @param sccs are this graph's components, from either findSCCs() or
+	 * findSCCs(int)
+	 * @return the condensation (user and post aggregates are all 0, since
+	 * a CapGraph has neither)
+	 */
+	public Condensation getCondensation(SCCResult sccs) {
+		
+		if (sccs.getVertexIndex() != vertexIndex.readOnly() 
+				|| sccs.getNumVertices() != vertexIndex.size()) {
+			throw new IllegalArgumentException("Components are not of this graph");
 		}
-
-		return finished;
+		
+		return Condensation.build(sccs, indexedAdjacency(), null);
 	}
 	
-	/** Do a depth-first search as a helper method for discovering SCCs.
-	 * 
-	 * Do a DFS in a directed graph from a particular vertex as part of 
-	 * computing either the "finishing order" of all vertices in the graph 
-	 * or assigning vertices to SCCs.
-	 * 
-	 * If second pass is false, this method is useful because it populates
-	 * the "finished" stack passed to it, which gives the ordering that 
-	 * should be used with the given graph's transpose to discover SCCs.
-	 * 
-	 * If secondPass is true, this method will populate the graph's
-	 * SCC list.
-	 * 
-	 * @param graph is the graph in which to do the DFS.
-	 * @param vertexID is the vertex from which to do the DFS.
-	 * @param root is the root of the current SCC.
-	 * @param visited is the set of vertices that have been discovered
-	 *   by DFS so far.
-	 * @param finished is the list of vertices from which DFS has already
-	 *   discovered all vertices there are to discover.
-	 * @param secondPass is a boolean that indicates whether the correct
-	 *   finishing order has already been calculated and whether the SCC
-	 *   list should be populated.
-	 * @param SCC is the current SCC (this should be be null if secondPass
-	 *   is false).
+	/** Detect communities in this graph with the Louvain method, treating
+	 * every edge as undirected (see Louvain).
+	 * 
+	 * @return the community of every vertex at each level of the hierarchy
 	 */
-	public void singleDFS(CapGraph graph, int vertexID, int root,
-						  Set<Integer> visited, Stack<Integer> finished,
-						  boolean secondPass, CapGraph SCC) {
+	public LouvainHierarchy findCommunities() {
 		
-		visited.add(vertexID);
+		return Louvain.findCommunities(
+				WeightedAdjacency.fromDirected(indexedAdjacency()), vertexIndex);
+	}
+	
+	/** Detect communities in this graph with the Louvain method, using
+	 * several threads (see ParallelLouvain).
+	 * 
+	 * @param numThreads is the number of threads to use
+	 * @return the community of every vertex at each level of the hierarchy
+	 */
+	public LouvainHierarchy findCommunities(int numThreads) {
 		
-		Vertex vertex = graph.vertices.get(vertexID);
+		return Louvain.findCommunities(
+				WeightedAdjacency.fromDirected(indexedAdjacency()), vertexIndex,
+				numThreads);
+	}
+	
+	private IndexedAdjacency indexedAdjacency() {
 		
-		if (secondPass && !SCC.getVertices().keySet().contains(vertexID)) {
-			// TODO: copy other info (e.g. vertex name)
-			SCC.addVertex(vertexID, DEFAULT_VERTEX);
+		if (compact != null) {
+			return compact;
 		}
 		
-		for (Integer neighborID : vertex.getOutEdges()) {
-			
-			if (secondPass) {
-				// TODO: copy other info (e.g. vertex name, edge weights)
-				// if we haven't already visited it and
-				// it isn't already in this SCC
-				if (!visited.contains(neighborID) &&
-					!SCC.getVertices().keySet().contains(neighborID)) {
-
-					SCC.addVertex(neighborID, DEFAULT_VERTEX);
-				}
+		return new VertexListAdjacency(vertices, vertexIndex);
+	}
+	
+	/** Build the subgraph of one SCC.
+	 * 
+	 * @param memberIndices are the dense indices of the SCC's vertices
+	 */
+	private CapGraph buildSCC(IndexedAdjacency adjacency, SCCResult sccs, 
+							  int component, int[] memberIndices) {
+		
+		// TODO: copy other info (e.g. vertex name)
+		CapGraph SCC = new CapGraph("SCC with Parent '" + name + "' and " +
+									"Root " + sccs.getComponentRoot(component));
+		
+		for (int member : memberIndices) {
+			SCC.addVertex(vertexIndex.getVertexID(member), DEFAULT_VERTEX);
+		}
+		
+		for (int member : memberIndices) {
+			for (int i = 0; i < adjacency.outDegree(member); i++) {
 				
-				// if we added the neighbor to the SCC, add the edge
-				if (SCC.getVertices().keySet().contains(neighborID)) {
-					SCC.addEdge(vertexID, neighborID);
-				}
-			}
-			
-			if (!visited.contains(neighborID)) {
+				int neighbor = adjacency.outNeighbor(member, i);
 				
-				singleDFS(graph, neighborID, root, visited, finished,
-						  secondPass, SCC);
+				if (sccs.getComponentOfIndex(neighbor) == component) {
+					SCC.addEdge(vertexIndex.getVertexID(member), 
+								vertexIndex.getVertexID(neighbor));
+				}
 			}
 		}
 		
-		finished.push(vertexID);
+		return SCC;
 	}
 	
 	/** Reverse the edges of this graph.
 	 * 
-	 * Returns a new graph.
+	 * Returns a new graph, which is frozen if this graph is frozen.
 	 * 
 	 * @param graph the graph to be transposed
 	 * @return a new CapGraph with all original graph edges reversed.
 	 */
 	public CapGraph getTranspose() {
 		
+		if (compact != null) {
+			return new CapGraph(name + " (Transpose)", compact.transpose());
+		}
+		
 		CapGraph transposeGraph = new CapGraph(name + " (Transpose)");
 		
 		Map<Integer,Vertex> transposeVertices = transposeGraph.getVertices();
@@ -304,11 +449,13 @@ public class CapGraph implements Graph {
 				transposeGraph.addVertex(vertexID, DEFAULT_VERTEX);
 			}
 			
-			List<Integer> oldOutEdges = vertex.getOutEdges();
+			IntList oldOutEdges = vertex.getOutEdgeIDs();
 			
 			// adjacency matrix representation may be useful
 			// to avoid linear inner loop
-			for (Integer oldOutVertID : oldOutEdges) {
+			for (int i = 0; i < oldOutEdges.size(); i++) {
+				
+				int oldOutVertID = oldOutEdges.getInt(i);
 				
 				if (!transposeVertices.keySet().contains(oldOutVertID)) {
 					
@@ -326,6 +473,17 @@ public class CapGraph implements Graph {
 		
 		return vertices;
 	}
+	
+	/** Get the dense index of this graph's vertex IDs.
+	 * 
+	 * Vertices are numbered 0..n-1 in the order they were added (or in 
+	 * ascending ID order once the graph is frozen).  The index is a 
+	 * read-only view of the graph's, so it sees vertices added later.
+	 */
+	public VertexIndex getVertexIndex() {
+		
+		return vertexIndex.readOnly();
+	}
 
 	/** Return version of the map readable by UCSD auto-grader.
 	 * 
@@ -347,12 +505,12 @@ public class CapGraph implements Graph {
 			
 			Vertex vertex = vertices.get(vertexID);
 			
-			List<Integer> outVertices = vertex.getOutEdges();
+			IntList outVertices = vertex.getOutEdgeIDs();
 			HashSet<Integer> outVertexIDSet = new HashSet<Integer>(outVertices.size()*2,1);
 			
-			for (Integer outVertexID : outVertices) {
+			for (int i = 0; i < outVertices.size(); i++) {
 				
-				outVertexIDSet.add(outVertexID);
+				outVertexIDSet.add(outVertices.getInt(i));
 			}
 			
 			exportedGraph.put(vertexID, outVertexIDSet);
@@ -361,19 +519,50 @@ public class CapGraph implements Graph {
 		return exportedGraph;
 	}
 	
-	/*
-	 * Detect communities in the graph
+	/** Save the graph as a snapshot that can be memory mapped and queried 
+	 * in place.
+	 * 
+	 * Open it with GraphLoader.openMappedSnapshot.  See MappedGraphSnapshot
+	 * for the layout.
+	 * 
+	 * @param snapshotFile is the file to write (overwritten if it exists)
+	 * @return the snapshot file
+	 */
+	public File exportMappedSnapshot(File snapshotFile) throws IOException {
+		
+		MappedGraphSnapshot.write(this, snapshotFile);
+		
+		return snapshotFile;
+	}
+	
+	/** Detect communities in this graph with the Girvan-Newman method,
+	 * treating every edge as undirected (see GirvanNewman).
+	 * 
+	 * Removes edges, highest betweenness first, until no later split could
+	 * have a higher modularity, and keeps the split with the highest
+	 * modularity.  Betweenness is found with as many threads as there are
+	 * processors.
+	 * 
+	 * @return the community of every vertex
+	 */
+	public GirvanNewmanResult detectCommunities() {
+		
+		return detectCommunities(0, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/** Detect communities in this graph with the Girvan-Newman method,
+	 * stopping once the graph has split into some number of communities.
+	 * 
+	 * @param numCommunities is the number of communities to stop at, or 0
+	 * to keep the split with the highest modularity
+	 * @param numThreads is the number of threads to find betweenness with
+	 * @return the community of every vertex
 	 */
-	public void detectCommunities() {
-	/*
-		- Compute “betweenness” of all edges (i.e., calculate shortest path between every pair of vertices and count how many times each edge appears in a path)
-			- for each node v (O(v)) (linear at this point)
-			- bfs of graph starting at v (O(|V|+|E|)) (quadratic at this point)
-			- compute # of shortest paths from v to each other node
-			- distribute flow to edges along these paths (increment counter for each edge in each shortest path?)
-		- Remove edge(s) of highest betweenness
-		- Repeat with graph subsections until there are no more edges, or until have separated graph into desired number of components (O(|E|)) (cubic at this point)
-	*/
+	public GirvanNewmanResult detectCommunities(int numCommunities, 
+												int numThreads) {
+		
+		return GirvanNewman.findCommunities(indexedAdjacency(), vertexIndex, 
+										   numCommunities, numThreads);
 	}
 
 	/** Print a text representation of the graph to default output.
@@ -391,9 +580,9 @@ public class CapGraph implements Graph {
 			System.out.print("Vertex ID/Name: " + vertex.getVertexID() + "/" +
 							 vertex.getName() + "; adjacency list: ");
 			
-			for (Integer toVertexID : vertex.getOutEdges()) {
+			for (int i = 0; i < vertex.getOutDegree(); i++) {
 				
-				System.out.print(toVertexID + ",");
+				System.out.print(vertex.getOutEdge(i) + ",");
 			}
 			
 			System.out.println();
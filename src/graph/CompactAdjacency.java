@@ -0,0 +1,233 @@
+/** A frozen compressed sparse row (CSR) adjacency structure.
+ *
+ * Vertices are given dense indices in ascending vertex ID order, and every
+ * vertex's out edges are a run of indices in one shared neighbor array:
+ * vertex i's out neighbors are neighbors[offsets[i]] to
+ * neighbors[offsets[i+1] - 1], sorted (so also in ascending vertex ID
+ * order).  Sorted rows let two vertices' neighbors be intersected by
+ * merging (see EgonetExtractor).
+ *
+ * This takes three int arrays in total, rather than a map entry, a Vertex
+ * and a list of boxed Integers per vertex, and walking a vertex's edges
+ * reads consecutive memory.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+final class CompactAdjacency implements IndexedAdjacency {
+
+	final int[] vertexIDs;
+	final int[] offsets;
+	final int[] neighbors;
+
+	CompactAdjacency(int[] vertexIDs, int[] offsets, int[] neighbors) {
+
+		this.vertexIDs = vertexIDs;
+		this.offsets = offsets;
+		this.neighbors = neighbors;
+	}
+
+	/** Build the CSR form of a map of vertices.
+	 *
+	 * @param vertices is the graph's vertices; every out edge must go to
+	 * a vertex in the map
+	 */
+	static CompactAdjacency build(Map<Integer,Vertex> vertices) {
+
+		int n = vertices.size();
+
+		int[] vertexIDs = new int[n];
+		int i = 0;
+		long m = 0;
+		for (Vertex vertex : vertices.values()) {
+			vertexIDs[i++] = vertex.getVertexID();
+			m += vertex.getOutDegree();
+		}
+		Arrays.sort(vertexIDs);
+
+		if (m > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many edges to compact: " + m);
+		}
+
+		int[] offsets = new int[n + 1];
+		int[] neighbors = new int[(int)m];
+		int edge = 0;
+		for (i = 0; i < n; i++) {
+			offsets[i] = edge;
+			IntList outEdges = vertices.get(vertexIDs[i]).getOutEdgeIDs();
+			for (int j = 0; j < outEdges.size(); j++) {
+				int toVertexID = outEdges.getInt(j);
+				int toIndex = Arrays.binarySearch(vertexIDs, toVertexID);
+				if (toIndex < 0) {
+					throw new IllegalArgumentException("Vertex " + vertexIDs[i]
+							+ " has an edge to " + toVertexID
+							+ ", which is not in the graph");
+				}
+				neighbors[edge++] = toIndex;
+			}
+			Arrays.sort(neighbors, offsets[i], edge);
+		}
+		offsets[n] = edge;
+
+		return new CompactAdjacency(vertexIDs, offsets, neighbors);
+	}
+
+	@Override
+	public int size() {
+
+		return vertexIDs.length;
+	}
+
+	int numEdges() {
+
+		return neighbors.length;
+	}
+
+	/** Find the index of a vertex ID, or a negative number if it is absent.
+	 */
+	int indexOf(int vertexID) {
+
+		return Arrays.binarySearch(vertexIDs, vertexID);
+	}
+
+	@Override
+	public int outDegree(int index) {
+
+		return offsets[index + 1] - offsets[index];
+	}
+
+	@Override
+	public int outNeighbor(int index, int i) {
+
+		return neighbors[offsets[index] + i];
+	}
+
+	/** Reverse every edge.
+	 *
+	 * A vertex's reversed in edges come out in ascending order of the
+	 * vertex they came from.
+	 */
+	CompactAdjacency transpose() {
+
+		int n = size();
+
+		int[] inOffsets = new int[n + 1];
+		for (int neighbor : neighbors) {
+			inOffsets[neighbor + 1]++;
+		}
+		for (int i = 0; i < n; i++) {
+			inOffsets[i + 1] += inOffsets[i];
+		}
+
+		int[] next = Arrays.copyOf(inOffsets, n);
+		int[] inNeighbors = new int[neighbors.length];
+		for (int from = 0; from < n; from++) {
+			for (int e = offsets[from]; e < offsets[from + 1]; e++) {
+				inNeighbors[next[neighbors[e]]++] = from;
+			}
+		}
+
+		return new CompactAdjacency(vertexIDs, inOffsets, inNeighbors);
+	}
+
+	/** Make a Vertex with the out edges of the vertex at an index.
+	 *
+	 * The Vertex is new on every call, so changing it does not change
+	 * this structure.
+	 */
+	Vertex makeVertex(int index) {
+
+		Vertex vertex = new Vertex(vertexIDs[index]);
+		for (int e = offsets[index]; e < offsets[index + 1]; e++) {
+			vertex.createEdge(vertexIDs[neighbors[e]]);
+		}
+
+		return vertex;
+	}
+
+	/** A read-only Map<Integer,Vertex> view, so code written against
+	 * CapGraph's vertex map keeps working on a frozen graph.
+	 *
+	 * Vertices are made on demand by makeVertex.
+	 */
+	Map<Integer,Vertex> asVertexMap() {
+
+		return new AbstractMap<Integer,Vertex>() {
+
+			@Override
+			public int size() {
+
+				return vertexIDs.length;
+			}
+
+			@Override
+			public boolean containsKey(Object key) {
+
+				return key instanceof Integer && indexOf((Integer)key) >= 0;
+			}
+
+			@Override
+			public Vertex get(Object key) {
+
+				if (!(key instanceof Integer)) {
+					return null;
+				}
+
+				int index = indexOf((Integer)key);
+
+				return index < 0 ? null : makeVertex(index);
+			}
+
+			@Override
+			public Set<Map.Entry<Integer,Vertex>> entrySet() {
+
+				return new AbstractSet<Map.Entry<Integer,Vertex>>() {
+
+					@Override
+					public int size() {
+
+						return vertexIDs.length;
+					}
+
+					@Override
+					public Iterator<Map.Entry<Integer,Vertex>> iterator() {
+
+						return new Iterator<Map.Entry<Integer,Vertex>>() {
+
+							private int index = 0;
+
+							@Override
+							public boolean hasNext() {
+
+								return index < vertexIDs.length;
+							}
+
+							@Override
+							public Map.Entry<Integer,Vertex> next() {
+
+								if (!hasNext()) {
+									throw new NoSuchElementException();
+								}
+
+								Vertex vertex = makeVertex(index++);
+
+								return new AbstractMap.SimpleImmutableEntry<Integer,Vertex>(
+										vertex.getVertexID(), vertex);
+							}
+						};
+					}
+				};
+			}
+		};
+	}
+}
@@ -0,0 +1,329 @@
+/** The condensation of a graph: one vertex per strongly connected component,
+ * and an edge from one component to another wherever the graph has at
+ * least one edge between their members.
+ *
+ * The condensation is always a DAG.  Each of its edges keeps its
+ * multiplicity (how many of the graph's edges it stands for), and each
+ * component keeps a few aggregates of its members: its size and, for graphs
+ * of users and posts, how many users and posts it has and the posts' total
+ * score.
+ *
+ * Everything is found in one pass over the graph's adjacency, and kept in
+ * int arrays indexed by component number (see SCCResult): the DAG's edges
+ * are stored per source component like CompactAdjacency stores a graph's.
+ * A topological order of the components is ready for dynamic programming
+ * over the DAG (e.g. how much of the graph each component can reach).
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+import java.util.Arrays;
+
+public class Condensation {
+
+	private final SCCResult sccs;
+	private final int numComponents;
+
+	private final int[] userCounts;
+	private final int[] postCounts;
+	private final long[] totalScores;
+
+	// component c's successors are successors[offsets[c]..offsets[c+1]-1]
+	private final int[] offsets;
+	private final int[] successors;
+	private final int[] multiplicities;
+	private final int[] inDegrees;
+	private final long numCrossEdges;
+
+	private final int[] topologicalOrder;
+
+	private Condensation(SCCResult sccs, int[] userCounts, int[] postCounts,
+						 long[] totalScores, int[] offsets, int[] successors,
+						 int[] multiplicities, long numCrossEdges) {
+
+		this.sccs = sccs;
+		this.numComponents = sccs.getNumComponents();
+		this.userCounts = userCounts;
+		this.postCounts = postCounts;
+		this.totalScores = totalScores;
+		this.offsets = offsets;
+		this.successors = successors;
+		this.multiplicities = multiplicities;
+		this.numCrossEdges = numCrossEdges;
+
+		this.inDegrees = new int[numComponents];
+		for (int successor : successors) {
+			inDegrees[successor]++;
+		}
+
+		this.topologicalOrder = sortTopologically();
+	}
+
+	/** Condense a graph.
+	 *
+	 * @param sccs are the graph's components, from either SCC search
+	 * @param adjacency is the graph's adjacency, indexed like sccs
+	 * @param vertices are the graph's vertices by dense index, to count
+	 * users and posts and sum scores from, or null to skip those aggregates
+	 */
+	static Condensation build(SCCResult sccs, IndexedAdjacency adjacency,
+							  Vertex[] vertices) {
+
+		int numComponents = sccs.getNumComponents();
+		int[] componentOf = sccs.getComponentLabels();
+
+		int[] userCounts = new int[numComponents];
+		int[] postCounts = new int[numComponents];
+		long[] totalScores = new long[numComponents];
+
+		// edges between components, as (source, target) pairs
+		IntList sources = new IntList();
+		IntList targets = new IntList();
+
+		for (int v = 0; v < adjacency.size(); v++) {
+
+			int component = componentOf[v];
+
+			if (vertices != null) {
+				if (vertices[v] instanceof UserNode) {
+					userCounts[component]++;
+				}
+				else if (vertices[v] instanceof Post) {
+					postCounts[component]++;
+					totalScores[component] += ((Post)vertices[v]).getRawScore();
+				}
+			}
+
+			for (int i = 0; i < adjacency.outDegree(v); i++) {
+				int neighborComponent = componentOf[adjacency.outNeighbor(v, i)];
+				if (neighborComponent != component) {
+					sources.addInt(component);
+					targets.addInt(neighborComponent);
+				}
+			}
+		}
+
+		// group the pairs by source component (counting sort)
+		int numPairs = sources.size();
+		int[] start = new int[numComponents + 1];
+		for (int p = 0; p < numPairs; p++) {
+			start[sources.getInt(p) + 1]++;
+		}
+		for (int c = 0; c < numComponents; c++) {
+			start[c + 1] += start[c];
+		}
+
+		int[] grouped = new int[numPairs];
+		int[] filled = Arrays.copyOf(start, numComponents);
+		for (int p = 0; p < numPairs; p++) {
+			grouped[filled[sources.getInt(p)]++] = targets.getInt(p);
+		}
+		sources = null;
+		targets = null;
+
+		// merge repeated targets of each source into one edge
+		int[] offsets = new int[numComponents + 1];
+		IntList successors = new IntList();
+		// there are at most numPairs merged edges
+		int[] multiplicities = new int[numPairs];
+		// position in successors of target t for the current source
+		int[] position = new int[numComponents];
+		Arrays.fill(position, -1);
+
+		for (int c = 0; c < numComponents; c++) {
+
+			offsets[c] = successors.size();
+
+			for (int p = start[c]; p < start[c + 1]; p++) {
+				int target = grouped[p];
+				if (position[target] < offsets[c]) {
+					position[target] = successors.size();
+					successors.addInt(target);
+				}
+				multiplicities[position[target]]++;
+			}
+		}
+		offsets[numComponents] = successors.size();
+
+		return new Condensation(sccs, userCounts, postCounts, totalScores,
+								offsets, successors.toIntArray(),
+								Arrays.copyOf(multiplicities, successors.size()),
+								numPairs);
+	}
+
+	// Kahn's algorithm; works whichever way the components are numbered
+	private int[] sortTopologically() {
+
+		int[] order = new int[numComponents];
+		int[] remainingIn = Arrays.copyOf(inDegrees, numComponents);
+		int head = 0;
+		int tail = 0;
+
+		for (int c = 0; c < numComponents; c++) {
+			if (remainingIn[c] == 0) {
+				order[tail++] = c;
+			}
+		}
+
+		while (head < tail) {
+			int c = order[head++];
+			for (int e = offsets[c]; e < offsets[c + 1]; e++) {
+				if (--remainingIn[successors[e]] == 0) {
+					order[tail++] = successors[e];
+				}
+			}
+		}
+
+		return order;
+	}
+
+	public SCCResult getSCCs() {
+
+		return sccs;
+	}
+
+	public int getNumComponents() {
+
+		return numComponents;
+	}
+
+	public int getComponentSize(int component) {
+
+		return sccs.getComponentSize(component);
+	}
+
+	/** Get the number of UserNodes in a component (0 for plain graphs).
+	 */
+	public int getUserCount(int component) {
+
+		checkComponent(component);
+
+		return userCounts[component];
+	}
+
+	/** Get the number of Posts (questions, answers and comments) in a
+	 * component (0 for plain graphs).
+	 */
+	public int getPostCount(int component) {
+
+		checkComponent(component);
+
+		return postCounts[component];
+	}
+
+	/** Get the sum of the raw scores of the Posts in a component.
+	 */
+	public long getTotalScore(int component) {
+
+		checkComponent(component);
+
+		return totalScores[component];
+	}
+
+	/** Get the number of edges in the condensation (each counted once,
+	 * whatever its multiplicity).
+	 */
+	public int getNumEdges() {
+
+		return successors.length;
+	}
+
+	/** Get the number of the graph's edges that go between components,
+	 * which is the sum of the condensation's edge multiplicities.
+	 */
+	public long getNumCrossEdges() {
+
+		return numCrossEdges;
+	}
+
+	public int getOutDegree(int component) {
+
+		checkComponent(component);
+
+		return offsets[component + 1] - offsets[component];
+	}
+
+	public int getInDegree(int component) {
+
+		checkComponent(component);
+
+		return inDegrees[component];
+	}
+
+	/** Get the component at the end of one edge out of a component.
+	 *
+	 * @param i is which edge, from 0 to getOutDegree(component)-1
+	 */
+	public int getSuccessor(int component, int i) {
+
+		checkEdge(component, i);
+
+		return successors[offsets[component] + i];
+	}
+
+	/** Get how many of the graph's edges one edge out of a component
+	 * stands for.
+	 *
+	 * @param i is which edge, from 0 to getOutDegree(component)-1
+	 */
+	public int getMultiplicity(int component, int i) {
+
+		checkEdge(component, i);
+
+		return multiplicities[offsets[component] + i];
+	}
+
+	/** Get the multiplicity of the edge between two components.
+	 *
+	 * @return the number of the graph's edges from a member of source to a
+	 * member of target, or 0 if there are none
+	 */
+	public int getMultiplicityBetween(int source, int target) {
+
+		checkComponent(source);
+
+		for (int e = offsets[source]; e < offsets[source + 1]; e++) {
+			if (successors[e] == target) {
+				return multiplicities[e];
+			}
+		}
+
+		return 0;
+	}
+
+	/** Get the components one edge out of a component leads to.
+	 */
+	public int[] getSuccessors(int component) {
+
+		checkComponent(component);
+
+		return Arrays.copyOfRange(successors, offsets[component],
+								  offsets[component + 1]);
+	}
+
+	/** Get the components in a topological order: every edge of the
+	 * condensation goes from a component to one later in the order.
+	 */
+	public int[] getTopologicalOrder() {
+
+		return Arrays.copyOf(topologicalOrder, numComponents);
+	}
+
+	private void checkComponent(int component) {
+
+		if (component < 0 || component >= numComponents) {
+			throw new IllegalArgumentException("No component " + component
+					+ " (there are " + numComponents + ")");
+		}
+	}
+
+	private void checkEdge(int component, int i) {
+
+		if (i < 0 || i >= getOutDegree(component)) {
+			throw new IndexOutOfBoundsException("Edge " + i + " of component "
+					+ component + ", out degree " + getOutDegree(component));
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/** Egonet extraction from a CSR graph by sorted adjacency intersection.
+ *
+ * CompactAdjacency keeps each vertex's out neighbors sorted, so the center
+ * c's neighbors N(c) are a sorted array, and each egonet vertex u's edges
+ * within the egonet are its out neighbors that are also in N(c): a sorted
+ * intersection, done by merging the two arrays, or by binary searching
+ * one in the other when one is much shorter.  Each intersection comes out
+ * sorted and already in the egonet's own dense indices, so the egonet is
+ * written straight into a small CSR, with no sets, maps or Vertex objects.
+ *
+ * The egonet has the same vertices and edges as CapGraph.getEgonet() on
+ * an unfrozen graph (c, N(c), the edges from c and the edges between
+ * vertices of N(c)), without repeated edges.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+import java.util.Arrays;
+
+final class EgonetExtractor {
+
+	private final CompactAdjacency graph;
+
+	EgonetExtractor(CompactAdjacency graph) {
+
+		this.graph = graph;
+	}
+
+	/** Extract the egonet of the vertex at an index.
+	 */
+	CompactAdjacency extract(int centerIndex) {
+
+		int[] offsets = graph.offsets;
+		int[] neighbors = graph.neighbors;
+
+		// N(c), sorted, without repeats
+		int[] centerNeighbors = distinct(neighbors, offsets[centerIndex],
+										 offsets[centerIndex + 1]);
+
+		// the egonet's vertices: N(c) plus c, in index order
+		int[] members;
+		int centerPosition = Arrays.binarySearch(centerNeighbors, centerIndex);
+		if (centerPosition >= 0) {
+			members = centerNeighbors;
+		}
+		else {
+			centerPosition = -centerPosition - 1;
+			members = new int[centerNeighbors.length + 1];
+			System.arraycopy(centerNeighbors, 0, members, 0, centerPosition);
+			members[centerPosition] = centerIndex;
+			System.arraycopy(centerNeighbors, centerPosition, members,
+							 centerPosition + 1,
+							 centerNeighbors.length - centerPosition);
+		}
+
+		// local index of each vertex of N(c), in members
+		int[] local = new int[centerNeighbors.length];
+		for (int i = 0, j = 0; i < centerNeighbors.length; i++) {
+			while (members[j] != centerNeighbors[i]) {
+				j++;
+			}
+			local[i] = j;
+		}
+
+		int[] egonetOffsets = new int[members.length + 1];
+		IntList egonetNeighbors = new IntList();
+
+		for (int u = 0; u < members.length; u++) {
+
+			egonetOffsets[u] = egonetNeighbors.size();
+
+			intersect(neighbors, offsets[members[u]], offsets[members[u] + 1],
+					  centerNeighbors, local, egonetNeighbors);
+		}
+		egonetOffsets[members.length] = egonetNeighbors.size();
+
+		int[] egonetIDs = new int[members.length];
+		for (int u = 0; u < members.length; u++) {
+			egonetIDs[u] = graph.vertexIDs[members[u]];
+		}
+
+		return new CompactAdjacency(egonetIDs, egonetOffsets,
+									egonetNeighbors.toIntArray());
+	}
+
+	/** Add to out the local index of each vertex in both row[start, end)
+	 * and the sorted, distinct set, once each.
+	 */
+	private static void intersect(int[] row, int start, int end, int[] set,
+								  int[] local, IntList out) {
+
+		int rowLength = end - start;
+		int previous = -1;
+
+		// binary search the row's vertices when the set is much longer
+		if ((long)rowLength * 32 < set.length) {
+			for (int e = start; e < end; e++) {
+				if (row[e] != previous) {
+					int found = Arrays.binarySearch(set, row[e]);
+					if (found >= 0) {
+						out.addInt(local[found]);
+					}
+					previous = row[e];
+				}
+			}
+			return;
+		}
+
+		int i = 0;
+		for (int e = start; e < end && i < set.length; e++) {
+			if (row[e] == previous) {
+				continue;
+			}
+			previous = row[e];
+			while (i < set.length && set[i] < row[e]) {
+				i++;
+			}
+			if (i < set.length && set[i] == row[e]) {
+				out.addInt(local[i]);
+				i++;
+			}
+		}
+	}
+
+	// the distinct values of a sorted run of an array
+	private static int[] distinct(int[] sorted, int start, int end) {
+
+		int[] values = new int[end - start];
+		int count = 0;
+
+		for (int e = start; e < end; e++) {
+			if (count == 0 || sorted[e] != values[count - 1]) {
+				values[count++] = sorted[e];
+			}
+		}
+
+		return count == values.length ? values : Arrays.copyOf(values, count);
+	}
+}
@@ -0,0 +1,258 @@
+/** Statistics of the egonet of every vertex in a StackExchangeTopicGraph.
+ *
+ * Each statistic is an int array indexed by the graph's dense vertex index
+ * (see VertexIndex): the egonet's number of vertices, number of (directed)
+ * edges, and number of users.  A post's egonet is its author's, so posts
+ * get their author's numbers; a post whose author is not in the graph gets
+ * zeros.
+ *
+ * The egonets are found with a fork-join pool, one task per batch of
+ * users.  Each thread reuses one bit set for membership, so no egonet
+ * graph or view is ever built.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class EgonetStats {
+
+	// users per task
+	private static final int BATCH_SIZE = 64;
+
+	private final VertexIndex vertexIndex;
+	private final int[] vertexCounts;
+	private final int[] edgeCounts;
+	private final int[] userCounts;
+
+	private EgonetStats(VertexIndex vertexIndex, int[] vertexCounts,
+						int[] edgeCounts, int[] userCounts) {
+
+		this.vertexIndex = vertexIndex;
+		this.vertexCounts = vertexCounts;
+		this.edgeCounts = edgeCounts;
+		this.userCounts = userCounts;
+	}
+
+	static EgonetStats compute(final StackExchangeTopicGraph graph,
+							   int numThreads) {
+
+		if (numThreads < 1) {
+			throw new IllegalArgumentException("Need at least one thread");
+		}
+
+		VertexIndex vertexIndex = graph.getVertexIndex();
+		int n = vertexIndex.size();
+
+		// out edges as dense indices, for counting edges within an egonet
+		final Vertex[] vertices = new Vertex[n];
+		final IntList[] outEdges = new IntList[n];
+		for (int i = 0; i < n; i++) {
+			vertices[i] = graph.getVertices().get(vertexIndex.getVertexID(i));
+			outEdges[i] = new IntList(vertices[i].getOutDegree());
+			for (int j = 0; j < vertices[i].getOutDegree(); j++) {
+				outEdges[i].addInt(vertexIndex.indexOf(vertices[i].getOutEdge(j)));
+			}
+		}
+
+		final int[] vertexCounts = new int[n];
+		final int[] edgeCounts = new int[n];
+		final int[] userCounts = new int[n];
+
+		final List<UserNode> users = new ArrayList<UserNode>(graph.getUsers().values());
+		final ThreadLocal<BitSet> scratch = new ThreadLocal<BitSet>() {
+
+			@Override
+			protected BitSet initialValue() {
+
+				return new BitSet(vertices.length);
+			}
+		};
+
+		// each task writes only its own users' entries
+		class UserBatch extends RecursiveAction {
+
+			private static final long serialVersionUID = 1L;
+
+			private final int start;
+			private final int end;
+
+			UserBatch(int start, int end) {
+
+				this.start = start;
+				this.end = end;
+			}
+
+			@Override
+			protected void compute() {
+
+				if (end - start > BATCH_SIZE) {
+					int middle = (start + end) >>> 1;
+					invokeAll(new UserBatch(start, middle),
+							  new UserBatch(middle, end));
+					return;
+				}
+
+				BitSet members = scratch.get();
+
+				for (int u = start; u < end; u++) {
+
+					UserNode user = users.get(u);
+					int center = graph.getVertexIndex().indexOf(user.getVertexID());
+					graph.findEgonetMembers(user, members);
+
+					int numVertices = 0;
+					int numEdges = 0;
+					int numUsers = 0;
+
+					for (int i = members.nextSetBit(0); i >= 0;
+							i = members.nextSetBit(i + 1)) {
+
+						numVertices++;
+						if (vertices[i] instanceof UserNode) {
+							numUsers++;
+						}
+
+						IntList edges = outEdges[i];
+						for (int e = 0; e < edges.size(); e++) {
+							if (members.get(edges.getInt(e))) {
+								numEdges++;
+							}
+						}
+					}
+
+					vertexCounts[center] = numVertices;
+					edgeCounts[center] = numEdges;
+					userCounts[center] = numUsers;
+
+					members.clear();
+				}
+			}
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(numThreads);
+		try {
+			pool.invoke(new UserBatch(0, users.size()));
+		} finally {
+			pool.shutdown();
+		}
+
+		// posts share their author's egonet
+		for (int i = 0; i < n; i++) {
+			if (vertices[i] instanceof Post) {
+				UserNode author = graph.getUsers().get(
+						((Post)vertices[i]).getAuthorUserID());
+				if (author != null) {
+					int authorIndex = vertexIndex.indexOf(author.getVertexID());
+					vertexCounts[i] = vertexCounts[authorIndex];
+					edgeCounts[i] = edgeCounts[authorIndex];
+					userCounts[i] = userCounts[authorIndex];
+				}
+			}
+		}
+
+		return new EgonetStats(vertexIndex, vertexCounts, edgeCounts, userCounts);
+	}
+
+	/** Get the number of vertices in a vertex's egonet.
+	 *
+	 * @param vertexID is the ID of a vertex in the graph
+	 */
+	public int getVertexCount(int vertexID) {
+
+		return vertexCounts[indexOf(vertexID)];
+	}
+
+	/** Get the number of directed edges in a vertex's egonet.
+	 */
+	public int getEdgeCount(int vertexID) {
+
+		return edgeCounts[indexOf(vertexID)];
+	}
+
+	/** Get the number of users in a vertex's egonet.
+	 */
+	public int getUserCount(int vertexID) {
+
+		return userCounts[indexOf(vertexID)];
+	}
+
+	/** Get the density of a vertex's egonet: its edges over the n(n-1)
+	 * directed edges its n vertices could have.
+	 *
+	 * @return the density, or 0 for an egonet of fewer than two vertices
+	 */
+	public double getDensity(int vertexID) {
+
+		return density(indexOf(vertexID));
+	}
+
+	/** Get every vertex's egonet vertex count, by dense index.
+	 */
+	public int[] getVertexCounts() {
+
+		return Arrays.copyOf(vertexCounts, vertexCounts.length);
+	}
+
+	/** Get every vertex's egonet edge count, by dense index.
+	 */
+	public int[] getEdgeCounts() {
+
+		return Arrays.copyOf(edgeCounts, edgeCounts.length);
+	}
+
+	/** Get every vertex's egonet user count, by dense index.
+	 */
+	public int[] getUserCounts() {
+
+		return Arrays.copyOf(userCounts, userCounts.length);
+	}
+
+	/** Get every vertex's egonet density, by dense index.
+	 */
+	public double[] getDensities() {
+
+		double[] densities = new double[vertexCounts.length];
+
+		for (int i = 0; i < densities.length; i++) {
+			densities[i] = density(i);
+		}
+
+		return densities;
+	}
+
+	public VertexIndex getVertexIndex() {
+
+		return vertexIndex.readOnly();
+	}
+
+	private double density(int index) {
+
+		long n = vertexCounts[index];
+
+		if (n < 2) {
+			return 0;
+		}
+
+		return edgeCounts[index] / (double)(n * (n - 1));
+	}
+
+	private int indexOf(int vertexID) {
+
+		int index = vertexIndex.indexOf(vertexID);
+
+		if (index < 0 || index >= vertexCounts.length) {
+			throw new IllegalArgumentException("Vertex " + vertexID
+					+ " is not in the graph");
+		}
+
+		return index;
+	}
+}
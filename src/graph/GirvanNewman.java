@@ -0,0 +1,269 @@
+/** Girvan-Newman community detection.
+ *
+ * Repeatedly removes the edge of highest betweenness (see
+ * BrandesBetweenness), which tends to be an edge between communities, so
+ * the graph falls apart into its communities.  The communities are the
+ * connected components left.  See "Community structure in social and
+ * biological networks", M. Girvan and M. E. J. Newman, 2002.
+ *
+ * Edges are taken as undirected.  Removing an edge only changes the
+ * shortest paths within its own component, so only that component's
+ * betweenness is found again: its edges' scores are cleared, and the
+ * searches are run from its vertices only.  Once the graph has broken
+ * up, each removal costs a search of one small component rather than of
+ * the whole graph.
+ *
+ * When looking for the split with the highest modularity, removal stops
+ * once no later split can beat the best one found.  Splitting further
+ * only moves edges from inside communities to between them, and can at
+ * best shrink the expected-edges term to what it is with every vertex
+ * alone, so the fraction of edge ends still inside a community, less
+ * that singleton term, bounds the modularity of every later split.
+ *
+ * Scores within a rounding error of each other are ties, and ties go to
+ * the edge with the lowest ID, so a graph gets the same communities
+ * however many threads search it.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+final class GirvanNewman {
+
+	// scores this close (relatively) are ties, whatever order threads
+	// added them up in
+	private static final double TIE_TOLERANCE = 1e-9;
+
+	private GirvanNewman() {
+
+	}
+
+	/** Find the communities of a graph.
+	 *
+	 * @param numCommunities is the number of communities to stop at, or 0
+	 * to keep the split with the highest modularity
+	 * @param numThreads is the number of threads to search with
+	 */
+	static GirvanNewmanResult findCommunities(IndexedAdjacency graph,
+											  VertexIndex vertexIndex,
+											  int numCommunities,
+											  int numThreads) {
+
+		if (numThreads < 1) {
+			throw new IllegalArgumentException("Need at least one thread");
+		}
+		if (numCommunities < 0) {
+			throw new IllegalArgumentException("Cannot find " + numCommunities
+					+ " communities");
+		}
+
+		BrandesBetweenness engine = BrandesBetweenness.undirected(graph);
+		int n = engine.n;
+
+		// the unweighted undirected graph, for modularity
+		double[] ones = new double[engine.outNeighbors.length];
+		Arrays.fill(ones, 1);
+		WeightedAdjacency weighted = new WeightedAdjacency(engine.outOffsets,
+				engine.outNeighbors, ones);
+
+		int[] componentOf = new int[n];
+		int numComponents = labelComponents(engine, componentOf);
+
+		int[] bestLabels = componentOf.clone();
+		int bestNumComponents = numComponents;
+		double bestModularity = Louvain.modularity(weighted, componentOf);
+		int edgesRemoved = 0;
+		int bestEdgesRemoved = 0;
+
+		// edge ends inside a component (every edge's, to begin with), and
+		// the expected-edges term with every vertex on its own
+		double internalWeight = weighted.totalWeight;
+		double singletonTerm = 0;
+		for (int i = 0; i < n; i++) {
+			double share = weighted.degrees[i] / weighted.totalWeight;
+			singletonTerm += share*share;
+		}
+
+		ForkJoinPool pool = numThreads > 1 ? new ForkJoinPool(numThreads) : null;
+
+		try {
+			double[] betweenness = new double[engine.numEdges];
+			int[] sources = new int[n];
+			for (int i = 0; i < n; i++) {
+				sources[i] = i;
+			}
+			engine.accumulate(sources, n, betweenness, null, pool);
+
+			int[] members = new int[n];
+			int[] queue = new int[n];
+
+			while (edgesRemoved < engine.numEdges
+					&& (numCommunities == 0 || numComponents < numCommunities)) {
+
+				if (numCommunities == 0 && internalWeight / weighted.totalWeight
+						- singletonTerm <= bestModularity) {
+					// no later split can have a higher modularity
+					break;
+				}
+
+				int highest = -1;
+				for (int e = 0; e < engine.numEdges; e++) {
+					if (!engine.isRemoved(e) && (highest < 0 || betweenness[e]
+							> betweenness[highest] * (1 + TIE_TOLERANCE))) {
+						highest = e;
+					}
+				}
+
+				engine.removeEdge(highest);
+				edgesRemoved++;
+
+				int u = engine.edgeFrom[highest];
+				int v = engine.edgeTo[highest];
+				int oldComponent = componentOf[u];
+
+				// u's side keeps the component's number; v's side, if now
+				// cut off, gets a new one
+				int numMembers = 0;
+				int reached = search(engine, u, oldComponent, -1, componentOf, queue);
+				System.arraycopy(queue, 0, members, numMembers, reached);
+				numMembers += reached;
+				if (!contains(queue, reached, v)) {
+					reached = search(engine, v, oldComponent, numComponents,
+									 componentOf, queue);
+					System.arraycopy(queue, 0, members, numMembers, reached);
+					numMembers += reached;
+					numComponents++;
+
+					// edges (removed or not) between the two sides are no
+					// longer inside a component; each has two ends
+					for (int k = 0; k < reached; k++) {
+						int w = queue[k];
+						for (int j = engine.outOffsets[w]; j < engine.outOffsets[w + 1]; j++) {
+							if (componentOf[engine.outNeighbors[j]] == oldComponent) {
+								internalWeight -= 2;
+							}
+						}
+					}
+
+					double modularity = Louvain.modularity(weighted, componentOf);
+					if (modularity > bestModularity) {
+						bestModularity = modularity;
+						bestLabels = componentOf.clone();
+						bestNumComponents = numComponents;
+						bestEdgesRemoved = edgesRemoved;
+					}
+				}
+
+				// only the old component's paths changed
+				for (int k = 0; k < numMembers; k++) {
+					int w = members[k];
+					for (int j = engine.outOffsets[w]; j < engine.outOffsets[w + 1]; j++) {
+						betweenness[engine.outEdges[j]] = 0;
+					}
+				}
+				engine.accumulate(members, numMembers, betweenness, null, pool);
+			}
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
+
+		if (numCommunities > 0) {
+			bestLabels = componentOf;
+			bestNumComponents = numComponents;
+			bestModularity = Louvain.modularity(weighted, componentOf);
+			bestEdgesRemoved = edgesRemoved;
+		}
+
+		return new GirvanNewmanResult(vertexIndex, renumber(bestLabels),
+				bestNumComponents, bestModularity, bestEdgesRemoved);
+	}
+
+	// number the connected components, by breadth-first search
+	private static int labelComponents(BrandesBetweenness engine,
+									   int[] componentOf) {
+
+		Arrays.fill(componentOf, -1);
+		int[] queue = new int[engine.n];
+		int numComponents = 0;
+
+		for (int i = 0; i < engine.n; i++) {
+			if (componentOf[i] < 0) {
+				search(engine, i, -1, numComponents++, componentOf, queue);
+			}
+		}
+
+		return numComponents;
+	}
+
+	/** Breadth-first search over the edges left, from start, through the
+	 * vertices labelled from, relabelling them to (or just listing them if
+	 * to is -1).
+	 *
+	 * @param queue gets the vertices reached
+	 * @return the number of vertices reached
+	 */
+	private static int search(BrandesBetweenness engine, int start, int from,
+							  int to, int[] componentOf, int[] queue) {
+
+		int reached = 0;
+		queue[reached++] = start;
+		boolean relabel = to >= 0;
+		// while only listing, mark reached vertices by flipping their label
+		int mark = relabel ? to : -2 - from;
+		componentOf[start] = mark;
+
+		for (int next = 0; next < reached; next++) {
+			int v = queue[next];
+			for (int k = engine.outOffsets[v]; k < engine.outOffsets[v + 1]; k++) {
+				int w = engine.outNeighbors[k];
+				if (componentOf[w] == from && !engine.isRemoved(engine.outEdges[k])) {
+					componentOf[w] = mark;
+					queue[reached++] = w;
+				}
+			}
+		}
+
+		if (!relabel) {
+			for (int k = 0; k < reached; k++) {
+				componentOf[queue[k]] = from;
+			}
+		}
+
+		return reached;
+	}
+
+	private static boolean contains(int[] values, int length, int value) {
+
+		for (int k = 0; k < length; k++) {
+			if (values[k] == value) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	// number components 0..k-1 in order of their first vertex
+	private static int[] renumber(int[] labels) {
+
+		int[] newNumber = new int[labels.length];
+		Arrays.fill(newNumber, -1);
+		int[] renumbered = new int[labels.length];
+		int numComponents = 0;
+
+		for (int i = 0; i < labels.length; i++) {
+			if (newNumber[labels[i]] < 0) {
+				newNumber[labels[i]] = numComponents++;
+			}
+			renumbered[i] = newNumber[labels[i]];
+		}
+
+		return renumbered;
+	}
+}
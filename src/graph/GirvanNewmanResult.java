@@ -0,0 +1,96 @@
+/** The communities Girvan-Newman community detection finds in a graph.
+ *
+ * Every vertex gets the number of its community, in an int array indexed
+ * by the graph's dense vertex index, with communities numbered
+ * 0..getNumCommunities()-1 in order of their lowest dense index.  Each
+ * community is a connected component of the graph left after removing
+ * getEdgesRemoved() edges (see GirvanNewman).
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+import java.util.Arrays;
+
+public class GirvanNewmanResult {
+
+	private final VertexIndex vertexIndex;
+	private final int[] communityOf;
+	private final int[] communitySizes;
+	private final double modularity;
+	private final int edgesRemoved;
+
+	GirvanNewmanResult(VertexIndex vertexIndex, int[] communityOf,
+					   int numCommunities, double modularity,
+					   int edgesRemoved) {
+
+		this.vertexIndex = vertexIndex;
+		this.communityOf = communityOf;
+		this.communitySizes = new int[numCommunities];
+		for (int community : communityOf) {
+			communitySizes[community]++;
+		}
+		this.modularity = modularity;
+		this.edgesRemoved = edgesRemoved;
+	}
+
+	public int getNumCommunities() {
+
+		return communitySizes.length;
+	}
+
+	/** Get the modularity of the communities, in the whole graph with
+	 * every edge taken as undirected.
+	 */
+	public double getModularity() {
+
+		return modularity;
+	}
+
+	/** Get the number of (undirected) edges removed to find the
+	 * communities.
+	 */
+	public int getEdgesRemoved() {
+
+		return edgesRemoved;
+	}
+
+	/** Get the community of a vertex.
+	 *
+	 * @param vertexID is the ID of a vertex in the graph
+	 */
+	public int getCommunityOf(int vertexID) {
+
+		int index = vertexIndex.indexOf(vertexID);
+
+		if (index < 0 || index >= communityOf.length) {
+			throw new IllegalArgumentException("Vertex " + vertexID
+					+ " is not in the graph");
+		}
+
+		return communityOf[index];
+	}
+
+	/** Get the community of every vertex, indexed by the graph's dense
+	 * vertex index (see getVertexIndex()).
+	 */
+	public int[] getCommunityLabels() {
+
+		return Arrays.copyOf(communityOf, communityOf.length);
+	}
+
+	public int getCommunitySize(int community) {
+
+		if (community < 0 || community >= communitySizes.length) {
+			throw new IllegalArgumentException("No community " + community);
+		}
+
+		return communitySizes[community];
+	}
+
+	public VertexIndex getVertexIndex() {
+
+		return vertexIndex.readOnly();
+	}
+}
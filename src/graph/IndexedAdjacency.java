@@ -0,0 +1,26 @@
+/** Out edges addressed by dense vertex index.
+ * 
+ * Lets array-based algorithms (e.g. TarjanSCC) run on any of the graph
+ * representations: a frozen graph's CSR arrays, or a graph's vertex map
+ * through its VertexIndex.
+ * 
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+interface IndexedAdjacency {
+
+	/** The number of vertices, whose indices are 0..size()-1.
+	 */
+	int size();
+
+	int outDegree(int index);
+
+	/** The index of the vertex at the end of one out edge of a vertex.
+	 * 
+	 * @param index is the index of the vertex
+	 * @param i is which out edge, from 0 to outDegree(index)-1
+	 */
+	int outNeighbor(int index, int i);
+}
@@ -0,0 +1,156 @@
+/** A growable list of primitive ints.
+ *
+ * Used for vertices' out edges, so each edge costs 4 bytes in one array
+ * instead of a reference plus a boxed Integer.  getInt and addInt never
+ * box; the List<Integer> methods are still there (and read and write the
+ * same array) for code that wants a list.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+public class IntList extends AbstractList<Integer> implements RandomAccess {
+
+	private static final int DEFAULT_CAPACITY = 4;
+	private static final int[] EMPTY = new int[0];
+
+	private int[] elements;
+	private int size;
+
+	public IntList() {
+
+		// most vertices get no edges or a few, so wait for the first one
+		this.elements = EMPTY;
+		this.size = 0;
+	}
+
+	public IntList(int initialCapacity) {
+
+		this.elements = initialCapacity == 0 ? EMPTY : new int[initialCapacity];
+		this.size = 0;
+	}
+
+	/** Append an int without boxing it.
+	 */
+	public void addInt(int value) {
+
+		if (size == elements.length) {
+			grow(size + 1);
+		}
+
+		elements[size++] = value;
+		modCount++;
+	}
+
+	/** Get the int at an index without boxing it.
+	 */
+	public int getInt(int index) {
+
+		if (index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index
+					+ ", size " + size);
+		}
+
+		return elements[index];
+	}
+
+	public boolean containsInt(int value) {
+
+		for (int i = 0; i < size; i++) {
+			if (elements[i] == value) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/** Copy the ints into a new array of exactly size() elements.
+	 */
+	public int[] toIntArray() {
+
+		return Arrays.copyOf(elements, size);
+	}
+
+	/** Drop unused capacity, e.g. once a graph is done loading.
+	 */
+	public void trimToSize() {
+
+		if (size < elements.length) {
+			elements = size == 0 ? EMPTY : Arrays.copyOf(elements, size);
+		}
+	}
+
+	@Override
+	public int size() {
+
+		return size;
+	}
+
+	@Override
+	public Integer get(int index) {
+
+		return getInt(index);
+	}
+
+	@Override
+	public Integer set(int index, Integer value) {
+
+		int old = getInt(index);
+		elements[index] = value;
+
+		return old;
+	}
+
+	@Override
+	public void add(int index, Integer value) {
+
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index " + index
+					+ ", size " + size);
+		}
+
+		if (size == elements.length) {
+			grow(size + 1);
+		}
+
+		System.arraycopy(elements, index, elements, index + 1, size - index);
+		elements[index] = value;
+		size++;
+		modCount++;
+	}
+
+	@Override
+	public Integer remove(int index) {
+
+		int old = getInt(index);
+
+		System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+		size--;
+		modCount++;
+
+		return old;
+	}
+
+	@Override
+	public void clear() {
+
+		size = 0;
+		modCount++;
+	}
+
+	private void grow(int minCapacity) {
+
+		int newCapacity = Math.max(DEFAULT_CAPACITY, elements.length * 2);
+		if (newCapacity < minCapacity) {
+			newCapacity = minCapacity;
+		}
+
+		elements = Arrays.copyOf(elements, newCapacity);
+	}
+}
@@ -0,0 +1,305 @@
+/** The Louvain method for detecting communities, run in-process.
+ *
+ * Described here, with the C++ code StackExchangeTopicGraph.runLouvain()
+ * runs:
+ * https://perso.uclouvain.be/vincent.blondel/research/louvain.html
+ *
+ * Each level starts with every vertex of a WeightedAdjacency in its own
+ * community, then moves vertices one at a time to the neighboring
+ * community that most increases modularity, in passes over all vertices,
+ * until a pass moves none (or gains almost nothing).  The communities then
+ * become the vertices of the next level's graph (WeightedAdjacency
+ * aggregate()).  Levels stop when one no longer increases modularity.
+ *
+ * Vertices are visited in index order, not at random as in the C++ code,
+ * so a graph always gets the same communities.  ParallelLouvain runs the
+ * same two phases with several threads.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+final class Louvain {
+
+	// least increase in modularity worth another pass or level
+	static final double MIN_GAIN = 0.000001;
+
+	private Louvain() {
+
+	}
+
+	/** Find the community hierarchy of a graph.
+	 *
+	 * @param graph is the undirected form of a graph, with the same dense
+	 * indices as vertexIndex
+	 */
+	static LouvainHierarchy findCommunities(WeightedAdjacency graph,
+											VertexIndex vertexIndex) {
+
+		return findCommunities(graph, vertexIndex, null);
+	}
+
+	/** Find the community hierarchy of a graph using several threads, for
+	 * the local moves and for building each level's graph (see
+	 * ParallelLouvain).
+	 *
+	 * @param numThreads is the number of threads to use
+	 */
+	static LouvainHierarchy findCommunities(WeightedAdjacency graph,
+											VertexIndex vertexIndex,
+											int numThreads) {
+
+		if (numThreads < 1) {
+			throw new IllegalArgumentException("Need at least one thread");
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(numThreads);
+		try {
+			return findCommunities(graph, vertexIndex, pool);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	// sequential if pool is null
+	private static LouvainHierarchy findCommunities(WeightedAdjacency graph,
+													VertexIndex vertexIndex,
+													ForkJoinPool pool) {
+
+		int n = graph.size();
+
+		List<int[]> levelLabels = new ArrayList<int[]>();
+		List<Integer> levelSizes = new ArrayList<Integer>();
+		List<Double> levelModularities = new ArrayList<Double>();
+
+		// level 0: every vertex on its own
+		int[] labels = new int[n];
+		for (int i = 0; i < n; i++) {
+			labels[i] = i;
+		}
+		double modularity = modularity(graph, labels);
+		levelLabels.add(labels);
+		levelSizes.add(n);
+		levelModularities.add(modularity);
+
+		WeightedAdjacency level = graph;
+
+		while (graph.totalWeight > 0) {
+
+			int[] communityOf = new int[level.size()];
+			boolean moved = pool == null
+					? moveVertices(level, communityOf)
+					: ParallelLouvain.moveVertices(pool, level, communityOf);
+			if (!moved) {
+				break;
+			}
+			int numCommunities = renumber(communityOf);
+
+			WeightedAdjacency nextLevel = pool == null
+					? level.aggregate(communityOf, numCommunities)
+					: ParallelLouvain.aggregate(pool, level, communityOf,
+												numCommunities);
+			double nextModularity = modularity(nextLevel, null);
+			if (nextModularity - modularity <= MIN_GAIN) {
+				break;
+			}
+
+			// each original vertex's community, through its last one
+			int[] nextLabels = new int[n];
+			for (int i = 0; i < n; i++) {
+				nextLabels[i] = communityOf[labels[i]];
+			}
+
+			labels = nextLabels;
+			modularity = nextModularity;
+			level = nextLevel;
+			levelLabels.add(labels);
+			levelSizes.add(numCommunities);
+			levelModularities.add(modularity);
+		}
+
+		int[] numCommunities = new int[levelSizes.size()];
+		double[] modularities = new double[levelSizes.size()];
+		for (int l = 0; l < numCommunities.length; l++) {
+			numCommunities[l] = levelSizes.get(l);
+			modularities[l] = levelModularities.get(l);
+		}
+
+		return new LouvainHierarchy(vertexIndex,
+				levelLabels.toArray(new int[levelLabels.size()][]),
+				numCommunities, modularities);
+	}
+
+	/** One level's local moves.
+	 *
+	 * @param communityOf gets the community of every vertex, by the index
+	 * of one of its vertices
+	 * @return whether any vertex moved
+	 */
+	private static boolean moveVertices(WeightedAdjacency graph, int[] communityOf) {
+
+		int n = graph.size();
+		double totalWeight = graph.totalWeight;
+
+		// each community's total degree, and weight of edges within it
+		// (counted from both ends)
+		double[] communityDegrees = new double[n];
+		double[] communityInternal = new double[n];
+		double[] loops = new double[n];
+		for (int i = 0; i < n; i++) {
+			communityOf[i] = i;
+			loops[i] = graph.loopWeight(i);
+			communityDegrees[i] = graph.degrees[i];
+			communityInternal[i] = loops[i];
+		}
+
+		// weight from the vertex being moved to each community next to it,
+		// or -1 if not next to it
+		double[] weightTo = new double[n];
+		Arrays.fill(weightTo, -1);
+		int[] nextTo = new int[n];
+
+		double modularity = modularity(communityDegrees, communityInternal, totalWeight);
+		boolean moved = false;
+		int moves;
+
+		do {
+			moves = 0;
+
+			for (int i = 0; i < n; i++) {
+
+				int community = communityOf[i];
+				double degree = graph.degrees[i];
+
+				int numNextTo = 0;
+				nextTo[numNextTo++] = community;
+				weightTo[community] = 0;
+				for (int e = graph.offsets[i]; e < graph.offsets[i + 1]; e++) {
+					int neighbor = graph.neighbors[e];
+					if (neighbor != i) {
+						int neighborCommunity = communityOf[neighbor];
+						if (weightTo[neighborCommunity] < 0) {
+							weightTo[neighborCommunity] = 0;
+							nextTo[numNextTo++] = neighborCommunity;
+						}
+						weightTo[neighborCommunity] += graph.weights[e];
+					}
+				}
+
+				// take it out of its community
+				communityDegrees[community] -= degree;
+				communityInternal[community] -= 2*weightTo[community] + loops[i];
+
+				// the gain of joining a community, up to a constant factor
+				int best = community;
+				double bestGain = weightTo[community]
+						- communityDegrees[community]*degree/totalWeight;
+				for (int k = 1; k < numNextTo; k++) {
+					int candidate = nextTo[k];
+					double gain = weightTo[candidate]
+							- communityDegrees[candidate]*degree/totalWeight;
+					if (gain > bestGain) {
+						best = candidate;
+						bestGain = gain;
+					}
+				}
+
+				communityOf[i] = best;
+				communityDegrees[best] += degree;
+				communityInternal[best] += 2*weightTo[best] + loops[i];
+				if (best != community) {
+					moves++;
+				}
+
+				for (int k = 0; k < numNextTo; k++) {
+					weightTo[nextTo[k]] = -1;
+				}
+			}
+
+			double passModularity = modularity(communityDegrees,
+					communityInternal, totalWeight);
+			if (moves > 0) {
+				moved = true;
+			}
+			if (passModularity - modularity <= MIN_GAIN) {
+				break;
+			}
+			modularity = passModularity;
+
+		} while (moves > 0);
+
+		return moved;
+	}
+
+	/** Renumber communities 0..k-1, in order of their first vertex.
+	 *
+	 * @return k
+	 */
+	private static int renumber(int[] communityOf) {
+
+		int[] newNumber = new int[communityOf.length];
+		Arrays.fill(newNumber, -1);
+		int numCommunities = 0;
+
+		for (int i = 0; i < communityOf.length; i++) {
+			if (newNumber[communityOf[i]] < 0) {
+				newNumber[communityOf[i]] = numCommunities++;
+			}
+			communityOf[i] = newNumber[communityOf[i]];
+		}
+
+		return numCommunities;
+	}
+
+	/** The modularity of a graph's vertices split into communities.
+	 *
+	 * @param communityOf is the community, 0..size()-1, of every vertex,
+	 * or null for every vertex on its own
+	 */
+	static double modularity(WeightedAdjacency graph, int[] communityOf) {
+
+		int n = graph.size();
+		double[] communityDegrees = new double[n];
+		double[] communityInternal = new double[n];
+
+		for (int i = 0; i < n; i++) {
+			int community = communityOf == null ? i : communityOf[i];
+			communityDegrees[community] += graph.degrees[i];
+			for (int e = graph.offsets[i]; e < graph.offsets[i + 1]; e++) {
+				int neighbor = graph.neighbors[e];
+				if ((communityOf == null ? neighbor : communityOf[neighbor])
+						== community) {
+					communityInternal[community] += graph.weights[e];
+				}
+			}
+		}
+
+		return modularity(communityDegrees, communityInternal, graph.totalWeight);
+	}
+
+	private static double modularity(double[] communityDegrees,
+									 double[] communityInternal,
+									 double totalWeight) {
+
+		if (totalWeight <= 0) {
+			return 0;
+		}
+
+		double modularity = 0;
+
+		for (int c = 0; c < communityDegrees.length; c++) {
+			if (communityDegrees[c] > 0) {
+				double share = communityDegrees[c] / totalWeight;
+				modularity += communityInternal[c] / totalWeight - share*share;
+			}
+		}
+
+		return modularity;
+	}
+}
@@ -0,0 +1,302 @@
+/** The community hierarchy the Louvain method finds in a graph.
+ *
+ * Each level gives every vertex the number of its community, in an int
+ * array indexed by the graph's dense vertex index (see VertexIndex), with
+ * communities numbered 0..getNumCommunities(level)-1, so finding a
+ * vertex's community, or its community's size, takes constant time.
+ * Level 0 is the "leaf" level, every vertex in a community of its own;
+ * each level after it merges the communities of the level below, and the
+ * highest level is the one after which modularity no longer increased.
+ *
+ * SubgraphViews of the communities are only built if asked for (see
+ * StackExchangeTopicGraph.buildLevelToCommunityMap()).  A hierarchy can
+ * also be read back from level mappings the C++ Louvain programs wrote
+ * (see read()).
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class LouvainHierarchy {
+
+	private final VertexIndex vertexIndex;
+	private final int[][] levelLabels;
+	private final int[] numCommunities;
+	private final double[] modularities;
+	// vertices in each community, by level
+	private final int[][] communitySizes;
+
+	LouvainHierarchy(VertexIndex vertexIndex, int[][] levelLabels,
+					 int[] numCommunities, double[] modularities) {
+
+		this.vertexIndex = vertexIndex;
+		this.levelLabels = levelLabels;
+		this.numCommunities = numCommunities;
+		this.modularities = modularities;
+
+		this.communitySizes = new int[levelLabels.length][];
+		for (int level = 0; level < levelLabels.length; level++) {
+			communitySizes[level] = new int[numCommunities[level]];
+			for (int community : levelLabels[level]) {
+				communitySizes[level][community]++;
+			}
+		}
+	}
+
+	/** Read every level of a file of level mappings, in one pass.
+	 *
+	 * The file has a line "vertexIndex communityNum" for each vertex of the
+	 * graph, for each level in turn, as the C++ hierarchy program and
+	 * StackExchangeTopicGraph.exportCommunities() write them.  Numbers are
+	 * parsed straight from the bytes, with no line strings or splitting.
+	 *
+	 * The file does not give modularities, so getModularity() returns NaN
+	 * for every level.
+	 *
+	 * @param vertexIndex is the graph's index; the file's vertices are its
+	 * dense indices
+	 * @throws IOException if the file cannot be read, or a line is not two
+	 * numbers, or a vertex is not in the graph, or the last level is cut
+	 * short
+	 */
+	public static LouvainHierarchy read(File levelMappings,
+										VertexIndex vertexIndex) throws IOException {
+
+		int n = vertexIndex.size();
+		List<int[]> levels = new ArrayList<int[]>();
+		int[] labels = null;
+		int filled = 0;
+
+		InputStream in = new BufferedInputStream(
+				new FileInputStream(levelMappings), 1 << 16);
+
+		try {
+			int vertex;
+			while ((vertex = readNumber(in, levelMappings)) >= 0) {
+
+				int community = readNumber(in, levelMappings);
+
+				if (community < 0) {
+					throw new IOException(levelMappings + ": vertex " + vertex
+							+ " has no community");
+				}
+				if (vertex >= n) {
+					throw new IOException(levelMappings + ": vertex " + vertex
+							+ " is not in a graph of " + n + " vertices");
+				}
+
+				if (labels == null) {
+					labels = new int[n];
+				}
+				labels[vertex] = community;
+
+				// each level has a line per vertex
+				if (++filled == n) {
+					levels.add(labels);
+					labels = null;
+					filled = 0;
+				}
+			}
+		} finally {
+			in.close();
+		}
+
+		if (filled != 0) {
+			throw new IOException(levelMappings + ": last level has " + filled
+					+ " of " + n + " vertices");
+		}
+
+		int[] numCommunities = new int[levels.size()];
+		double[] modularities = new double[levels.size()];
+		for (int level = 0; level < numCommunities.length; level++) {
+			numCommunities[level] = renumber(levels.get(level));
+		}
+		Arrays.fill(modularities, Double.NaN);
+
+		return new LouvainHierarchy(vertexIndex,
+				levels.toArray(new int[levels.size()][]),
+				numCommunities, modularities);
+	}
+
+	/** Get the number of levels, including the leaf level 0.
+	 */
+	public int getNumLevels() {
+
+		return levelLabels.length;
+	}
+
+	public int getHighestLevel() {
+
+		return levelLabels.length - 1;
+	}
+
+	public int getNumCommunities(int level) {
+
+		checkLevel(level);
+
+		return numCommunities[level];
+	}
+
+	/** Get the modularity of the communities at a level.
+	 */
+	public double getModularity(int level) {
+
+		checkLevel(level);
+
+		return modularities[level];
+	}
+
+	/** Get the community of every vertex at a level, indexed by the graph's
+	 * dense vertex index (see getVertexIndex()).
+	 */
+	public int[] getLabels(int level) {
+
+		checkLevel(level);
+
+		return Arrays.copyOf(levelLabels[level], levelLabels[level].length);
+	}
+
+	/** Get the community of a vertex at a level.
+	 *
+	 * @param vertexID is the ID of a vertex in the graph
+	 */
+	public int getCommunityOf(int level, int vertexID) {
+
+		checkLevel(level);
+
+		int index = vertexIndex.indexOf(vertexID);
+
+		if (index < 0 || index >= levelLabels[level].length) {
+			throw new IllegalArgumentException("Vertex " + vertexID
+					+ " is not in the graph");
+		}
+
+		return levelLabels[level][index];
+	}
+
+	/** Get the number of vertices the communities cover.
+	 */
+	public int getNumVertices() {
+
+		return levelLabels.length == 0 ? 0 : levelLabels[0].length;
+	}
+
+	/** Get the number of vertices in a community at a level.
+	 */
+	public int getCommunitySize(int level, int community) {
+
+		checkLevel(level);
+
+		if (community < 0 || community >= numCommunities[level]) {
+			throw new IllegalArgumentException("No community " + community
+					+ " at level " + level);
+		}
+
+		return communitySizes[level][community];
+	}
+
+	/** Get the size of every community at a level, indexed by community
+	 * number.
+	 */
+	public int[] getCommunitySizes(int level) {
+
+		checkLevel(level);
+
+		return Arrays.copyOf(communitySizes[level], communitySizes[level].length);
+	}
+
+	public VertexIndex getVertexIndex() {
+
+		return vertexIndex.readOnly();
+	}
+
+	/** Renumber communities 0..k-1, in order of their first vertex, unless
+	 * they already are numbered 0..k-1.
+	 *
+	 * @return k
+	 */
+	private static int renumber(int[] labels) {
+
+		int max = -1;
+		for (int label : labels) {
+			max = Math.max(max, label);
+		}
+
+		int[] newNumber = new int[max + 1];
+		Arrays.fill(newNumber, -1);
+		int numCommunities = 0;
+		for (int label : labels) {
+			if (newNumber[label] < 0) {
+				newNumber[label] = numCommunities++;
+			}
+		}
+
+		if (numCommunities != max + 1) {
+			numCommunities = 0;
+			Arrays.fill(newNumber, -1);
+			for (int i = 0; i < labels.length; i++) {
+				if (newNumber[labels[i]] < 0) {
+					newNumber[labels[i]] = numCommunities++;
+				}
+				labels[i] = newNumber[labels[i]];
+			}
+		}
+
+		return numCommunities;
+	}
+
+	/** Read a non-negative number, skipping whitespace before it.
+	 *
+	 * @return the number, or -1 at the end of the file
+	 */
+	private static int readNumber(InputStream in, File file) throws IOException {
+
+		int c = in.read();
+		while (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+			c = in.read();
+		}
+
+		if (c < 0) {
+			return -1;
+		}
+
+		if (c < '0' || c > '9') {
+			throw new IOException(file + ": expected a number, found '"
+					+ (char)c + "'");
+		}
+
+		long number = 0;
+		while (c >= '0' && c <= '9') {
+			number = number*10 + (c - '0');
+			if (number > Integer.MAX_VALUE) {
+				throw new IOException(file + ": number too big");
+			}
+			c = in.read();
+		}
+
+		if (c >= 0 && c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+			throw new IOException(file + ": expected a number, found '"
+					+ (char)c + "'");
+		}
+
+		return (int)number;
+	}
+
+	private void checkLevel(int level) {
+
+		if (level < 0 || level >= levelLabels.length) {
+			throw new IllegalArgumentException("No level " + level
+					+ "; levels are 0 to " + getHighestLevel());
+		}
+	}
+}
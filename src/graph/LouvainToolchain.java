@@ -0,0 +1,394 @@
+/** Runs the Louvain method's reference C++ programs without blocking.
+ *
+ * The programs (convert, community and hierarchy, freely available from
+ * https://perso.uclouvain.be/vincent.blondel/research/louvain.html) run as
+ * a chain of CompletableFutures: each step starts when the one before
+ * exits, and a waiter thread blocks in Process.waitFor() rather than
+ * polling, so no thread spins while a program runs.  Once the number of
+ * levels is known, "hierarchy -l N" runs for every level at once.
+ *
+ * Each run works in a scratch directory of its own, so several graphs can
+ * be run at the same time; the directory is deleted when the run ends,
+ * after any of the run's programs still running (if a step failed) have
+ * been destroyed.
+ * The graph can be streamed to convert through a pipe (as /dev/stdin),
+ * rather than written to a linked list file first.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+final class LouvainToolchain {
+
+	// threads that wait for the programs to exit; daemons, so a run never
+	// keeps the JVM alive
+	private static final ExecutorService WAITERS =
+			Executors.newCachedThreadPool(new ThreadFactory() {
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+
+					Thread thread = new Thread(runnable, "louvain-waiter");
+					thread.setDaemon(true);
+
+					return thread;
+				}
+			});
+
+	private final File binaryDirectory;
+
+	/** Make a toolchain for the programs in a directory.
+	 *
+	 * @param binaryDirectory holds the built convert, community and
+	 * hierarchy programs
+	 */
+	LouvainToolchain(File binaryDirectory) {
+
+		this.binaryDirectory = binaryDirectory;
+	}
+
+	/** Find the community hierarchy of a graph, streaming its edges to
+	 * convert in linked list format (see
+	 * StackExchangeTopicGraph.exportToLinkedListPlainText()).
+	 *
+	 * @param graph is the graph, numbered by dense index
+	 * @param levelMappings gets every level's mappings, as
+	 * StackExchangeTopicGraph.runLouvain() writes them
+	 * @return the number of levels, once the file is written
+	 */
+	CompletableFuture<Integer> run(final IndexedAdjacency graph,
+								   File levelMappings) {
+
+		return run(null, graph, levelMappings);
+	}
+
+	/** Find the community hierarchy of a linked list file.
+	 *
+	 * @see #run(IndexedAdjacency, File)
+	 */
+	CompletableFuture<Integer> run(File linkedListFile, File levelMappings) {
+
+		return run(linkedListFile, null, levelMappings);
+	}
+
+	// reads linkedListFile if graph is null
+	private CompletableFuture<Integer> run(File linkedListFile,
+										   final IndexedAdjacency graph,
+										   final File levelMappings) {
+
+		final File scratch;
+		try {
+			scratch = Files.createTempDirectory("louvain").toFile();
+		} catch (IOException e) {
+			CompletableFuture<Integer> failed = new CompletableFuture<Integer>();
+			failed.completeExceptionally(e);
+			return failed;
+		}
+
+		// every program the run starts, to destroy if the run fails
+		final List<Process> started =
+				Collections.synchronizedList(new ArrayList<Process>());
+
+		String input = graph == null
+				? linkedListFile.getAbsolutePath() : "/dev/stdin";
+		final Process convert;
+		try {
+			convert = start(scratch, new File(scratch, "convert.log"), null,
+							"convert", "-i", input, "-o", "graph.bin");
+			started.add(convert);
+		} catch (IOException e) {
+			deleteScratch(scratch);
+			CompletableFuture<Integer> failed = new CompletableFuture<Integer>();
+			failed.completeExceptionally(e);
+			return failed;
+		}
+
+		CompletableFuture<Void> converted = CompletableFuture.supplyAsync(
+				new Supplier<Void>() {
+
+			@Override
+			public Void get() {
+
+				if (graph != null) {
+					try {
+						writeLinkedList(graph, convert.getOutputStream());
+					} catch (IOException e) {
+						convert.destroy();
+						throw new CompletionException(
+								new IOException("Could not stream the graph "
+										+ "to convert", e));
+					}
+				}
+
+				awaitExit(convert, "convert", new File(scratch, "convert.log"));
+
+				return null;
+			}
+		}, WAITERS);
+
+		return converted.thenCompose(new Function<Void,CompletableFuture<Void>>() {
+
+			@Override
+			public CompletableFuture<Void> apply(Void ignored) {
+
+				return startAndWait(scratch, started, new File(scratch, "graph.tree"),
+									"community", "graph.bin", "-l", "-1", "-v");
+			}
+		}).thenCompose(new Function<Void,CompletableFuture<Void>>() {
+
+			@Override
+			public CompletableFuture<Void> apply(Void ignored) {
+
+				return startAndWait(scratch, started, new File(scratch, "levels.txt"),
+									"hierarchy", "graph.tree");
+			}
+		}).thenCompose(new Function<Void,CompletableFuture<Integer>>() {
+
+			@Override
+			public CompletableFuture<Integer> apply(Void ignored) {
+
+				final int levels = countLevels(new File(scratch, "levels.txt"));
+				final List<File> levelFiles = new ArrayList<File>(levels);
+				List<CompletableFuture<Void>> extractions =
+						new ArrayList<CompletableFuture<Void>>(levels);
+
+				// every level at once
+				for (int level = 0; level < levels; level++) {
+					File levelFile = new File(scratch, "level" + level + ".txt");
+					levelFiles.add(levelFile);
+					extractions.add(startAndWait(scratch, started, levelFile,
+							"hierarchy", "graph.tree", "-l", Integer.toString(level)));
+				}
+
+				return CompletableFuture.allOf(extractions.toArray(
+						new CompletableFuture<?>[extractions.size()]))
+						.thenApply(new Function<Void,Integer>() {
+
+					@Override
+					public Integer apply(Void ignored) {
+
+						concatenate(levelFiles, levelMappings);
+
+						return levels;
+					}
+				});
+			}
+		}).whenComplete(new BiConsumer<Integer,Throwable>() {
+
+			@Override
+			public void accept(Integer levels, Throwable failure) {
+
+				// e.g. the levels already extracting when one failed to start
+				if (failure != null) {
+					destroyAll(started);
+				}
+				deleteScratch(scratch);
+			}
+		});
+	}
+
+	/** Start a program in the scratch directory.
+	 *
+	 * @param output gets the program's output, and its errors too if
+	 * errors is null
+	 */
+	private Process start(File scratch, File output, File errors,
+						  String program, String... arguments) throws IOException {
+
+		List<String> command = new ArrayList<String>();
+		command.add(new File(binaryDirectory, program).getAbsolutePath());
+		for (String argument : arguments) {
+			command.add(argument);
+		}
+
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.directory(scratch);
+		builder.redirectOutput(output);
+		if (errors == null) {
+			builder.redirectErrorStream(true);
+		}
+		else {
+			builder.redirectError(errors);
+		}
+
+		return builder.start();
+	}
+
+	// start a program now, adding it to started, and complete when it exits
+	private CompletableFuture<Void> startAndWait(File scratch,
+												 List<Process> started,
+												 File output,
+												 final String program,
+												 String... arguments) {
+
+		final File errors = new File(scratch, output.getName() + ".log");
+		final Process process;
+		try {
+			process = start(scratch, output, errors, program, arguments);
+			started.add(process);
+		} catch (IOException e) {
+			throw new CompletionException(e);
+		}
+
+		return CompletableFuture.supplyAsync(new Supplier<Void>() {
+
+			@Override
+			public Void get() {
+
+				awaitExit(process, program, errors);
+
+				return null;
+			}
+		}, WAITERS);
+	}
+
+	private static void awaitExit(Process process, String program, File log) {
+
+		int exitValue;
+		try {
+			exitValue = process.waitFor();
+		} catch (InterruptedException e) {
+			process.destroy();
+			Thread.currentThread().interrupt();
+			throw new CompletionException(e);
+		}
+
+		if (exitValue != 0) {
+			throw new CompletionException(new IOException(program
+					+ " exited with " + exitValue + ": " + firstLine(log)));
+		}
+	}
+
+	// the linked list format: "from to" per edge, a loop for no out edges
+	private static void writeLinkedList(IndexedAdjacency graph,
+										OutputStream out) throws IOException {
+
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, "US-ASCII"));
+
+		try {
+			for (int i = 0; i < graph.size(); i++) {
+
+				if (graph.outDegree(i) < 1) {
+					writer.write(i + " " + i + "\n");
+				}
+				for (int j = 0; j < graph.outDegree(i); j++) {
+					writer.write(i + " " + graph.outNeighbor(i, j) + "\n");
+				}
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	// hierarchy with no level prints a line "level N: ..." per level
+	private static int countLevels(File hierarchyOutput) {
+
+		int levels = 0;
+
+		try {
+			BufferedReader reader = new BufferedReader(new FileReader(hierarchyOutput));
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.startsWith("level ")) {
+						levels++;
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			throw new CompletionException(e);
+		}
+
+		return levels;
+	}
+
+	private static void concatenate(List<File> levelFiles, File levelMappings) {
+
+		try {
+			File partial = new File(levelMappings.getAbsolutePath() + ".part");
+			OutputStream out = new FileOutputStream(partial);
+			try {
+				for (File levelFile : levelFiles) {
+					Files.copy(levelFile.toPath(), out);
+				}
+			} finally {
+				out.close();
+			}
+			Files.move(partial.toPath(), levelMappings.toPath(),
+					   StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			throw new CompletionException(e);
+		}
+	}
+
+	private static String firstLine(File log) {
+
+		try {
+			BufferedReader reader = new BufferedReader(new FileReader(log));
+			try {
+				String line = reader.readLine();
+				return line == null ? "(no output)" : line;
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			return "(no log)";
+		}
+	}
+
+	// destroy the programs still running, and wait for them to exit so
+	// none is left writing to the scratch directory
+	private static void destroyAll(List<Process> started) {
+
+		synchronized (started) {
+			for (Process process : started) {
+				process.destroy();
+			}
+			for (Process process : started) {
+				try {
+					process.waitFor();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	private static void deleteScratch(File scratch) {
+
+		File[] files = scratch.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		scratch.delete();
+	}
+}
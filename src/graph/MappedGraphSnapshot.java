@@ -0,0 +1,725 @@
+/** A read-only graph that is queried in place from a memory-mapped file.
+ *
+ * Opening a snapshot only reads a small header and maps the rest of the
+ * file, so it takes the same time for any size of graph, and every JVM on a
+ * machine that opens the same file shares one copy of it in the page cache
+ * instead of each building its own objects on the heap.
+ *
+ * Vertices are stored in ascending vertex ID order, and a vertex's position
+ * in that order is its index.  Out edges are stored as indices in one
+ * neighbor array (compressed sparse row), with vertex i's edges at
+ * [offset(i), offset(i+1)).
+ *
+ * Snapshots of a StackExchangeTopicGraph also hold fixed-width attribute
+ * columns, one int per vertex each:
+ *
+ * type: StackExchangeTopicGraph.QUESTION, ANSWER, COMMENT or USER
+ * externalID: the post ID of a post, the user ID of a user
+ * score: the raw score of a post, the reputation of a user
+ * viewCount: the view count of a post, 0 for a user
+ * authorUserID: the author of a post, NO_AUTHOR for a user
+ * parentPostID: the question of an answer, the parent post of a comment,
+ * NO_PARENT otherwise
+ * accountID: the network account ID of a user, NO_ACCOUNT for a post
+ *
+ * Text (names, bodies, titles, tags) is not fixed width, so it is only
+ * kept by TopicGraphSnapshot.
+ *
+ * A snapshot is a read-only Graph: open one with
+ * GraphLoader.openMappedSnapshot, after saving it with
+ * CapGraph.exportMappedSnapshot or StackExchangeTopicGraph's.  It is
+ * also an IndexedAdjacency, so findSCCs() runs on the mapped arrays
+ * themselves.  Egonets and SCCs are of the structure only, as CapGraph
+ * finds them, and are built as CapGraphs.
+ *
+ * Layout (big-endian ints):
+ *
+ * header: magic "SNGM", format version, hasAttributes (0 or 1),
+ * numVertices, numEdges, 0
+ * vertexIDs[numVertices], offsets[numVertices + 1], neighbors[numEdges],
+ * then the seven attribute columns if there are attributes.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+public final class MappedGraphSnapshot implements Graph, IndexedAdjacency {
+
+	public static final int MAGIC = 0x534E474D; // "SNGM"
+	// bump whenever the layout changes
+	public static final int VERSION = 2;
+
+	public static final int NO_PARENT = -1;
+	// user and account IDs can be -1 (the Community user), so these are not
+	public static final int NO_AUTHOR = Integer.MIN_VALUE;
+	public static final int NO_ACCOUNT = Integer.MIN_VALUE;
+
+	// each section is mapped on its own, and one mapping holds at most 2GB
+	public static final int MAX_EDGES = Integer.MAX_VALUE / 4;
+
+	private static final int HEADER_INTS = 6;
+	private static final int NUM_ATTRIBUTE_COLUMNS = 7;
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private final String name;
+	private final int numVertices;
+	private final int numEdges;
+
+	private final IntBuffer vertexIDs;
+	private final IntBuffer offsets;
+	private final IntBuffer neighbors;
+
+	// null if the snapshot has no attributes
+	private final IntBuffer types;
+	private final IntBuffer externalIDs;
+	private final IntBuffer scores;
+	private final IntBuffer viewCounts;
+	private final IntBuffer authorUserIDs;
+	private final IntBuffer parentPostIDs;
+	private final IntBuffer accountIDs;
+
+	// made the first time a query needs vertex IDs by index
+	private VertexIndex vertexIndex;
+
+	private MappedGraphSnapshot(String name, int numVertices, int numEdges,
+								IntBuffer[] sections) {
+
+		this.name = name;
+		this.numVertices = numVertices;
+		this.numEdges = numEdges;
+
+		this.vertexIDs = sections[0];
+		this.offsets = sections[1];
+		this.neighbors = sections[2];
+
+		this.types = sections[3];
+		this.externalIDs = sections[4];
+		this.scores = sections[5];
+		this.viewCounts = sections[6];
+		this.authorUserIDs = sections[7];
+		this.parentPostIDs = sections[8];
+		this.accountIDs = sections[9];
+	}
+
+	/** Write the structure of a CapGraph as a mapped snapshot.
+	 *
+	 * @param graph is the graph to save
+	 * @param snapshotFile is the file to write (overwritten if it exists)
+	 */
+	public static void write(CapGraph graph, File snapshotFile)
+							 throws IOException {
+
+		write(graph.getVertices(), false, snapshotFile);
+	}
+
+	/** Write the structure and attribute columns of a
+	 * StackExchangeTopicGraph as a mapped snapshot.
+	 *
+	 * @param graph is the graph to save
+	 * @param snapshotFile is the file to write (overwritten if it exists)
+	 */
+	public static void write(StackExchangeTopicGraph graph, File snapshotFile)
+							 throws IOException {
+
+		write(graph.getVertices(), true, snapshotFile);
+	}
+
+	private static void write(Map<Integer,Vertex> vertices,
+							  boolean withAttributes, File snapshotFile)
+							  throws IOException {
+
+		int n = vertices.size();
+
+		int[] sortedIDs = new int[n];
+		int i = 0;
+		long m = 0;
+		for (Vertex vertex : vertices.values()) {
+			sortedIDs[i++] = vertex.getVertexID();
+			m += vertex.getOutDegree();
+		}
+		Arrays.sort(sortedIDs);
+
+		if (m > MAX_EDGES) {
+			throw new IllegalArgumentException("Mapped snapshots hold at most "
+					+ MAX_EDGES + " edges, graph has " + m);
+		}
+
+		Map<Integer,Integer> indexOf = new HashMap<Integer,Integer>(n * 2);
+		for (i = 0; i < n; i++) {
+			indexOf.put(sortedIDs[i], i);
+		}
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(snapshotFile), BUFFER_SIZE));
+
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(withAttributes ? 1 : 0);
+			out.writeInt(n);
+			out.writeInt((int)m);
+			out.writeInt(0);
+
+			for (i = 0; i < n; i++) {
+				out.writeInt(sortedIDs[i]);
+			}
+
+			int offset = 0;
+			out.writeInt(offset);
+			for (i = 0; i < n; i++) {
+				offset += vertices.get(sortedIDs[i]).getOutDegree();
+				out.writeInt(offset);
+			}
+
+			for (i = 0; i < n; i++) {
+				Vertex vertex = vertices.get(sortedIDs[i]);
+				IntList outEdges = vertex.getOutEdgeIDs();
+				for (int j = 0; j < outEdges.size(); j++) {
+					int toVertexID = outEdges.getInt(j);
+					Integer toIndex = indexOf.get(toVertexID);
+					if (toIndex == null) {
+						throw new IllegalArgumentException("Vertex "
+								+ vertex.getVertexID() + " has an edge to "
+								+ toVertexID + ", which is not in the graph");
+					}
+					out.writeInt(toIndex);
+				}
+			}
+
+			if (withAttributes) {
+				for (int column = 0; column < NUM_ATTRIBUTE_COLUMNS; column++) {
+					for (i = 0; i < n; i++) {
+						out.writeInt(attribute(vertices.get(sortedIDs[i]), column));
+					}
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	// the value of one attribute column for a vertex, in layout order
+	private static int attribute(Vertex vertex, int column) {
+
+		if (vertex instanceof UserNode) {
+			UserNode user = (UserNode)vertex;
+			switch (column) {
+				case 0: return StackExchangeTopicGraph.USER;
+				case 1: return user.getUserID();
+				case 2: return user.getReputation();
+				case 3: return 0;
+				case 4: return NO_AUTHOR;
+				case 5: return NO_PARENT;
+				default: return user.getAccountID();
+			}
+		}
+
+		if (!(vertex instanceof Post)) {
+			throw new IllegalArgumentException("Vertex " + vertex.getVertexID()
+					+ " is neither a user nor a post");
+		}
+
+		Post post = (Post)vertex;
+		switch (column) {
+			case 0:
+				if (post instanceof QuestionNode) {
+					return StackExchangeTopicGraph.QUESTION;
+				}
+				else if (post instanceof AnswerNode) {
+					return StackExchangeTopicGraph.ANSWER;
+				}
+				else {
+					return StackExchangeTopicGraph.COMMENT;
+				}
+			case 1: return post.getPostID();
+			case 2: return post.getRawScore();
+			case 3: return post.getViewCount();
+			case 4: return post.getAuthorUserID();
+			case 5:
+				if (post instanceof AnswerNode) {
+					return ((AnswerNode)post).getParentQuestionPostID();
+				}
+				else if (post instanceof CommentNode) {
+					return ((CommentNode)post).getParentPostID();
+				}
+				else {
+					return NO_PARENT;
+				}
+			default: return NO_ACCOUNT;
+		}
+	}
+
+	/** Open a mapped snapshot.
+	 *
+	 * Only the header is read; the sections are mapped read-only and paged
+	 * in by the operating system as they are queried.
+	 *
+	 * @param snapshotFile is a file written by write()
+	 * @return the mapped graph
+	 * @throws IOException if the file cannot be mapped, is not a mapped
+	 * snapshot, or was written by a different snapshot version
+	 */
+	public static MappedGraphSnapshot open(File snapshotFile) throws IOException {
+
+		RandomAccessFile file = new RandomAccessFile(snapshotFile, "r");
+
+		try {
+			FileChannel channel = file.getChannel();
+
+			if (channel.size() < HEADER_INTS * 4) {
+				throw new IOException(snapshotFile + " is not a mapped "
+						+ "graph snapshot");
+			}
+
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY,
+											0, HEADER_INTS * 4);
+			if (header.getInt(0) != MAGIC) {
+				throw new IOException(snapshotFile + " is not a mapped "
+						+ "graph snapshot");
+			}
+
+			int version = header.getInt(4);
+			if (version != VERSION) {
+				throw new IOException(snapshotFile + " is a version " + version
+						+ " snapshot but this build reads version " + VERSION);
+			}
+
+			boolean hasAttributes = header.getInt(8) != 0;
+			int n = header.getInt(12);
+			int m = header.getInt(16);
+
+			int[] sectionLengths = new int[3 + NUM_ATTRIBUTE_COLUMNS];
+			sectionLengths[0] = n;
+			sectionLengths[1] = n + 1;
+			sectionLengths[2] = m;
+			for (int i = 3; i < sectionLengths.length; i++) {
+				sectionLengths[i] = hasAttributes ? n : 0;
+			}
+
+			long expectedSize = HEADER_INTS * 4L;
+			for (int length : sectionLengths) {
+				expectedSize += length * 4L;
+			}
+			if (channel.size() != expectedSize) {
+				throw new IOException(snapshotFile + " should be "
+						+ expectedSize + " bytes but is " + channel.size());
+			}
+
+			IntBuffer[] sections = new IntBuffer[sectionLengths.length];
+			long position = HEADER_INTS * 4L;
+			for (int i = 0; i < sections.length; i++) {
+				if (i < 3 || hasAttributes) {
+					sections[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+							position, sectionLengths[i] * 4L).asIntBuffer();
+				}
+				position += sectionLengths[i] * 4L;
+			}
+
+			// the mappings stay valid after the file is closed
+			return new MappedGraphSnapshot(snapshotFile.getName(), n, m, sections);
+		} finally {
+			file.close();
+		}
+	}
+
+	/** Get the snapshot's name (its file's name).
+	 */
+	public String getName() {
+
+		return name;
+	}
+
+	public int getNumVertices() {
+
+		return numVertices;
+	}
+
+	public int getNumEdges() {
+
+		return numEdges;
+	}
+
+	public boolean hasAttributes() {
+
+		return types != null;
+	}
+
+	/** Get the vertex ID of the vertex at an index.
+	 */
+	public int getVertexID(int index) {
+
+		return vertexIDs.get(index);
+	}
+
+	/** Find the index of a vertex.
+	 *
+	 * @param vertexID is the ID of the vertex to find
+	 * @return the vertex's index, or -1 if it is not in the graph
+	 */
+	public int indexOf(int vertexID) {
+
+		int low = 0;
+		int high = numVertices - 1;
+
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int midID = vertexIDs.get(mid);
+
+			if (midID < vertexID) {
+				low = mid + 1;
+			}
+			else if (midID > vertexID) {
+				high = mid - 1;
+			}
+			else {
+				return mid;
+			}
+		}
+
+		return -1;
+	}
+
+	public int getOutDegree(int index) {
+
+		return offsets.get(index + 1) - offsets.get(index);
+	}
+
+	/** Get the index of one out neighbor of a vertex.
+	 *
+	 * @param index is the index of the vertex
+	 * @param i is which of the vertex's out edges, in the original order
+	 * @return the index of the vertex the edge goes to
+	 */
+	public int getOutNeighbor(int index, int i) {
+
+		return neighbors.get(offsets.get(index) + i);
+	}
+
+	/** Get a read-only view of the indices of a vertex's out neighbors.
+	 *
+	 * The view reads the mapped file directly; nothing is copied.
+	 */
+	public IntBuffer getOutNeighbors(int index) {
+
+		IntBuffer view = neighbors.duplicate();
+		view.position(offsets.get(index));
+		view.limit(offsets.get(index + 1));
+
+		return view.slice();
+	}
+
+	/** Get the IDs of the vertices a vertex has out edges to.
+	 *
+	 * Convenience for callers working with vertex IDs rather than indices.
+	 *
+	 * @param vertexID is the ID of the vertex
+	 * @return the out edge vertex IDs, in the original order
+	 */
+	public List<Integer> getOutEdges(int vertexID) {
+
+		int index = indexOf(vertexID);
+
+		if (index < 0) {
+			throw new IllegalArgumentException("Vertex " + vertexID
+					+ " is not in the graph");
+		}
+
+		int start = offsets.get(index);
+		Integer[] outEdges = new Integer[getOutDegree(index)];
+		for (int i = 0; i < outEdges.length; i++) {
+			outEdges[i] = vertexIDs.get(neighbors.get(start + i));
+		}
+
+		return Arrays.asList(outEdges);
+	}
+
+	@Override
+	public int size() {
+
+		return numVertices;
+	}
+
+	@Override
+	public int outDegree(int index) {
+
+		return getOutDegree(index);
+	}
+
+	@Override
+	public int outNeighbor(int index, int i) {
+
+		return getOutNeighbor(index, i);
+	}
+
+	/** Get a VertexIndex of the snapshot's vertices, in which each vertex
+	 * has its index in the snapshot.
+	 *
+	 * Built on the heap the first time it is asked for (SCC results name
+	 * their vertices through it), and kept.
+	 */
+	public VertexIndex getVertexIndex() {
+
+		if (vertexIndex == null) {
+			int[] sortedIDs = new int[numVertices];
+			vertexIDs.duplicate().get(sortedIDs);
+			vertexIndex = VertexIndex.of(sortedIDs);
+		}
+
+		return vertexIndex.readOnly();
+	}
+
+	/** Snapshots are read-only.
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void addVertex(int num, int vertexType) {
+
+		throw new UnsupportedOperationException("Cannot add to mapped "
+				+ "snapshot " + name);
+	}
+
+	/** Snapshots are read-only.
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void addEdge(int from, int to) {
+
+		throw new UnsupportedOperationException("Cannot add to mapped "
+				+ "snapshot " + name);
+	}
+
+	/** Construct the egonet for a vertex, as CapGraph does: the center,
+	 * the vertices it has edges to, and the edges from the center and
+	 * between those vertices.
+	 *
+	 * @return the egonet, as a CapGraph of its own
+	 * @see graph.CapGraph#getEgonet(int)
+	 */
+	@Override
+	public Graph getEgonet(int center) {
+
+		int centerIndex = indexOf(center);
+
+		if (centerIndex < 0) {
+			throw new IllegalArgumentException("Vertex " + center
+					+ " is not in " + name);
+		}
+
+		CapGraph egonet = new CapGraph("Egonet for vertex " + center
+				+ " within " + name);
+
+		// the center's out neighbors' indices, sorted for lookups
+		int degree = getOutDegree(centerIndex);
+		int[] around = new int[degree];
+		for (int i = 0; i < degree; i++) {
+			around[i] = getOutNeighbor(centerIndex, i);
+		}
+		Arrays.sort(around);
+
+		egonet.addVertex(center, 1);
+		for (int i = 0; i < degree; i++) {
+			if (around[i] != centerIndex && (i == 0 || around[i] != around[i - 1])) {
+				egonet.addVertex(getVertexID(around[i]), 1);
+			}
+		}
+
+		for (int i = 0; i < degree; i++) {
+			egonet.addEdge(center, getVertexID(getOutNeighbor(centerIndex, i)));
+		}
+
+		for (int i = 0; i < degree; i++) {
+
+			int outIndex = around[i];
+			if (outIndex == centerIndex || (i > 0 && outIndex == around[i - 1])) {
+				continue;
+			}
+
+			for (int j = 0; j < getOutDegree(outIndex); j++) {
+				int neighbor = getOutNeighbor(outIndex, j);
+				if (Arrays.binarySearch(around, neighbor) >= 0) {
+					egonet.addEdge(getVertexID(outIndex), getVertexID(neighbor));
+				}
+			}
+		}
+
+		return egonet;
+	}
+
+	/** Find the strongly connected components (SCCs) of the snapshot as
+	 * labels, searching the mapped arrays in place (see TarjanSCC).
+	 *
+	 * @return the component of every vertex, by its index here
+	 */
+	public SCCResult findSCCs() {
+
+		return TarjanSCC.findComponents(this, getVertexIndex());
+	}
+
+	/** Find all strongly connected components (SCCs).
+	 *
+	 * The components are found by findSCCs(), and each SCC is only built,
+	 * as a CapGraph, the first time it is read from the returned list.
+	 *
+	 * @return the SCCs, in the order of findSCCs()
+	 * @see graph.CapGraph#getSCCs()
+	 */
+	@Override
+	public List<Graph> getSCCs() {
+
+		final SCCResult sccs = findSCCs();
+		final List<int[]> members = sccs.getMemberIndicesByComponent();
+
+		return new AbstractList<Graph>() {
+
+			private final Graph[] built = new Graph[members.size()];
+
+			@Override
+			public Graph get(int component) {
+
+				if (built[component] == null) {
+					built[component] = buildSCC(sccs, component,
+												members.get(component));
+				}
+
+				return built[component];
+			}
+
+			@Override
+			public int size() {
+
+				return built.length;
+			}
+		};
+	}
+
+	private CapGraph buildSCC(SCCResult sccs, int component, int[] memberIndices) {
+
+		CapGraph SCC = new CapGraph("SCC with Parent '" + name + "' and "
+				+ "Root " + sccs.getComponentRoot(component));
+
+		for (int member : memberIndices) {
+			SCC.addVertex(getVertexID(member), 1);
+		}
+
+		for (int member : memberIndices) {
+			for (int i = 0; i < getOutDegree(member); i++) {
+				int neighbor = getOutNeighbor(member, i);
+				if (Arrays.binarySearch(memberIndices, neighbor) >= 0) {
+					SCC.addEdge(getVertexID(member), getVertexID(neighbor));
+				}
+			}
+		}
+
+		return SCC;
+	}
+
+	/** Return the snapshot's edges by vertex ID.
+	 *
+	 * @see graph.Graph#exportGraph()
+	 */
+	@Override
+	public HashMap<Integer, HashSet<Integer>> exportGraph() {
+
+		HashMap<Integer,HashSet<Integer>> exportedGraph =
+				new HashMap<Integer,HashSet<Integer>>(numVertices*2,1);
+
+		for (int index = 0; index < numVertices; index++) {
+
+			int degree = getOutDegree(index);
+			HashSet<Integer> outVertexIDSet = new HashSet<Integer>(degree*2,1);
+
+			for (int i = 0; i < degree; i++) {
+				outVertexIDSet.add(getVertexID(getOutNeighbor(index, i)));
+			}
+
+			exportedGraph.put(getVertexID(index), outVertexIDSet);
+		}
+
+		return exportedGraph;
+	}
+
+	/** Get the type of the vertex at an index.
+	 *
+	 * @return one of StackExchangeTopicGraph.QUESTION, ANSWER, COMMENT, USER
+	 */
+	public int getVertexType(int index) {
+
+		return attributeColumn(types).get(index);
+	}
+
+	/** Get the post ID (posts) or user ID (users) of the vertex at an index.
+	 */
+	public int getExternalID(int index) {
+
+		return attributeColumn(externalIDs).get(index);
+	}
+
+	/** Get the raw score (posts) or reputation (users) of the vertex
+	 * at an index.
+	 */
+	public int getScore(int index) {
+
+		return attributeColumn(scores).get(index);
+	}
+
+	public int getViewCount(int index) {
+
+		return attributeColumn(viewCounts).get(index);
+	}
+
+	/** Get the author's user ID of the post at an index.
+	 *
+	 * @return the author's user ID, or NO_AUTHOR for a user
+	 */
+	public int getAuthorUserID(int index) {
+
+		return attributeColumn(authorUserIDs).get(index);
+	}
+
+	/** Get the parent post ID of an answer or comment at an index.
+	 *
+	 * @return the parent's post ID, or NO_PARENT
+	 */
+	public int getParentPostID(int index) {
+
+		return attributeColumn(parentPostIDs).get(index);
+	}
+
+	/** Get the network account ID of the user at an index.
+	 *
+	 * @return the account ID, or NO_ACCOUNT for a post
+	 */
+	public int getAccountID(int index) {
+
+		return attributeColumn(accountIDs).get(index);
+	}
+
+	private IntBuffer attributeColumn(IntBuffer column) {
+
+		if (column == null) {
+			throw new IllegalStateException("This snapshot has no "
+					+ "attribute columns");
+		}
+
+		return column;
+	}
+}
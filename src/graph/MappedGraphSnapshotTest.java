@@ -0,0 +1,211 @@
+/** Tests that graphs saved as mapped snapshots open as the same graphs.
+ *
+ * Saves a CapGraph and a small Stack Exchange topic with
+ * exportMappedSnapshot, opens them with GraphLoader.openMappedSnapshot,
+ * and compares the edges, egonets, SCCs and attribute columns read in
+ * place with the originals'.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import util.GraphLoader;
+
+public class MappedGraphSnapshotTest {
+
+	private static final String[][] SAMPLE_TOPIC = {
+		{"Tags.xml",
+			"<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<tags>\n"
+			+ "  <row Id=\"1\" TagName=\"sql-server\" Count=\"1\" />\n"
+			+ "  <row Id=\"2\" TagName=\"mysql\" Count=\"2\" />\n"
+			+ "</tags>\n"},
+		{"Users.xml",
+			"<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<users>\n"
+			+ "  <row Id=\"-1\" Reputation=\"1\" DisplayName=\"Community\" "
+			+ "UpVotes=\"10\" DownVotes=\"20\" AccountId=\"-1\" />\n"
+			+ "  <row Id=\"2\" Reputation=\"101\" DisplayName=\"Geoff\" "
+			+ "UpVotes=\"3\" DownVotes=\"0\" AccountId=\"22\" />\n"
+			+ "  <row Id=\"3\" Reputation=\"250\" DisplayName=\"Jürgen\" "
+			+ "UpVotes=\"1\" DownVotes=\"1\" AccountId=\"33\" />\n"
+			+ "</users>\n"},
+		{"Posts.xml",
+			"<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<posts>\n"
+			+ "  <row Id=\"1\" PostTypeId=\"1\" Score=\"10\" ViewCount=\"200\" "
+			+ "Body=\"How do I join?\" OwnerUserId=\"2\" Title=\"Joins\" "
+			+ "Tags=\"&lt;sql-server&gt;&lt;mysql&gt;\" AnswerCount=\"2\" CommentCount=\"1\" />\n"
+			+ "  <row Id=\"3\" PostTypeId=\"2\" ParentId=\"1\" Score=\"5\" "
+			+ "Body=\"Use JOIN\" OwnerUserId=\"3\" CommentCount=\"1\" />\n"
+			+ "  <row Id=\"5\" PostTypeId=\"1\" Score=\"-1\" ViewCount=\"10\" "
+			+ "Body=\"q2\" OwnerUserId=\"3\" Title=\"Second\" "
+			+ "Tags=\"&lt;mysql&gt;\" AnswerCount=\"1\" CommentCount=\"0\" />\n"
+			+ "  <row Id=\"6\" PostTypeId=\"2\" ParentId=\"5\" Score=\"0\" "
+			+ "Body=\"a\" OwnerUserId=\"-1\" CommentCount=\"0\" />\n"
+			+ "</posts>\n"},
+		{"Comments.xml",
+			"<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<comments>\n"
+			+ "  <row Id=\"1\" PostId=\"1\" Score=\"0\" Text=\"clear\" "
+			+ "UserId=\"3\" />\n"
+			+ "  <row Id=\"2\" PostId=\"3\" Score=\"2\" Text=\"thanks\" "
+			+ "UserId=\"2\" />\n"
+			+ "</comments>\n"}
+	};
+
+	private File directory;
+	private File snapshot;
+
+	@Before
+	public void makeFiles() throws IOException {
+
+		snapshot = File.createTempFile("Mapped", ".snapshot");
+		directory = File.createTempFile("Topic", "");
+		directory.delete();
+		directory.mkdir();
+
+		for (String[] file : SAMPLE_TOPIC) {
+			OutputStream out = new FileOutputStream(new File(directory, file[0]));
+			try {
+				out.write(file[1].getBytes("UTF-8"));
+			} finally {
+				out.close();
+			}
+		}
+	}
+
+	@After
+	public void deleteFiles() {
+
+		snapshot.delete();
+		for (String[] file : SAMPLE_TOPIC) {
+			new File(directory, file[0]).delete();
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void capGraphRoundTrips() throws IOException {
+
+		CapGraph graph = new CapGraph("Random");
+		Random random = new Random(2016);
+
+		// scattered IDs, so indices and IDs differ
+		int[] vertexIDs = new int[300];
+		for (int i = 0; i < vertexIDs.length; i++) {
+			vertexIDs[i] = i * 7919 - 1000;
+			graph.addVertex(vertexIDs[i], 1);
+		}
+		for (int e = 0; e < 600; e++) {
+			graph.addEdge(vertexIDs[random.nextInt(vertexIDs.length)],
+						  vertexIDs[random.nextInt(vertexIDs.length)]);
+		}
+
+		graph.exportMappedSnapshot(snapshot);
+		MappedGraphSnapshot mapped =
+				GraphLoader.openMappedSnapshot(snapshot.getPath());
+
+		assertEquals(vertexIDs.length, mapped.getNumVertices());
+		assertEquals(graph.exportGraph(), mapped.exportGraph());
+
+		for (int vertexID : vertexIDs) {
+			assertEquals(graph.getEgonet(vertexID).exportGraph(),
+						 mapped.getEgonet(vertexID).exportGraph());
+		}
+
+		assertEquals(componentsOf(graph.getSCCs()),
+					 componentsOf(mapped.getSCCs()));
+	}
+
+	@Test
+	public void topicGraphRoundTrips() throws IOException {
+
+		StackExchangeTopicGraph graph = new StackExchangeTopicGraph("Sample");
+		GraphLoader.streamStackExchangeTopicGraph(graph,
+				directory.getPath() + File.separator);
+
+		graph.exportMappedSnapshot(snapshot);
+		MappedGraphSnapshot mapped =
+				GraphLoader.openMappedSnapshot(snapshot.getPath());
+
+		assertEquals(graph.getVertices().size(), mapped.getNumVertices());
+		assertEquals(graph.exportGraph(), mapped.exportGraph());
+		assertEquals(componentsOf(graph.getSCCs()),
+					 componentsOf(mapped.getSCCs()));
+
+		for (UserNode user : graph.getUsers().values()) {
+			int index = mapped.indexOf(user.getVertexID());
+			assertEquals(StackExchangeTopicGraph.USER, mapped.getVertexType(index));
+			assertEquals(user.getUserID(), mapped.getExternalID(index));
+			assertEquals(user.getReputation(), mapped.getScore(index));
+			assertEquals(user.getAccountID(), mapped.getAccountID(index));
+			assertEquals(MappedGraphSnapshot.NO_AUTHOR,
+						 mapped.getAuthorUserID(index));
+		}
+
+		for (AnswerNode answer : graph.getAnswers().values()) {
+			int index = mapped.indexOf(answer.getVertexID());
+			assertEquals(StackExchangeTopicGraph.ANSWER, mapped.getVertexType(index));
+			assertEquals(answer.getPostID(), mapped.getExternalID(index));
+			assertEquals(answer.getRawScore(), mapped.getScore(index));
+			assertEquals(answer.getAuthorUserID(), mapped.getAuthorUserID(index));
+			assertEquals(answer.getParentQuestionPostID(),
+						 mapped.getParentPostID(index));
+			assertEquals(MappedGraphSnapshot.NO_ACCOUNT,
+						 mapped.getAccountID(index));
+		}
+
+		for (QuestionNode question : graph.getQuestions().values()) {
+			int index = mapped.indexOf(question.getVertexID());
+			assertEquals(question.getViewCount(), mapped.getViewCount(index));
+			assertEquals(MappedGraphSnapshot.NO_PARENT,
+						 mapped.getParentPostID(index));
+		}
+	}
+
+	@Test
+	public void snapshotsAreReadOnly() throws IOException {
+
+		CapGraph graph = new CapGraph("Pair");
+		graph.addVertex(1, 1);
+		graph.addVertex(2, 1);
+		graph.addEdge(1, 2);
+
+		graph.exportMappedSnapshot(snapshot);
+		MappedGraphSnapshot mapped =
+				GraphLoader.openMappedSnapshot(snapshot.getPath());
+
+		try {
+			mapped.addEdge(2, 1);
+			fail("Added an edge to a mapped snapshot");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+	// each SCC as its set of vertex IDs
+	private static Set<Set<Integer>> componentsOf(List<Graph> sccs) {
+
+		Set<Set<Integer>> components = new HashSet<Set<Integer>>();
+
+		for (Graph scc : sccs) {
+			components.add(new HashSet<Integer>(scc.exportGraph().keySet()));
+		}
+
+		return components;
+	}
+}
@@ -0,0 +1,412 @@
+/** The two phases of a Louvain level (see Louvain), run by several threads.
+ *
+ * Local moves: each pass is split into rounds, vertex i being in round
+ * i mod ROUNDS.  In a round, every vertex of the round chooses its best
+ * community at once, in parallel, from the communities as they were at
+ * the start of the round, and then all the round's moves are made
+ * together, so later rounds see them.  Moving together lets two vertices
+ * swap communities endlessly, each following the other; to prevent that,
+ * a vertex alone in its community only moves to another vertex that is
+ * alone in its community if that community has the lower number.  A pass
+ * that lowers modularity is undone, and ends the level.
+ *
+ * Aggregation: the communities' rows of the next level's graph are built
+ * by parallel tasks, each for a run of communities, and then copied into
+ * one CSR graph.
+ *
+ * The communities can differ from the sequential method's, since a
+ * vertex only sees the moves of earlier rounds, not of the vertices
+ * moving with it.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+final class ParallelLouvain {
+
+	// vertices, or communities, per task
+	private static final int CHUNK = 1 << 10;
+	// rounds a pass is split into (a vertex's round is its index mod this)
+	private static final int ROUNDS = 16;
+
+	private ParallelLouvain() {
+
+	}
+
+	/** One level's local moves.
+	 *
+	 * @param communityOf gets the community of every vertex, by the index
+	 * of one of its vertices
+	 * @return whether any vertex moved
+	 */
+	static boolean moveVertices(ForkJoinPool pool, final WeightedAdjacency graph,
+								final int[] communityOf) {
+
+		final int n = graph.size();
+		final double totalWeight = graph.totalWeight;
+
+		final double[] communityDegrees = new double[n];
+		final int[] communitySizes = new int[n];
+		final int[] proposed = new int[n];
+		int[] previous = new int[n];
+		for (int i = 0; i < n; i++) {
+			communityOf[i] = i;
+		}
+		countCommunities(graph, communityOf, communityDegrees, communitySizes);
+
+		// scratch for each thread, as in the sequential method
+		final ThreadLocal<double[]> weightToScratch = new ThreadLocal<double[]>() {
+
+			@Override
+			protected double[] initialValue() {
+
+				double[] weightTo = new double[n];
+				Arrays.fill(weightTo, -1);
+
+				return weightTo;
+			}
+		};
+		final ThreadLocal<int[]> nextToScratch = new ThreadLocal<int[]>() {
+
+			@Override
+			protected int[] initialValue() {
+
+				return new int[n];
+			}
+		};
+
+		// each task writes only its own vertices' proposals; a task covers
+		// vertices round, round + ROUNDS, round + 2*ROUNDS, ...
+		class MoveChunk extends RecursiveAction {
+
+			private static final long serialVersionUID = 1L;
+
+			private final int round;
+			private final int start;
+			private final int end;
+
+			MoveChunk(int round, int start, int end) {
+
+				this.round = round;
+				this.start = start;
+				this.end = end;
+			}
+
+			@Override
+			protected void compute() {
+
+				if (end - start > CHUNK) {
+					int middle = (start + end) >>> 1;
+					invokeAll(new MoveChunk(round, start, middle),
+							  new MoveChunk(round, middle, end));
+					return;
+				}
+
+				double[] weightTo = weightToScratch.get();
+				int[] nextTo = nextToScratch.get();
+
+				for (int j = start; j < end; j++) {
+
+					int i = round + j*ROUNDS;
+
+					int community = communityOf[i];
+					double degree = graph.degrees[i];
+
+					int numNextTo = 0;
+					nextTo[numNextTo++] = community;
+					weightTo[community] = 0;
+					for (int e = graph.offsets[i]; e < graph.offsets[i + 1]; e++) {
+						int neighbor = graph.neighbors[e];
+						if (neighbor != i) {
+							int neighborCommunity = communityOf[neighbor];
+							if (weightTo[neighborCommunity] < 0) {
+								weightTo[neighborCommunity] = 0;
+								nextTo[numNextTo++] = neighborCommunity;
+							}
+							weightTo[neighborCommunity] += graph.weights[e];
+						}
+					}
+
+					// the gain of staying, with the vertex taken out
+					int best = community;
+					double bestGain = weightTo[community]
+							- (communityDegrees[community] - degree)*degree/totalWeight;
+					boolean alone = communitySizes[community] == 1;
+					for (int k = 1; k < numNextTo; k++) {
+						int candidate = nextTo[k];
+						if (alone && communitySizes[candidate] == 1
+								&& candidate > community) {
+							continue;
+						}
+						double gain = weightTo[candidate]
+								- communityDegrees[candidate]*degree/totalWeight;
+						if (gain > bestGain) {
+							best = candidate;
+							bestGain = gain;
+						}
+					}
+					proposed[i] = best;
+
+					for (int k = 0; k < numNextTo; k++) {
+						weightTo[nextTo[k]] = -1;
+					}
+				}
+			}
+		}
+
+		double modularity = modularity(pool, graph, communityOf, communityDegrees);
+		boolean moved = false;
+
+		while (true) {
+
+			System.arraycopy(communityOf, 0, previous, 0, n);
+			int moves = 0;
+
+			for (int round = 0; round < ROUNDS && round < n; round++) {
+
+				int roundSize = (n - round + ROUNDS - 1) / ROUNDS;
+				pool.invoke(new MoveChunk(round, 0, roundSize));
+
+				for (int i = round; i < n; i += ROUNDS) {
+					int from = communityOf[i];
+					int to = proposed[i];
+					if (to != from) {
+						communityDegrees[from] -= graph.degrees[i];
+						communitySizes[from]--;
+						communityDegrees[to] += graph.degrees[i];
+						communitySizes[to]++;
+						communityOf[i] = to;
+						moves++;
+					}
+				}
+			}
+
+			if (moves == 0) {
+				break;
+			}
+
+			double passModularity = modularity(pool, graph, communityOf,
+											   communityDegrees);
+			if (passModularity < modularity) {
+				System.arraycopy(previous, 0, communityOf, 0, n);
+				break;
+			}
+
+			moved = true;
+			if (passModularity - modularity <= Louvain.MIN_GAIN) {
+				break;
+			}
+			modularity = passModularity;
+		}
+
+		return moved;
+	}
+
+	/** Build the graph of groups of a graph's vertices, as
+	 * WeightedAdjacency.aggregate() does.
+	 */
+	static WeightedAdjacency aggregate(ForkJoinPool pool,
+									   final WeightedAdjacency graph,
+									   final int[] groupOf, final int numGroups) {
+
+		int n = graph.size();
+
+		// vertices in group order (a counting sort)
+		final int[] groupStart = new int[numGroups + 1];
+		for (int i = 0; i < n; i++) {
+			groupStart[groupOf[i] + 1]++;
+		}
+		for (int g = 0; g < numGroups; g++) {
+			groupStart[g + 1] += groupStart[g];
+		}
+		final int[] members = new int[n];
+		int[] fill = new int[numGroups];
+		System.arraycopy(groupStart, 0, fill, 0, numGroups);
+		for (int i = 0; i < n; i++) {
+			members[fill[groupOf[i]]++] = i;
+		}
+
+		final int numChunks = (numGroups + CHUNK - 1) / CHUNK;
+		final int[][] chunkNeighbors = new int[numChunks][];
+		final double[][] chunkWeights = new double[numChunks][];
+		final int[] rowLengths = new int[numGroups];
+
+		final ThreadLocal<int[]> positionScratch = new ThreadLocal<int[]>() {
+
+			@Override
+			protected int[] initialValue() {
+
+				int[] position = new int[numGroups];
+				Arrays.fill(position, -1);
+
+				return position;
+			}
+		};
+
+		// each task builds the rows of its own chunks of groups
+		class RowChunks extends RecursiveAction {
+
+			private static final long serialVersionUID = 1L;
+
+			private final int start;
+			private final int end;
+
+			RowChunks(int start, int end) {
+
+				this.start = start;
+				this.end = end;
+			}
+
+			@Override
+			protected void compute() {
+
+				if (end - start > 1) {
+					int middle = (start + end) >>> 1;
+					invokeAll(new RowChunks(start, middle),
+							  new RowChunks(middle, end));
+					return;
+				}
+
+				int[] position = positionScratch.get();
+				int firstGroup = start * CHUNK;
+				int lastGroup = Math.min(firstGroup + CHUNK, numGroups);
+
+				int maxLength = 0;
+				for (int k = groupStart[firstGroup]; k < groupStart[lastGroup]; k++) {
+					int i = members[k];
+					maxLength += graph.offsets[i + 1] - graph.offsets[i];
+				}
+				IntList neighbors = new IntList(maxLength);
+				double[] weights = new double[maxLength];
+
+				for (int g = firstGroup; g < lastGroup; g++) {
+
+					int rowStart = neighbors.size();
+
+					for (int k = groupStart[g]; k < groupStart[g + 1]; k++) {
+						int i = members[k];
+						for (int e = graph.offsets[i]; e < graph.offsets[i + 1]; e++) {
+							int h = groupOf[graph.neighbors[e]];
+							if (position[h] < 0) {
+								position[h] = neighbors.size();
+								neighbors.addInt(h);
+								weights[position[h]] = 0;
+							}
+							weights[position[h]] += graph.weights[e];
+						}
+					}
+
+					for (int e = rowStart; e < neighbors.size(); e++) {
+						position[neighbors.getInt(e)] = -1;
+					}
+					rowLengths[g] = neighbors.size() - rowStart;
+				}
+
+				chunkNeighbors[start] = neighbors.toIntArray();
+				chunkWeights[start] = Arrays.copyOf(weights, neighbors.size());
+			}
+		}
+
+		if (numChunks > 0) {
+			pool.invoke(new RowChunks(0, numChunks));
+		}
+
+		int[] groupOffsets = new int[numGroups + 1];
+		for (int g = 0; g < numGroups; g++) {
+			groupOffsets[g + 1] = groupOffsets[g] + rowLengths[g];
+		}
+
+		int[] groupNeighbors = new int[groupOffsets[numGroups]];
+		double[] groupWeights = new double[groupOffsets[numGroups]];
+		for (int c = 0; c < numChunks; c++) {
+			int at = groupOffsets[c * CHUNK];
+			System.arraycopy(chunkNeighbors[c], 0, groupNeighbors, at,
+							 chunkNeighbors[c].length);
+			System.arraycopy(chunkWeights[c], 0, groupWeights, at,
+							 chunkWeights[c].length);
+		}
+
+		return new WeightedAdjacency(groupOffsets, groupNeighbors, groupWeights);
+	}
+
+	// each community's total degree and number of vertices
+	private static void countCommunities(WeightedAdjacency graph,
+										 int[] communityOf,
+										 double[] communityDegrees,
+										 int[] communitySizes) {
+
+		Arrays.fill(communityDegrees, 0);
+		Arrays.fill(communitySizes, 0);
+
+		for (int i = 0; i < communityOf.length; i++) {
+			communityDegrees[communityOf[i]] += graph.degrees[i];
+			communitySizes[communityOf[i]]++;
+		}
+	}
+
+	private static double modularity(ForkJoinPool pool,
+									 final WeightedAdjacency graph,
+									 final int[] communityOf,
+									 double[] communityDegrees) {
+
+		double totalWeight = graph.totalWeight;
+
+		if (totalWeight <= 0) {
+			return 0;
+		}
+
+		// the weight of edges within communities, counted from both ends
+		class InternalWeight extends RecursiveTask<Double> {
+
+			private static final long serialVersionUID = 1L;
+
+			private final int start;
+			private final int end;
+
+			InternalWeight(int start, int end) {
+
+				this.start = start;
+				this.end = end;
+			}
+
+			@Override
+			protected Double compute() {
+
+				if (end - start > CHUNK) {
+					int middle = (start + end) >>> 1;
+					InternalWeight right = new InternalWeight(middle, end);
+					right.fork();
+					double left = new InternalWeight(start, middle).compute();
+					return left + right.join();
+				}
+
+				double weight = 0;
+				for (int i = start; i < end; i++) {
+					for (int e = graph.offsets[i]; e < graph.offsets[i + 1]; e++) {
+						if (communityOf[graph.neighbors[e]] == communityOf[i]) {
+							weight += graph.weights[e];
+						}
+					}
+				}
+
+				return weight;
+			}
+		}
+
+		double modularity = pool.invoke(new InternalWeight(0, communityOf.length))
+				/ totalWeight;
+
+		for (int c = 0; c < communityDegrees.length; c++) {
+			double share = communityDegrees[c] / totalWeight;
+			modularity -= share*share;
+		}
+
+		return modularity;
+	}
+}
@@ -0,0 +1,571 @@
+/** Strongly connected components found by several threads at once.
+ *
+ * Uses the trim and forward-backward (FW-BW) method:
+ *
+ * 1) Trim: a vertex with no in edges or no out edges (among the vertices
+ * still left) is an SCC on its own.  Each trim round checks every vertex
+ * in parallel; a few rounds remove most of the trivial SCCs real graphs
+ * have.
+ *
+ * 2) FW-BW: pick a pivot in a set of vertices, and find the vertices the
+ * pivot reaches (FW) and the vertices that reach the pivot (BW), staying
+ * inside the set.  FW and BW intersect in exactly the pivot's SCC, and
+ * every other SCC lies entirely inside FW only, BW only, or neither, so
+ * those three sets are independent problems: the largest is split further
+ * by the same task and the others are forked as new tasks.  Searches over
+ * big sets are themselves split across threads one BFS level at a time.  Sets below a size threshold, and sets
+ * that FW-BW keeps failing to split (long chains), are finished with a
+ * sequential Tarjan search restricted to the set.
+ *
+ * Every set is labelled with a color, and a task only ever writes to the
+ * vertices of its own color, so the per-vertex arrays need no locks.
+ *
+ * The result has the same components as TarjanSCC, but numbered in order
+ * of their lowest dense vertex index rather than in reverse topological
+ * order.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+final class ParallelSCC {
+
+	// trim rounds beyond the first few rarely remove much
+	private static final int MAX_TRIM_ROUNDS = 3;
+	private static final int TRIM_CHUNK = 1 << 14;
+	// sets at most this big are finished by a restricted Tarjan search
+	private static final int SEQUENTIAL_THRESHOLD = 1 << 12;
+	// frontiers at least this big are expanded by several threads
+	private static final int PARALLEL_FRONTIER = 1 << 12;
+	private static final int FRONTIER_CHUNK = 1 << 10;
+	// vertices looked at when choosing a pivot
+	private static final int PIVOT_CANDIDATES = 64;
+	// a split is unproductive if its largest subset keeps more than all
+	// but 1/MIN_SPLIT_FRACTION of the set
+	private static final int MIN_SPLIT_FRACTION = 8;
+	// unproductive splits in a row before falling back to Tarjan
+	private static final int MAX_UNPRODUCTIVE_SPLITS = 3;
+
+	private static final int TRIMMED = -1;
+	private static final int UNASSIGNED = -1;
+
+	private final int n;
+	private final int[] offsets;
+	private final int[] neighbors;
+	private final int[] inOffsets;
+	private final int[] inNeighbors;
+
+	// color of the set each vertex is in (TRIMMED once trimmed)
+	private final int[] color;
+	// representative (pivot, root, or itself) of each vertex's SCC
+	private final int[] componentOf;
+	// id of the last forward / backward search that reached each vertex
+	private final AtomicIntegerArray forwardMark;
+	private final AtomicIntegerArray backwardMark;
+
+	// scratch for the restricted Tarjan searches
+	private final int[] discovered;
+	private final int[] lowLink;
+	private final int[] nextEdge;
+
+	private final AtomicInteger nextColor;
+	private final AtomicInteger nextSearch;
+
+	private ParallelSCC(CompactAdjacency forward) {
+
+		CompactAdjacency backward = forward.transpose();
+
+		this.n = forward.size();
+		this.offsets = forward.offsets;
+		this.neighbors = forward.neighbors;
+		this.inOffsets = backward.offsets;
+		this.inNeighbors = backward.neighbors;
+
+		this.color = new int[n];
+		this.componentOf = new int[n];
+		Arrays.fill(componentOf, UNASSIGNED);
+		this.forwardMark = new AtomicIntegerArray(n);
+		this.backwardMark = new AtomicIntegerArray(n);
+
+		this.discovered = new int[n];
+		this.lowLink = new int[n];
+		this.nextEdge = new int[n];
+
+		this.nextColor = new AtomicInteger(1);
+		this.nextSearch = new AtomicInteger(1);
+	}
+
+	/** Find the strongly connected components of a graph using several
+	 * threads.
+	 *
+	 * @param graph is the graph to search
+	 * @param vertexIndex is the graph's index, used to name the result's
+	 * vertices
+	 * @param numThreads is the number of threads to use
+	 * @return the component of every vertex, with components numbered in
+	 * order of their lowest dense vertex index
+	 */
+	static SCCResult findComponents(IndexedAdjacency graph,
+									VertexIndex vertexIndex, int numThreads) {
+
+		if (numThreads < 1) {
+			throw new IllegalArgumentException("Need at least one thread");
+		}
+
+		ParallelSCC search = new ParallelSCC(toCompact(graph, vertexIndex));
+		ForkJoinPool pool = new ForkJoinPool(numThreads);
+
+		try {
+			return search.run(pool, vertexIndex);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static CompactAdjacency toCompact(IndexedAdjacency graph,
+											  VertexIndex vertexIndex) {
+
+		if (graph instanceof CompactAdjacency) {
+			return (CompactAdjacency)graph;
+		}
+
+		int n = graph.size();
+		int[] offsets = new int[n + 1];
+		for (int i = 0; i < n; i++) {
+			offsets[i + 1] = offsets[i] + graph.outDegree(i);
+		}
+
+		int[] neighbors = new int[offsets[n]];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < graph.outDegree(i); j++) {
+				neighbors[offsets[i] + j] = graph.outNeighbor(i, j);
+			}
+		}
+
+		return new CompactAdjacency(vertexIndex.toVertexIDArray(), offsets,
+									neighbors);
+	}
+
+	private SCCResult run(ForkJoinPool pool, VertexIndex vertexIndex) {
+
+		for (int round = 0; round < MAX_TRIM_ROUNDS; round++) {
+			if (pool.invoke(new TrimTask(0, n)) == 0) {
+				break;
+			}
+		}
+
+		IntList remaining = new IntList(n);
+		for (int v = 0; v < n; v++) {
+			if (componentOf[v] == UNASSIGNED) {
+				remaining.addInt(v);
+			}
+		}
+
+		// every untrimmed vertex starts with color 0
+		pool.invoke(new ForwardBackwardTask(remaining.toIntArray(), 0));
+
+		return relabel(vertexIndex);
+	}
+
+	// number components by their lowest vertex index
+	private SCCResult relabel(VertexIndex vertexIndex) {
+
+		int[] number = new int[n];
+		Arrays.fill(number, -1);
+		int[] labels = new int[n];
+		int[] sizes = new int[Math.max(n, 1)];
+		int[] roots = new int[Math.max(n, 1)];
+		int numComponents = 0;
+
+		for (int v = 0; v < n; v++) {
+			int representative = componentOf[v];
+			if (number[representative] < 0) {
+				roots[numComponents] = representative;
+				number[representative] = numComponents++;
+			}
+			labels[v] = number[representative];
+			sizes[labels[v]]++;
+		}
+
+		return new SCCResult(vertexIndex, labels, sizes, roots, numComponents);
+	}
+
+	/** One trim round over a range of vertices.
+	 *
+	 * Vertices trimmed by other threads in the same round may or may not
+	 * be seen as gone yet; either way only real single-vertex SCCs are
+	 * trimmed, and anything missed is left for the next round or FW-BW.
+	 */
+	private class TrimTask extends RecursiveTask<Integer> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int start;
+		private final int end;
+
+		TrimTask(int start, int end) {
+
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected Integer compute() {
+
+			if (end - start > TRIM_CHUNK) {
+				int middle = (start + end) >>> 1;
+				TrimTask left = new TrimTask(start, middle);
+				left.fork();
+				int right = new TrimTask(middle, end).compute();
+				return left.join() + right;
+			}
+
+			int trimmed = 0;
+
+			for (int v = start; v < end; v++) {
+				if (componentOf[v] == UNASSIGNED
+						&& (!hasLiveNeighbor(v, offsets, neighbors)
+							|| !hasLiveNeighbor(v, inOffsets, inNeighbors))) {
+					componentOf[v] = v;
+					color[v] = TRIMMED;
+					trimmed++;
+				}
+			}
+
+			return trimmed;
+		}
+
+		private boolean hasLiveNeighbor(int v, int[] edgeOffsets, int[] edges) {
+
+			for (int e = edgeOffsets[v]; e < edgeOffsets[v + 1]; e++) {
+				int w = edges[e];
+				if (w != v && componentOf[w] == UNASSIGNED) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+	}
+
+	/** Solve one colored set of vertices.
+	 *
+	 * Each FW-BW split keeps working on its largest subset in this same
+	 * frame and forks only the smaller ones, which are at most half the
+	 * set, so tasks nest at most about log n deep however the splits fall.
+	 * On a long chain every split only peels off a few vertices; after
+	 * MAX_UNPRODUCTIVE_SPLITS such splits in a row the rest of the set is
+	 * handed to a restricted Tarjan search, which keeps the total work
+	 * linear rather than quadratic.
+	 */
+	private class ForwardBackwardTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int[] vertices;
+		private final int setColor;
+
+		ForwardBackwardTask(int[] vertices, int setColor) {
+
+			this.vertices = vertices;
+			this.setColor = setColor;
+		}
+
+		@Override
+		protected void compute() {
+
+			int[] set = vertices;
+			int currentColor = setColor;
+			List<ForwardBackwardTask> forked = new ArrayList<ForwardBackwardTask>();
+			int unproductiveSplits = 0;
+
+			while (set.length > SEQUENTIAL_THRESHOLD
+					&& unproductiveSplits < MAX_UNPRODUCTIVE_SPLITS) {
+
+				int[][] subsets = split(set, currentColor);
+
+				int largest = 0;
+				for (int i = 1; i < subsets.length; i++) {
+					if (subsets[i].length > subsets[largest].length) {
+						largest = i;
+					}
+				}
+
+				// recolor before forking so each task sees only its own set
+				int largestColor = 0;
+				for (int i = 0; i < subsets.length; i++) {
+					if (subsets[i].length == 0) {
+						continue;
+					}
+					int subsetColor = nextColor.getAndIncrement();
+					for (int v : subsets[i]) {
+						color[v] = subsetColor;
+					}
+					if (i == largest) {
+						largestColor = subsetColor;
+					}
+					else {
+						ForwardBackwardTask task =
+								new ForwardBackwardTask(subsets[i], subsetColor);
+						task.fork();
+						forked.add(task);
+					}
+				}
+
+				if (subsets[largest].length
+						> set.length - set.length / MIN_SPLIT_FRACTION) {
+					unproductiveSplits++;
+				}
+				else {
+					unproductiveSplits = 0;
+				}
+
+				set = subsets[largest];
+				currentColor = largestColor;
+			}
+
+			if (set.length > 0) {
+				restrictedTarjan(set, currentColor);
+			}
+
+			for (ForwardBackwardTask task : forked) {
+				task.join();
+			}
+		}
+
+		// assign the pivot's SCC and return the forward only, backward
+		// only and neither subsets of the set
+		private int[][] split(int[] set, int setColor) {
+
+			int pivot = choosePivot(set);
+			boolean parallel = set.length >= PARALLEL_FRONTIER;
+
+			int forwardSearch = nextSearch.getAndIncrement();
+			search(pivot, forwardSearch, setColor, offsets, neighbors,
+				   forwardMark, parallel);
+			int backwardSearch = nextSearch.getAndIncrement();
+			search(pivot, backwardSearch, setColor, inOffsets, inNeighbors,
+				   backwardMark, parallel);
+
+			IntList forwardOnly = new IntList();
+			IntList backwardOnly = new IntList();
+			IntList neither = new IntList();
+
+			for (int v : set) {
+				boolean reached = forwardMark.get(v) == forwardSearch;
+				boolean reaches = backwardMark.get(v) == backwardSearch;
+
+				if (reached && reaches) {
+					componentOf[v] = pivot;
+				}
+				else if (reached) {
+					forwardOnly.addInt(v);
+				}
+				else if (reaches) {
+					backwardOnly.addInt(v);
+				}
+				else {
+					neither.addInt(v);
+				}
+			}
+
+			return new int[][] {forwardOnly.toIntArray(),
+								backwardOnly.toIntArray(), neither.toIntArray()};
+		}
+
+		// the candidate most likely to sit in a big SCC
+		private int choosePivot(int[] set) {
+
+			int pivot = set[0];
+			long best = -1;
+
+			for (int i = 0; i < set.length && i < PIVOT_CANDIDATES; i++) {
+				int v = set[i];
+				long score = (long)(offsets[v + 1] - offsets[v] + 1)
+						* (inOffsets[v + 1] - inOffsets[v] + 1);
+				if (score > best) {
+					best = score;
+					pivot = v;
+				}
+			}
+
+			return pivot;
+		}
+
+		// breadth-first search inside a set, marking reached vertices
+		private void search(int pivot, int searchID, int setColor,
+							int[] edgeOffsets, int[] edges,
+							AtomicIntegerArray mark, boolean parallel) {
+
+			mark.set(pivot, searchID);
+			int[] frontier = {pivot};
+
+			while (frontier.length > 0) {
+				if (parallel && frontier.length >= PARALLEL_FRONTIER) {
+					frontier = new ExpandTask(frontier, 0, frontier.length,
+							setColor, searchID, edgeOffsets, edges, mark).invoke();
+				}
+				else {
+					frontier = expand(frontier, 0, frontier.length, setColor,
+									  searchID, edgeOffsets, edges, mark);
+				}
+			}
+		}
+	}
+
+	// the next BFS level from frontier[start, end)
+	private int[] expand(int[] frontier, int start, int end, int setColor,
+						 int searchID, int[] edgeOffsets, int[] edges,
+						 AtomicIntegerArray mark) {
+
+		IntList next = new IntList();
+
+		for (int i = start; i < end; i++) {
+			int v = frontier[i];
+			for (int e = edgeOffsets[v]; e < edgeOffsets[v + 1]; e++) {
+				int w = edges[e];
+				if (color[w] == setColor && componentOf[w] == UNASSIGNED) {
+					int seen = mark.get(w);
+					// whichever thread claims w first adds it
+					if (seen != searchID && mark.compareAndSet(w, seen, searchID)) {
+						next.addInt(w);
+					}
+				}
+			}
+		}
+
+		return next.toIntArray();
+	}
+
+	/** Expand part of a big frontier, splitting it across threads.
+	 */
+	private class ExpandTask extends RecursiveTask<int[]> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int[] frontier;
+		private final int start;
+		private final int end;
+		private final int setColor;
+		private final int searchID;
+		private final int[] edgeOffsets;
+		private final int[] edges;
+		private final AtomicIntegerArray mark;
+
+		ExpandTask(int[] frontier, int start, int end, int setColor,
+				   int searchID, int[] edgeOffsets, int[] edges,
+				   AtomicIntegerArray mark) {
+
+			this.frontier = frontier;
+			this.start = start;
+			this.end = end;
+			this.setColor = setColor;
+			this.searchID = searchID;
+			this.edgeOffsets = edgeOffsets;
+			this.edges = edges;
+			this.mark = mark;
+		}
+
+		@Override
+		protected int[] compute() {
+
+			if (end - start <= FRONTIER_CHUNK) {
+				return expand(frontier, start, end, setColor, searchID,
+							  edgeOffsets, edges, mark);
+			}
+
+			int middle = (start + end) >>> 1;
+			ExpandTask left = new ExpandTask(frontier, start, middle, setColor,
+					searchID, edgeOffsets, edges, mark);
+			left.fork();
+			int[] right = new ExpandTask(frontier, middle, end, setColor,
+					searchID, edgeOffsets, edges, mark).compute();
+			int[] leftNext = left.join();
+
+			int[] next = Arrays.copyOf(leftNext, leftNext.length + right.length);
+			System.arraycopy(right, 0, next, leftNext.length, right.length);
+
+			return next;
+		}
+	}
+
+	/** Tarjan's algorithm over one colored set (see TarjanSCC).
+	 *
+	 * Edges leaving the set are ignored; they cannot be inside an SCC of
+	 * the set's vertices.
+	 */
+	private void restrictedTarjan(int[] vertices, int setColor) {
+
+		int[] callStack = new int[vertices.length];
+		int[] componentStack = new int[vertices.length];
+		int componentTop = -1;
+		int counter = 0;
+
+		for (int start : vertices) {
+
+			if (discovered[start] != 0) {
+				continue;
+			}
+
+			int callTop = 0;
+			callStack[0] = start;
+			discovered[start] = lowLink[start] = ++counter;
+			componentStack[++componentTop] = start;
+			nextEdge[start] = offsets[start];
+
+			while (callTop >= 0) {
+
+				int vertex = callStack[callTop];
+
+				if (nextEdge[vertex] < offsets[vertex + 1]) {
+
+					int neighbor = neighbors[nextEdge[vertex]++];
+
+					if (color[neighbor] != setColor) {
+						continue;
+					}
+
+					if (discovered[neighbor] == 0) {
+						discovered[neighbor] = lowLink[neighbor] = ++counter;
+						componentStack[++componentTop] = neighbor;
+						nextEdge[neighbor] = offsets[neighbor];
+						callStack[++callTop] = neighbor;
+					}
+					else if (componentOf[neighbor] == UNASSIGNED
+							 && discovered[neighbor] < lowLink[vertex]) {
+						// unassigned and discovered means still on the stack
+						lowLink[vertex] = discovered[neighbor];
+					}
+				}
+				else {
+					if (lowLink[vertex] == discovered[vertex]) {
+						int member;
+						do {
+							member = componentStack[componentTop--];
+							componentOf[member] = vertex;
+						} while (member != vertex);
+					}
+
+					callTop--;
+
+					if (callTop >= 0) {
+						int parent = callStack[callTop];
+						if (lowLink[vertex] < lowLink[parent]) {
+							lowLink[parent] = lowLink[vertex];
+						}
+					}
+				}
+			}
+		}
+	}
+}
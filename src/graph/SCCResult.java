@@ -0,0 +1,230 @@
+/** The strongly connected components (SCCs) of a graph, as labels.
+ *
+ * Every vertex gets the number of its component, in an int array indexed
+ * by the graph's dense vertex index, so a result costs a few ints per
+ * vertex however the components are shaped.  Graph objects for the
+ * components are only built if asked for (see the graphs' getSCCs()).
+ *
+ * Components are numbered 0..getNumComponents()-1.  The sequential
+ * search (findSCCs()) numbers them in a reverse topological order of the
+ * condensation: an edge between two components always goes to the lower
+ * numbered one.  The parallel search (findSCCs(numThreads)) numbers them
+ * in order of their lowest dense vertex index instead.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SCCResult {
+
+	private final VertexIndex vertexIndex;
+	private final int[] componentOf;
+	private final int[] componentSizes;
+	private final int[] componentRoots;
+	private final int numComponents;
+
+	SCCResult(VertexIndex vertexIndex, int[] componentOf, int[] componentSizes,
+			  int[] componentRoots, int numComponents) {
+
+		this.vertexIndex = vertexIndex;
+		this.componentOf = componentOf;
+		this.componentSizes = componentSizes;
+		this.componentRoots = componentRoots;
+		this.numComponents = numComponents;
+	}
+
+	public int getNumComponents() {
+
+		return numComponents;
+	}
+
+	/** Get the component of a vertex.
+	 *
+	 * @param vertexID is the ID of a vertex in the graph
+	 */
+	public int getComponentOf(int vertexID) {
+
+		int index = vertexIndex.indexOf(vertexID);
+
+		if (index < 0) {
+			throw new IllegalArgumentException("Vertex " + vertexID
+					+ " is not in the graph");
+		}
+
+		return componentOf[index];
+	}
+
+	/** Get the component of the vertex at a dense index.
+	 */
+	public int getComponentOfIndex(int index) {
+
+		return componentOf[index];
+	}
+
+	/** Get the number of vertices the components cover.
+	 */
+	public int getNumVertices() {
+
+		return componentOf.length;
+	}
+
+	/** Get the component of every vertex, indexed by the graph's dense
+	 * vertex index (see getVertexIndex()).
+	 */
+	public int[] getComponentLabels() {
+
+		return Arrays.copyOf(componentOf, componentOf.length);
+	}
+
+	public int getComponentSize(int component) {
+
+		checkComponent(component);
+
+		return componentSizes[component];
+	}
+
+	/** Get the size of every component, indexed by component number.
+	 */
+	public int[] getComponentSizes() {
+
+		return Arrays.copyOf(componentSizes, numComponents);
+	}
+
+	/** Get the vertex ID of the vertex the search entered a component at.
+	 */
+	public int getComponentRoot(int component) {
+
+		checkComponent(component);
+
+		return vertexIndex.getVertexID(componentRoots[component]);
+	}
+
+	/** Get the number of the largest component (the first, if tied).
+	 *
+	 * @return the component number, or -1 if the graph has no vertices
+	 */
+	public int getLargestComponent() {
+
+		int largest = -1;
+
+		for (int c = 0; c < numComponents; c++) {
+			if (largest < 0 || componentSizes[c] > componentSizes[largest]) {
+				largest = c;
+			}
+		}
+
+		return largest;
+	}
+
+	/** Get the vertex IDs in a component, in dense index order.
+	 *
+	 * Scans every vertex; use getMembersByComponent() to get every
+	 * component's members at once.
+	 */
+	public int[] getMembers(int component) {
+
+		checkComponent(component);
+
+		int[] members = new int[componentSizes[component]];
+		int filled = 0;
+
+		for (int i = 0; i < componentOf.length; i++) {
+			if (componentOf[i] == component) {
+				members[filled++] = vertexIndex.getVertexID(i);
+			}
+		}
+
+		return members;
+	}
+
+	/** Get the dense indices of every component's vertices.
+	 *
+	 * @return a list with, for each component in order, its vertices'
+	 * dense indices in ascending order
+	 */
+	public List<int[]> getMemberIndicesByComponent() {
+
+		List<int[]> members = new ArrayList<int[]>(numComponents);
+		for (int c = 0; c < numComponents; c++) {
+			members.add(new int[componentSizes[c]]);
+		}
+
+		int[] filled = new int[numComponents];
+		for (int i = 0; i < componentOf.length; i++) {
+			members.get(componentOf[i])[filled[componentOf[i]]++] = i;
+		}
+
+		return members;
+	}
+
+	/** Get the vertex IDs of every component's vertices.
+	 *
+	 * @return a list with, for each component in order, its vertex IDs
+	 * in dense index order
+	 */
+	public List<int[]> getMembersByComponent() {
+
+		List<int[]> members = getMemberIndicesByComponent();
+
+		for (int[] component : members) {
+			for (int i = 0; i < component.length; i++) {
+				component[i] = vertexIndex.getVertexID(component[i]);
+			}
+		}
+
+		return members;
+	}
+
+	/** Check whether another result splits the same vertices into the same
+	 * components, however the components are numbered.
+	 *
+	 * @param other is a result for a graph with the same dense vertex index
+	 */
+	public boolean hasSameComponents(SCCResult other) {
+
+		if (other.numComponents != numComponents
+				|| other.componentOf.length != componentOf.length) {
+			return false;
+		}
+
+		// each of this result's components must map to exactly one of
+		// other's; with equal counts that makes the mapping one to one
+		int[] matching = new int[numComponents];
+		Arrays.fill(matching, -1);
+		int[] matched = new int[numComponents];
+		Arrays.fill(matched, -1);
+
+		for (int i = 0; i < componentOf.length; i++) {
+			int mine = componentOf[i];
+			int theirs = other.componentOf[i];
+
+			if (matching[mine] < 0 && matched[theirs] < 0) {
+				matching[mine] = theirs;
+				matched[theirs] = mine;
+			}
+			else if (matching[mine] != theirs) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	public VertexIndex getVertexIndex() {
+
+		return vertexIndex.readOnly();
+	}
+
+	private void checkComponent(int component) {
+
+		if (component < 0 || component >= numComponents) {
+			throw new IllegalArgumentException("No component " + component
+					+ " (there are " + numComponents + ")");
+		}
+	}
+}
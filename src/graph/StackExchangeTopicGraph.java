@@ -18,16 +18,23 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
-import java.lang.ProcessBuilder.Redirect;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
+import java.util.NoSuchElementException;
+import java.util.Random;
 import java.util.Set;
-import java.util.Stack;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
@@ -41,10 +48,15 @@ public class StackExchangeTopicGraph implements Graph {
 
 	private String topic;
 	private Map<Integer,Vertex> vertices;
+	// dense index of every vertex ID, for array-based algorithms
+	// (and the 0-based IDs the Louvain method needs)
+	private VertexIndex vertexIndex;
 	
 	private List<Graph> SCCList;
-	private Map<Integer,Map<Integer,StackExchangeTopicGraph>> levelToCommunities;
+	private Map<Integer,Map<Integer,SubgraphView>> levelToCommunities;
 	private Integer highestLevelCommunity;
+	// every level's community of every vertex, once found or read
+	private LouvainHierarchy communityHierarchy;
 	// should egonets have a map of vertID --> its egonet?
 	
 	// maps from specific node type ID (e.g., userID, postID) 
@@ -54,13 +66,13 @@ public class StackExchangeTopicGraph implements Graph {
 	private Map<Integer,CommentNode> comments;
 	private Map<Integer,UserNode> users;
 	
-	// is there a better way to do this?  need the String map for fast access
-	// when creating QuestionNodes but ID map is less fragile.
 	// if we concede a Tag object cannot exist without a Question that has it
 	// as a tag, we could create Tags upon Question creation instead of
 	// separately.  But StackExchange allows Tags with 0 related questions.
-	private Map<Integer,Tag> tagIDMap;
-	private Map<String,Tag> tagStringMap;
+	// the table is shared with graphs derived from this one (see TagTable);
+	// the counts are this graph's own
+	private TagTable tagTable;
+	private TagCounts tagCounts;
 	
 	// to enforce unique vertex IDs
 	// addVertex methods fail if the ID is already mapped and
@@ -80,9 +92,25 @@ public class StackExchangeTopicGraph implements Graph {
 	
 	public StackExchangeTopicGraph(String topic) {
 		
+		this(topic, null);
+	}
+	
+	/** Make an empty graph that uses another graph's tags.
+	 * 
+	 * The tag table is shared, not copied (see TagTable), and every tag 
+	 * starts with a count of 0 in the new graph.  Derived graphs (egonets,
+	 * SCCs, communities, transposes) are made this way.
+	 * 
+	 * @param topic is the new graph's topic
+	 * @param tagTable is the other graph's tag table (see getTagTable()),
+	 * or null to start with no tags
+	 */
+	public StackExchangeTopicGraph(String topic, TagTable tagTable) {
+		
 		this.topic = topic;
 		
 		this.vertices = new HashMap<Integer,Vertex>();
+		this.vertexIndex = new VertexIndex();
 		
 		this.users = new HashMap<Integer,UserNode>();
 		this.questions = new HashMap<Integer,QuestionNode>();
@@ -90,13 +118,14 @@ public class StackExchangeTopicGraph implements Graph {
 		this.comments = new HashMap<Integer,CommentNode>();
 		
 		this.highestLevelCommunity = null;
+		this.communityHierarchy = null;
 		
-		this.tagIDMap = new HashMap<Integer,Tag>();
-		this.tagStringMap = new HashMap<String,Tag>();
+		this.tagTable = tagTable == null ? new TagTable() : tagTable.share();
+		this.tagCounts = new TagCounts();
 		
 		this.SCCList = new ArrayList<Graph>();
 		this.levelToCommunities = 
-				new HashMap<Integer,Map<Integer,StackExchangeTopicGraph>>();
+				new HashMap<Integer,Map<Integer,SubgraphView>>();
 		this.disallowedPosts = new HashMap<Integer,Boolean>();
 	}
 	
@@ -304,7 +333,29 @@ public class StackExchangeTopicGraph implements Graph {
 		}
 
 		String tagsString = nodeAttributes.getNamedItem("Tags").getNodeValue();
-		
+
+		return createQuestion(vertexID, postID, rawScore, body, authorUserID,
+				commentCount, viewCount, acceptedAnswerID, title, tagsString,
+				answerCount, favoriteCount);
+	}
+
+	/** Create a QuestionNode from already-decoded question data.
+	 *
+	 * Shared by every loader (DOM, streaming) so the checks and the tag
+	 * resolution for a question only live in one place.  Does not add the
+	 * created QuestionNode to the graph.
+	 *
+	 * @param vertexID is the unique id of the vertex in this graph
+	 * @param tagsString is the raw Tags attribute (e.g. "<sql><mysql>")
+	 * @return a new QuestionNode with the given data
+	 */
+	public QuestionNode createQuestion(int vertexID, int postID, int rawScore,
+									   String body, int authorUserID,
+									   int commentCount, int viewCount,
+									   Integer acceptedAnswerID, String title,
+									   String tagsString, int answerCount,
+									   int favoriteCount) {
+
 		if (vertices.containsKey(vertexID)) {
 			throw new IllegalArgumentException("Graph already contains "
 					+ "vertex with vertexID " + vertexID);
@@ -312,17 +363,19 @@ public class StackExchangeTopicGraph implements Graph {
 		
 		List<String> tagStrings = parseRawTags(tagsString);
 		List<Integer> thisQuestionTagIDList = 
-				new ArrayList<Integer>(tagStringMap.size());
+				new ArrayList<Integer>(tagStrings.size());
 		
 		for (String tagString : tagStrings) {
 			
-			if (!tagStringMap.containsKey(tagString)) {
+			int tagIndex = tagTable.indexOfName(tagString);
+			
+			if (tagIndex < 0) {
 				throw new IllegalArgumentException("Tag " + tagString + " in "
 						+ "Question with postID " + postID + " does not exist"
 								+ " in the topic.");
 			}
 			
-			thisQuestionTagIDList.add(tagStringMap.get(tagString).getTagID());
+			thisQuestionTagIDList.add(tagTable.getTagID(tagIndex));
 		}
 		
 		// name is possibly not needed
@@ -346,12 +399,20 @@ public class StackExchangeTopicGraph implements Graph {
 	public void addQuestionToGraph(QuestionNode question) {
 		
 		vertices.put(question.getVertexID(), question);
+		vertexIndex.add(question.getVertexID());
 		questions.put(question.getPostID(), question);
 		
 		for (int tagID : question.getTags()) {
 			
-			Tag tag = tagIDMap.get(tagID);
-			tag.setThisGraphTagCount(tag.getThisGraphTagCount()+1);
+			int tagIndex = tagTable.indexOf(tagID);
+			
+			if (tagIndex < 0) {
+				throw new IllegalArgumentException("Tag " + tagID + " of "
+						+ "Question with postID " + question.getPostID() 
+						+ " is not in the graph.");
+			}
+			
+			tagCounts.increment(tagIndex);
 		}
 		
 		uniqueVertexIDCounter++;
@@ -392,7 +453,24 @@ public class StackExchangeTopicGraph implements Graph {
 				getNamedItem("CommentCount").getNodeValue());
 		int parentQuestionID = Integer.parseInt(nodeAttributes.
 				getNamedItem("ParentId").getNodeValue());
-		
+
+		return createAnswer(vertexID, postID, rawScore, body, authorUserID,
+				commentCount, parentQuestionID);
+	}
+
+	/** Create an AnswerNode from already-decoded answer data.
+	 *
+	 * The parent question must already be in the graph.  Does not add the
+	 * created AnswerNode to the graph.
+	 *
+	 * @param vertexID is the unique id of the vertex in this graph
+	 * @param parentQuestionID is the postID of the answer's question
+	 * @return a new AnswerNode with the given data
+	 */
+	public AnswerNode createAnswer(int vertexID, int postID, int rawScore,
+								   String body, int authorUserID,
+								   int commentCount, int parentQuestionID) {
+
 		// not absolutely necessary but a nice way to ensure
 		// the answer has a parent
 		if (!questions.containsKey(parentQuestionID)) {
@@ -425,6 +503,7 @@ public class StackExchangeTopicGraph implements Graph {
 	public void addAnswerToGraph(AnswerNode answer) {
 		
 		vertices.put(answer.getVertexID(), answer);
+		vertexIndex.add(answer.getVertexID());
 		answers.put(answer.getPostID(), answer);
 		
 		uniqueVertexIDCounter++;
@@ -463,7 +542,24 @@ public class StackExchangeTopicGraph implements Graph {
 				getNamedItem("UserId").getNodeValue());
 		int parentPostID = Integer.parseInt(nodeAttributes.
 				getNamedItem("PostId").getNodeValue());
-		
+
+		return createComment(vertexID, postID, rawScore, body, authorUserID,
+				parentPostID);
+	}
+
+	/** Create a CommentNode from already-decoded comment data.
+	 *
+	 * Does not add the created CommentNode to the graph.
+	 *
+	 * @param vertexID is the unique id of the vertex in this graph
+	 * @param parentPostID is the postID of the commented question or answer
+	 * @return a new CommentNode with the given data, or null if the
+	 * parent post is disallowed
+	 */
+	public CommentNode createComment(int vertexID, int postID, int rawScore,
+									 String body, int authorUserID,
+									 int parentPostID) {
+
 		if (disallowedPosts.containsKey(parentPostID)) {
 			
 			return null;
@@ -505,6 +601,7 @@ public class StackExchangeTopicGraph implements Graph {
 	public void addCommentToGraph(CommentNode comment) {
 		
 		vertices.put(comment.getVertexID(), comment);
+		vertexIndex.add(comment.getVertexID());
 		comments.put(comment.getPostID(), comment);
 		
 		uniqueVertexIDCounter++;
@@ -550,19 +647,40 @@ public class StackExchangeTopicGraph implements Graph {
 		int downVotes = Integer.parseInt(nodeAttributes.
 				getNamedItem("DownVotes").getNodeValue());
 		
-		int accountID;
+		Integer accountID;
 		if (nodeAttributes.getNamedItem("AccountId") == null) {
+			accountID = null;
+		}
+		else {
+			accountID = Integer.parseInt(nodeAttributes.
+					getNamedItem("AccountId").getNodeValue());
+		}
+
+		return createUser(vertexID, name, userID, reputation, age,
+						  upVotes, downVotes, accountID);
+	}
+
+	/** Create a UserNode from already-decoded user data.
+	 *
+	 * Does not add the created UserNode to the graph.
+	 *
+	 * @param vertexID is the unique id of the vertex in this graph
+	 * @param age is the user's age (nullable)
+	 * @param accountID is the user's network account id (nullable)
+	 * @return a new UserNode with the given data
+	 */
+	public UserNode createUser(int vertexID, String name, int userID,
+							   int reputation, Integer age, int upVotes,
+							   int downVotes, Integer accountID) {
+
+		if (accountID == null) {
 			// not sure how a user could not have an account but Stack Exchange
 			// topic "Programmers" user 196327 has no account so we have to 
 			// deal with it.  note: -1 is the community account and -2 is the
 			// dummy user account
 			accountID = -3;
 		}
-		else {
-			accountID = Integer.parseInt(nodeAttributes.
-					getNamedItem("AccountId").getNodeValue());
-		}
-		
+
 		if (vertices.containsKey(vertexID)) {
 			throw new IllegalArgumentException("Graph already contains "
 					+ "vertex with vertexID " + vertexID);
@@ -581,6 +699,7 @@ public class StackExchangeTopicGraph implements Graph {
 	public void addUserToGraph(UserNode user) {
 		
 		vertices.put(user.getVertexID(), user);
+		vertexIndex.add(user.getVertexID());
 		users.put(user.getUserID(), user);
 		
 		uniqueVertexIDCounter++;
@@ -609,19 +728,37 @@ public class StackExchangeTopicGraph implements Graph {
 		int tagCount = Integer.parseInt(nodeAttributes.
 				getNamedItem("Count").getNodeValue());
 		
-		Tag tag = new Tag(topic, tagID, tagName, tagCount, 0);
-		
-		return tag;
+		return createTag(tagID, tagName, tagCount);
+	}
+
+	/** Create a Tag object from already-decoded tag data.
+	 *
+	 * @param tagCount is the number of questions with the tag in the topic
+	 * @return a new Tag with 0 count in this graph
+	 */
+	public Tag createTag(int tagID, String tagName, int tagCount) {
+
+		return new Tag(topic, tagID, tagName, tagCount, 0);
 	}
 	
 	/** Add a Tag object to the graph metadata.
+	 * 
+	 * Only the tag's fields are kept, not the object.  A tag with the same 
+	 * ID as one already in the graph replaces it.
 	 * 
 	 * @param the Tag object to add to the graph
 	 */
 	public void addTagToGraph(Tag tag) {
 		
-		tagIDMap.put(tag.getTagID(), tag);
-		tagStringMap.put(tag.getTagName(), tag);
+		// copy on write: other graphs may be using the table
+		if (tagTable.isShared()) {
+			tagTable = tagTable.copy();
+		}
+		
+		int tagIndex = tagTable.add(tag.getTagID(), tag.getTagName(), 
+									tag.getTopic(), 
+									tag.getHighestLevelGraphTagCount());
+		tagCounts.set(tagIndex, tag.getThisGraphTagCount());
 	}
 	
 	/** Add a directed edge to the graph.
@@ -928,175 +1065,142 @@ public class StackExchangeTopicGraph implements Graph {
 	 * 
 	 * The returned graph(s) does not share any objects with the original graph.
 	 * 
+	 * The components are found up front by findSCCs(), but each SCC graph
+	 * (with its copies of the vertices and tags) is only built the first 
+	 * time it is read from the returned list, and kept after that.  The 
+	 * list is not safe for use by several threads at once.  Use 
+	 * getSCCViews() to read the SCCs without copying anything.
+	 * 
 	 * @return a list of subgraphs that comprise the strongly connected components
-	 * of this graph.
+	 * of this graph, in the order of findSCCs().
 	 * 
 	 * @see graph.Graph#getSCCs()
 	 */
 	@Override
 	public List<Graph> getSCCs() {
-
-		Stack<Integer> vertexIDStack = new Stack<Integer>();
 		
-		for (int vertexID : vertices.keySet()) {
-			
-			vertexIDStack.push(vertexID);
-		}
+		final List<SubgraphView> views = getSCCViews();
 		
-		Stack<Integer> finishOrder = allDFS(this, vertexIDStack, false);
-		StackExchangeTopicGraph thisTranspose = getTranspose();
-		// don't need the finishing order after second pass
-		allDFS(thisTranspose, finishOrder, true);
+		SCCList = new AbstractList<Graph>() {
+			
+			private final Graph[] built = new Graph[views.size()];
+			
+			@Override
+			public Graph get(int component) {
+				
+				if (built[component] == null) {
+					built[component] = views.get(component).materialize();
+				}
+				
+				return built[component];
+			}
+			
+			@Override
+			public int size() {
+				
+				return built.length;
+			}
+		};
 		
 		return SCCList;
 	}
 	
-	
-	/** Use depth-first search (DFS) to discover all vertices and all strongly
-	 * connected components (SCCs) in a StackExchange topic.
+	/** Find all strongly connected components (SCCs) as read-only views 
+	 * of this graph.
 	 * 
-	 * Returns vertices in a stack with later finishing DFS times on top to
-	 * first finishing DFS times on bottom.  A vertex is "finished" with 
-	 * DFS when DFS has discovered everything there is to discover from that
-	 * vertex.
+	 * Each view is only made the first time it is read from the returned
+	 * list, and is not kept, so reading every SCC once never holds more 
+	 * than one view's bit set.
 	 * 
-	 * @param graph is the graph in which to do DFS and uncover SCCs.  If
-	 *   secondPass is true, this should be a transpose of the original graph.
-	 * @param verticesToVisit is the (possibly ordered) list of all vertices to
-	 *   visit.  If secondPass is true, the stack should be ordered as if it were
-	 *   given by the return value of this method on the first pass.
-	 * @param secondPass is a boolean that indicates whether the graph is the
-	 *   transpose of the graph in which we want to discover SCCs and whether
-	 *   verticesToVisit is ordered according to the ordering mentioned above.
-	 * @return 
+	 * @return a view of each SCC, in the order of findSCCs()
 	 */
-	public Stack<Integer> allDFS(StackExchangeTopicGraph graph, 
-								 Stack<Integer> verticesToVisit,
-								 boolean secondPass) {
+	public List<SubgraphView> getSCCViews() {
 		
-		Stack<Integer> finished = new Stack<Integer>();
-		Set<Integer> visited = new HashSet<Integer>(graph.vertices.size()*2,1);
+		final SCCResult sccs = findSCCs();
+		final List<int[]> members = sccs.getMemberIndicesByComponent();
 		
-		while (!verticesToVisit.isEmpty()) {
-			
-			int vertexToVisitID = verticesToVisit.pop();
+		return new AbstractList<SubgraphView>() {
 			
-			if (!visited.contains(vertexToVisitID)) {
-
-				StackExchangeTopicGraph SCC = null;
+			@Override
+			public SubgraphView get(int component) {
 				
-				if (secondPass) {
-					// if second pass, need to create the SCC (a subgraph)
-					SCC = new StackExchangeTopicGraph("SCC with Parent '" + 
-								topic + "' and " + "Root " + vertexToVisitID);
-					
-					// make a copy of each tag in the parent graph
-					// add it to the SCC but with 0 count for the SCC
-					for (int tagID : graph.getTagIDMap().keySet()) {
-						
-						Tag tag = graph.getTagIDMap().get(tagID);
-						Tag tagCopy = tag.makeCopy();
-						SCC.getTagIDMap().put(tagCopy.getTagID(), tagCopy);
-					}
-					
-					Vertex vertexSuper = graph.vertices.get(vertexToVisitID);
-					Vertex vertexSCC = vertexSuper.makeCopy();
-					vertexSCC.setName(vertexSCC.getName() + " in " + SCC.getTopic());
-					SCC.addVertex(vertexSCC);
+				BitSet memberIndices = new BitSet();
+				for (int index : members.get(component)) {
+					memberIndices.set(index);
 				}
-
-				singleDFS(graph, vertexToVisitID, vertexToVisitID, 
-						  visited, finished, secondPass, SCC);
 				
-				if (secondPass) {
-					// at this point, all vertices are added to the SCC
-					// and in their rightful maps within the SCC
-					// time to add edges!
-					SCC.addAllEdges();
-					SCCList.add(SCC);
-				}
+				return new SubgraphView(StackExchangeTopicGraph.this, 
+						"SCC with Parent '" + topic + "' and " + "Root " 
+						+ sccs.getComponentRoot(component), memberIndices);
 			}
-		}
-
-		return finished;
+			
+			@Override
+			public int size() {
+				
+				return members.size();
+			}
+		};
 	}
 	
-	/** Do a depth-first search as a helper method for discovering SCCs.
+	/** Find the strongly connected components (SCCs) of this graph as labels.
 	 * 
-	 * Do a DFS in a directed graph from a particular vertex as part of 
-	 * computing either the "finishing order" of all vertices in the graph 
-	 * or assigning vertices to SCCs.
+	 * Uses an iterative version of Tarjan's algorithm: one pass, no 
+	 * transpose, and no recursion, so long chains of posts cannot overflow
+	 * the stack.  No subgraphs are built.
 	 * 
-	 * If second pass is false, this method is useful because it populates
-	 * the "finished" stack passed to it, which gives the ordering that 
-	 * should be used with the given graph's transpose to discover SCCs.
+	 * @return the component of every vertex
+	 */
+	public SCCResult findSCCs() {
+		
+		return TarjanSCC.findComponents(
+				new VertexListAdjacency(vertices, vertexIndex), vertexIndex);
+	}
+	
+	/** Find the strongly connected components (SCCs) of this graph as labels,
+	 * using several threads.
 	 * 
-	 * If secondPass is true, this method will populate the graph's
-	 * SCC list.
+	 * The components are the same as findSCCs() gives, but numbered in 
+	 * order of their lowest dense vertex index (see ParallelSCC).
 	 * 
-	 * @param graph is the graph in which to do the DFS.
-	 * @param vertexID is the vertex from which to do the DFS.
-	 * @param root is the root of the current SCC.
-	 * @param visited is the set of vertices that have been discovered
-	 *   by DFS so far.
-	 * @param finished is the list of vertices from which DFS has already
-	 *   discovered all vertices there are to discover.
-	 * @param secondPass is a boolean that indicates whether the correct
-	 *   finishing order has already been calculated and whether the SCC
-	 *   list should be populated.
-	 * @param SCC is the current SCC (this should be be null if secondPass
-	 *   is false).
+	 * @param numThreads is the number of threads to use
+	 * @return the component of every vertex
 	 */
-	public void singleDFS(StackExchangeTopicGraph graph, int vertexID, 
-						  int root, Set<Integer> visited,
-						  Stack<Integer> finished, boolean secondPass,
-						  StackExchangeTopicGraph SCC) {
+	public SCCResult findSCCs(int numThreads) {
 		
-		if (secondPass == false && SCC != null) {
-			throw new IllegalArgumentException("SCC should be null "
-					+ "on first pass");
-		}
-		else if (secondPass == true && SCC == null) {
-			throw new IllegalArgumentException("SCC should not be null "
-					+ "on second pass");
-		}
-
-		visited.add(vertexID);
+		return ParallelSCC.findComponents(
+				new VertexListAdjacency(vertices, vertexIndex), vertexIndex, 
+				numThreads);
+	}
+	
+	/** Build the condensation of this graph: its SCCs, the DAG of edges
+	 * between them, and the users, posts and total score of each SCC.
+	 * 
+	 * @return the condensation of the components findSCCs() finds
+	 */
+	public Condensation getCondensation() {
 		
-		Vertex vertex = graph.vertices.get(vertexID);
+		return getCondensation(findSCCs());
+	}
+	
+	/** Build the condensation of this graph from components already found.
+	 * 
+	 * @param sccs are this graph's components, from either findSCCs() or
+	 * findSCCs(int)
+	 */
+	public Condensation getCondensation(SCCResult sccs) {
 		
-		if (secondPass && !SCC.getVertices().keySet().contains(vertexID)) {
-
-			Vertex vertexCopy = vertex.makeCopy();
-			vertexCopy.setName(vertexCopy.getName() + " in " + SCC.getTopic());
-			SCC.addVertex(vertexCopy);
+		if (sccs.getVertexIndex() != vertexIndex.readOnly() 
+				|| sccs.getNumVertices() != vertexIndex.size()) {
+			throw new IllegalArgumentException("Components are not of this graph");
 		}
 		
-		for (Integer neighborID : vertex.getOutEdges()) {
-			
-			Vertex neighbor = vertices.get(neighborID);
-			
-			if (secondPass) {
-				// if we haven't already visited it and
-				// it isn't already in this SCC
-				if (!visited.contains(neighborID) &&
-					!SCC.getVertices().keySet().contains(neighborID)) {
-
-					Vertex neighborCopy = neighbor.makeCopy();
-					neighborCopy.setName(neighborCopy.getName() 
-							+ " in " + SCC.getTopic());
-					SCC.addVertex(neighborCopy);
-				}
-			}
-			
-			if (!visited.contains(neighborID)) {
-				
-				singleDFS(graph, neighborID, root, visited, finished,
-						  secondPass, SCC);
-			}
+		Vertex[] indexed = new Vertex[vertexIndex.size()];
+		for (int i = 0; i < indexed.length; i++) {
+			indexed[i] = vertices.get(vertexIndex.getVertexID(i));
 		}
 		
-		finished.push(vertexID);
+		return Condensation.build(sccs, 
+				new VertexListAdjacency(vertices, vertexIndex), indexed);
 	}
 	
 	/** Reverse the edges of this graph.
@@ -1109,17 +1213,14 @@ public class StackExchangeTopicGraph implements Graph {
 	 */
 	public StackExchangeTopicGraph getTranspose() {
 		
+		// share the tags, starting each count at the topic's count
 		StackExchangeTopicGraph transposeGraph = 
-				new StackExchangeTopicGraph(topic + " (Transpose)");
+				new StackExchangeTopicGraph(topic + " (Transpose)", tagTable);
 		
-		// make a complete copy of each tag in the parent graph
-		// add it to the transpose graph
-		for (int tagID : this.getTagIDMap().keySet()) {
+		for (int tagIndex = 0; tagIndex < tagTable.size(); tagIndex++) {
 			
-			Tag tag = this.getTagIDMap().get(tagID);
-			Tag tagCopy = tag.makeCopy();
-			tagCopy.setThisGraphTagCount(tagCopy.getHighestLevelGraphTagCount());
-			transposeGraph.getTagIDMap().put(tagCopy.getTagID(), tagCopy);
+			transposeGraph.tagCounts.set(tagIndex, 
+					tagTable.getHighestLevelGraphTagCount(tagIndex));
 		}
 		
 		Map<Integer,Vertex> transposeVertices = transposeGraph.getVertices();
@@ -1136,11 +1237,13 @@ public class StackExchangeTopicGraph implements Graph {
 				transposeGraph.addVertex(vertexCopy);
 			}
 			
-			List<Integer> oldOutEdges = vertex.getOutEdges();
+			IntList oldOutEdges = vertex.getOutEdgeIDs();
 			
 			// adjacency matrix representation may be useful
 			// to avoid linear inner loop
-			for (Integer oldOutVertID : oldOutEdges) {
+			for (int i = 0; i < oldOutEdges.size(); i++) {
+				
+				int oldOutVertID = oldOutEdges.getInt(i);
 				
 				Vertex oldOutVert = vertices.get(oldOutVertID);
 				
@@ -1179,6 +1282,7 @@ public class StackExchangeTopicGraph implements Graph {
 	 * then construct the egonet for u.
 	 * 
 	 * The returned graph does not share any objects with the original graph.
+	 * It is getEgonetView(center), materialized.
 	 * 
 	 * NOTE: Each vertex in the egonet will have the same stats (views, 
 	 * usefulness, etc) as in the parent graph.
@@ -1191,21 +1295,20 @@ public class StackExchangeTopicGraph implements Graph {
 	@Override
 	public Graph getEgonet(int center) {
 		
-		//System.out.println("Getting egonet for vertex " + center);
-		
-		StackExchangeTopicGraph egonet = 
-				new StackExchangeTopicGraph("Egonet for vertex " + center + 
-						" within " + topic);
+		return getEgonetView(center).materialize();
+	}
+	
+	/** Find the egonet for a particular vertex as a read-only view of
+	 * this graph.
+	 * 
+	 * Has the same vertices as getEgonet(center), without copying any 
+	 * vertices or tags.
+	 * 
+	 * @param center is the vertex at the center of the egonet
+	 * @return a view of the egonet centered at center, including center
+	 */
+	public SubgraphView getEgonetView(int center) {
 		
-		// make a copy of each tag in the parent graph
-		// add it to the egonet but with 0 count for the egonet
-		for (int tagID : this.getTagIDMap().keySet()) {
-			
-			Tag tag = this.getTagIDMap().get(tagID);
-			Tag tagCopy = tag.makeCopy();
-			egonet.getTagIDMap().put(tagCopy.getTagID(), tagCopy);
-		}
-
 		//TODO: Should egonet include "spoke" comments and answers?  currently, the egonet
 		// will include answers and comments that "spoke" off of a vertex on a "main" path
 		// between users in the egonet (the "spoke" comments and answers do not lead to 
@@ -1214,52 +1317,138 @@ public class StackExchangeTopicGraph implements Graph {
 		// in the egonet, make hundreds of other answers to Question1 and hundreds of
 		// comments to Question1, Answer1, and the other answers. These hundreds of 
 		// answers and comments are currently included in the egonet.
-		Vertex cVertParentGraph = vertices.get(center);
+		Vertex centerVertex = vertices.get(center);
 		
 		// question: should egonet be different for a post?
 		// maybe it should include its author but not necessarily
 		// all the other posts the author made?
 		// as written, (egonet of post) == (egonet of post's author)
-		if (!(cVertParentGraph instanceof UserNode)) {
-			//System.out.println("Finding author");
-			cVertParentGraph = users.get(((Post)cVertParentGraph).getAuthorUserID());
+		if (!(centerVertex instanceof UserNode)) {
+			centerVertex = users.get(((Post)centerVertex).getAuthorUserID());
 		}
 		
-		// add the center to the egonet
-		//System.out.println("author, so center, is " + cVertParentGraph.getVertexID());
-		Vertex cVertParentGraphCopy = cVertParentGraph.makeCopy();
-		cVertParentGraphCopy.setName(cVertParentGraphCopy.getName()
-				+ " in " + egonet.getTopic());
-		egonet.addVertex(cVertParentGraphCopy);
+		// the egonet's members, by dense index
+		BitSet members = new BitSet(vertexIndex.size());
+		findEgonetMembers((UserNode)centerVertex, members);
 		
-		// populate egonet with vertices and edges up to
+		return new SubgraphView(this, "Egonet for vertex " + center + 
+				" within " + topic, members);
+	}
+	
+	/** Find the vertices in a user's egonet.
+	 * 
+	 * Only reads the graph, so several threads can find egonets at once.
+	 * 
+	 * @param center is the user at the center of the egonet
+	 * @param members is empty, and gets the dense index of each vertex in
+	 * the egonet set
+	 */
+	void findEgonetMembers(UserNode center, BitSet members) {
+		
+		findEgonetMembers(center, null, members);
+	}
+	
+	/** Find the vertices in a user's egonet within part of this graph.
+	 * 
+	 * The egonet is found as if the graph had only the vertices in within
+	 * (and the edges between them), which is how SubgraphView finds an 
+	 * egonet without building a graph of its own.
+	 * 
+	 * @param center is the user at the center of the egonet, in within
+	 * @param within has the dense index of each vertex the egonet may 
+	 * reach set, or is null for the whole graph
+	 * @param members is empty, and gets the dense index of each vertex in
+	 * the egonet set
+	 */
+	void findEgonetMembers(UserNode center, BitSet within, BitSet members) {
+		
+		members.set(vertexIndex.indexOf(center.getVertexID()));
+		
+		// find vertices and edges up to
 		// (and including) one user away from center
-		egonet.DFSEgoNet(this, egonet, cVertParentGraph.getVertexID(),
-						 cVertParentGraph.getVertexID(), null);
+		DFSEgoNet(within, members, center.getVertexID(), center.getVertexID(), 
+				  null);
 		
-		// to avoid concurrent modification exception in for loop just below
-		Set<Integer> vertIDsFoundByCenter = 
-				new HashSet<Integer>(egonet.getVertices().keySet());
+		// to avoid concurrent modification in for loop just below
+		BitSet foundByCenter = (BitSet)members.clone();
 		Map<Integer,Integer[]> vertsNotFoundByCenterToFinder = 
 				new HashMap<Integer,Integer[]>();
 		
-		for (int vertexID : vertIDsFoundByCenter) {
+		for (int i = foundByCenter.nextSetBit(0); i >= 0; 
+				i = foundByCenter.nextSetBit(i + 1)) {
 			
-			Vertex vertex = egonet.getVertices().get(vertexID);
+			Vertex vertex = vertices.get(vertexIndex.getVertexID(i));
 			
 			// if the vertex found by center is a user and is not the center,
 			// do a DFS from it to add vertices directly linking other users
 			if (vertex instanceof UserNode &&
-				vertex.getVertexID() != cVertParentGraph.getVertexID()) {
+				vertex.getVertexID() != center.getVertexID()) {
 
-				egonet.DFSEgoNet(this, egonet, vertex.getVertexID(),
-						vertex.getVertexID(), vertsNotFoundByCenterToFinder);
+				DFSEgoNet(within, members, vertex.getVertexID(),
+						  vertex.getVertexID(), vertsNotFoundByCenterToFinder);
 			}
 		}
+	}
+	
+	/** Find statistics of every vertex's egonet, using several threads.
+	 * 
+	 * A post's egonet is its author's (see getEgonet()), so each user's
+	 * egonet is found once, and its posts share the result.  No egonet 
+	 * graphs or views are built.
+	 * 
+	 * @param numThreads is the number of threads to use
+	 * @return the statistics, indexed by dense vertex index
+	 */
+	public EgonetStats computeEgonetStats(int numThreads) {
+		
+		return EgonetStats.compute(this, numThreads);
+	}
+	
+	/** Estimate the betweenness centrality of every vertex and edge, from
+	 * breadth-first searches from a random sample of vertices, using 
+	 * several threads.
+	 * 
+	 * Exact betweenness needs a search from every vertex, which is out of 
+	 * reach on a big topic; the estimate's error shrinks with the square 
+	 * root of the number of samples instead (see BetweennessEstimate).  
+	 * Edges are taken as undirected.
+	 * 
+	 * @param numSamples is the number of vertices to search from; the 
+	 * number of vertices or more gives exact betweenness
+	 * @param numThreads is the number of threads to use
+	 * @return the estimates, the top users, posts and edges, and how far 
+	 * off the estimates may be (BetweennessEstimate.getErrorBound())
+	 */
+	public BetweennessEstimate estimateBetweenness(int numSamples, 
+												   int numThreads) {
 		
-		egonet.addAllEdges();
+		return BetweennessEstimate.compute(this, numSamples, numThreads, 
+										   new Random());
+	}
+	
+	/** Estimate the betweenness centrality of every vertex and edge to 
+	 * within an error bound, using several threads.
+	 * 
+	 * Takes as many samples as Hoeffding's inequality needs for every 
+	 * estimate to be within the bound at once, with the confidence given
+	 * (see BetweennessEstimate.getNumSamplesFor()).  For example, an error
+	 * bound of 0.01 (1% of all pairs of vertices) with 0.95 confidence 
+	 * takes about 90,000 samples on a topic of a million vertices and
+	 * edges.
+	 * 
+	 * @param errorBound is the largest error wanted, as a share of all 
+	 * ordered pairs of vertices
+	 * @param confidence is the probability wanted that no estimate is off
+	 * by more, between 0 and 1
+	 * @param numThreads is the number of threads to use
+	 * @return the estimates
+	 */
+	public BetweennessEstimate estimateBetweenness(double errorBound, 
+												   double confidence, 
+												   int numThreads) {
 		
-		return egonet;
+		return BetweennessEstimate.compute(this, errorBound, confidence, 
+										   numThreads, new Random());
 	}
 	
 	/** Do DFS from a vertex to populate an egonet.
@@ -1272,8 +1461,10 @@ public class StackExchangeTopicGraph implements Graph {
 	 * Pass a null value for the argument foundByOtherUser to indicate this
 	 * call starts at the center of the egonet.
 	 * 
-	 * @param parent the StackExchangeTopicGraph that contains the egonet
-	 * @param egonet the StackExchangeTopicGraph that represents the egonet
+	 * @param within are the dense indices of the vertices the egonet may
+	 * reach, or null for the whole graph
+	 * @param members are the dense indices of the vertices in the egonet
+	 * so far
 	 * @param userDFSInitiatorVertIS is the vertex id of the UserNode that
 	 * initiated the original call to DFS
 	 * @param vertexID the vertex from which to do this DFS
@@ -1285,70 +1476,70 @@ public class StackExchangeTopicGraph implements Graph {
 	 * is the vertex id of the second non-center user who "found" the vertex
 	 * (if any)
 	 */
-	private void DFSEgoNet(StackExchangeTopicGraph parent, 
-				 		   StackExchangeTopicGraph egonet, 
-						   int userDFSInitiatorVertID, int vertexID, 
+	private void DFSEgoNet(BitSet within, BitSet members, 
+						   int userDFSInitiatorVertID, 
+						   int vertexID, 
 						   Map<Integer,Integer[]> vertsNotFoundByCenterToFinder) {
 		
-		Vertex vertex = parent.getVertices().get(vertexID);
-		List<Integer> outVertexIDs = vertex.getOutEdges();
+		Vertex vertex = vertices.get(vertexID);
+		IntList outVertexIDs = vertex.getOutEdgeIDs();
 		
-		for (Integer outVertexID : outVertexIDs) {
+		for (int i = 0; i < outVertexIDs.size(); i++) {
 			
-			Vertex outVertex = parent.getVertices().get(outVertexID);
-			Vertex outVertexCopy = outVertex.makeCopy();
-			outVertexCopy.setName(outVertexCopy.getName()
-					+ " in " + egonet.getTopic());
+			int outVertexID = outVertexIDs.getInt(i);
+			Vertex outVertex = vertices.get(outVertexID);
+			int outVertexIndex = vertexIndex.indexOf(outVertexID);
 
-			// if this vertex is not already in the egonet
-			if (!egonet.getVertices().containsKey(outVertexCopy.getVertexID())) {
+			// if this vertex may be in the egonet and is not already
+			if ((within == null || within.get(outVertexIndex)) 
+					&& !members.get(outVertexIndex)) {
 					
 				// if we started from the center
 				if (vertsNotFoundByCenterToFinder == null) {
 				
-					egonet.addVertex(outVertexCopy);
+					members.set(outVertexIndex);
 				}
 				else {
 					// if we did not start from center, and if this 
 					// vertex is not a user, we might want to add it 
 					// to the egonet
-					if (!(outVertexCopy instanceof UserNode)) {
+					if (!(outVertex instanceof UserNode)) {
 						
 						// if it was not already found by another user
 						// mark it as found and do a DFS from it
 						if (!vertsNotFoundByCenterToFinder.keySet().
-								contains(outVertexCopy.getVertexID())) {
+								contains(outVertexID)) {
 							
 							// index 0 = first finder, index 1 = second finder
 							Integer[] firstAndSecondFinders = {userDFSInitiatorVertID,null};
 							
-							vertsNotFoundByCenterToFinder.put(outVertexCopy.getVertexID(),
+							vertsNotFoundByCenterToFinder.put(outVertexID,
 															  firstAndSecondFinders);
 							
-							DFSEgoNet(parent, egonet, userDFSInitiatorVertID,
-									  outVertexCopy.getVertexID(), 
+							DFSEgoNet(within, members, userDFSInitiatorVertID,
+									  outVertexID, 
 									  vertsNotFoundByCenterToFinder);
 						}
 						else if (vertsNotFoundByCenterToFinder.
-								 get(outVertexCopy.getVertexID())[0] != userDFSInitiatorVertID) {
+								 get(outVertexID)[0] != userDFSInitiatorVertID) {
 							// above is "if it was already found once *another* user"
 							
 							if (vertsNotFoundByCenterToFinder.
-								 get(outVertexCopy.getVertexID())[1] == null) {
+								 get(outVertexID)[1] == null) {
 								// found for the second time, so add to egonet
-								egonet.addVertex(outVertexCopy);
+								members.set(outVertexIndex);
 								// set as found second time by this user caller
 								vertsNotFoundByCenterToFinder.
-								 get(outVertexCopy.getVertexID())[1] = userDFSInitiatorVertID;
+								 get(outVertexID)[1] = userDFSInitiatorVertID;
 							}
 							
 							// if the user that discovered this vertex for the second time
 							// was this user, we need to continue this user's DFS
-							if (vertsNotFoundByCenterToFinder.get(outVertexCopy.getVertexID())[1] 
+							if (vertsNotFoundByCenterToFinder.get(outVertexID)[1] 
 									== userDFSInitiatorVertID) {
 								
-								DFSEgoNet(parent, egonet, userDFSInitiatorVertID,
-										  outVertexCopy.getVertexID(), 
+								DFSEgoNet(within, members, userDFSInitiatorVertID,
+										  outVertexID, 
 										  vertsNotFoundByCenterToFinder);
 							}
 						}
@@ -1359,7 +1550,7 @@ public class StackExchangeTopicGraph implements Graph {
 				if (!(outVertex instanceof UserNode) && 
 					vertsNotFoundByCenterToFinder == null) {
 					
-					DFSEgoNet(parent, egonet, userDFSInitiatorVertID,
+					DFSEgoNet(within, members, userDFSInitiatorVertID,
 							  outVertexID, vertsNotFoundByCenterToFinder);
 				}	
 			}
@@ -1368,43 +1559,108 @@ public class StackExchangeTopicGraph implements Graph {
 	
 	/** Detect communities in this graph.
 	 * 
-	 * Uses the Louvain method for detecting communities, freely available for 
-	 * download and described here:
+	 * Uses the Louvain method for detecting communities, described here:
 	 * https://perso.uclouvain.be/vincent.blondel/research/louvain.html
 	 * 
-	 * This method's helper methods interface with C++ code found at the link
-	 * above.  Instructions to ensure all files are in the correct directory
-	 * should be found at this project's GitHub page
-	 * (https://github.com/ryanwc/SocialNetworks)
-	 * 
-	 * @return {map Integer --> {map Integer --> StackExchangeTopicGraph}}, 
-	 * with each key in the upper map corresponding to a level of graph 
-	 * hierarchy resulting from execution of the Louvain method, each key 
-	 * in the lower map corresponding to a community within that level, and 
-	 * each StackExchangeTopicGraph in the final value set corresponding to
-	 * a community found at that level of the hierarchy. 0 is the "leaf" level 
-	 * of the hierarchy, which means that for a return value returnMap, 
-	 * returnMap.get(0) will return a Map<Integer,StackExchangeTopicGraph>>
-	 * of size equal to the number of vertices in this graph, with each Integer
-	 * key getting a StackExchangeTopicGraph containing only itself. 
-	 * The key for the "highest" level of the hierarchy will be 
-	 * returnMap(returnMap.size()-1), which will return a 
-	 * Map<Integer,StackExchangeTopicGraph> with size equal the number 
-	 * of communities at which the modularity score calculated by the Louvain 
-	 * method no longer increased from the last level.
+	 * Runs in-process (see Louvain), on the undirected form of this graph,
+	 * so no external code, files or processes are needed.  Sets the highest
+	 * level of the hierarchy that buildLevelToCommunityMap() and the
+	 * regression export use.
+	 * 
+	 * @return the community of every vertex at each level of the hierarchy.
+	 * 0 is the "leaf" level of the hierarchy, with every vertex in a 
+	 * community of its own.  The highest level 
+	 * (getHighestLevel()) has the communities at which the modularity 
+	 * score calculated by the Louvain method no longer increased from the 
+	 * last level.
+	 */
+	public LouvainHierarchy findCommunities() {
+		
+		LouvainHierarchy hierarchy = Louvain.findCommunities(
+				WeightedAdjacency.fromDirected(
+						new VertexListAdjacency(vertices, vertexIndex)), 
+				vertexIndex);
+		
+		communityHierarchy = hierarchy;
+		highestLevelCommunity = hierarchy.getHighestLevel();
+		
+		return hierarchy;
+	}
+	
+	/** Detect communities in this graph using several threads.
+	 * 
+	 * Each level's local moves and graph building are split across threads
+	 * (see ParallelLouvain).  The communities may differ from those of 
+	 * findCommunities(), so compare the modularity of each level 
+	 * (LouvainHierarchy.getModularity()) to check their quality.
+	 * 
+	 * @param numThreads is the number of threads to use
+	 * @return the community of every vertex at each level of the hierarchy
+	 */
+	public LouvainHierarchy findCommunities(int numThreads) {
+		
+		LouvainHierarchy hierarchy = Louvain.findCommunities(
+				WeightedAdjacency.fromDirected(
+						new VertexListAdjacency(vertices, vertexIndex)), 
+				vertexIndex, numThreads);
+		
+		communityHierarchy = hierarchy;
+		highestLevelCommunity = hierarchy.getHighestLevel();
+		
+		return hierarchy;
+	}
+	
+	/** Detect communities in this graph and write them to a file.
+	 * 
+	 * Finds the communities with findCommunities(), then writes every 
+	 * level's mappings from vertex to community to a single file, in the 
+	 * format the Louvain method's C++ hierarchy program writes: for each 
+	 * level from 0 up, a line "vertexIndex communityNum" for each vertex, 
+	 * where vertexIndex is the vertex's dense index (see getVertexIndex()).
+	 * The file can be read back with buildLevelToCommunityMap(File, int).
+	 * 
+	 * @return the file of level mappings
 	 * @throws IOException 
 	 */
 	public File exportCommunities() throws IOException {
 		
-		File linkedListFile = null;
+		return exportCommunities(findCommunities());
+	}
+	
+	/** Detect communities in this graph using several threads, and write 
+	 * them to a file as exportCommunities() does.
+	 * 
+	 * @param numThreads is the number of threads to use
+	 * @return the file of level mappings
+	 * @see #findCommunities(int)
+	 */
+	public File exportCommunities(int numThreads) throws IOException {
+		
+		return exportCommunities(findCommunities(numThreads));
+	}
+	
+	private File exportCommunities(LouvainHierarchy hierarchy) throws IOException {
+		
+		File levelMappings = new File("data/stack_exchange/"+topic+"_LevelMappings.txt");
+		PrintWriter printWriter = new PrintWriter(new BufferedWriter(
+				new FileWriter(levelMappings, false)));
 		
 		try {
-			linkedListFile = exportToLinkedListPlainText();
-		} catch (IOException e) {
-			e.printStackTrace();
+			for (int level = 0; level < hierarchy.getNumLevels(); level++) {
+				
+				int[] labels = hierarchy.getLabels(level);
+				
+				for (int i = 0; i < labels.length; i++) {
+					printWriter.print(i);
+					printWriter.print(' ');
+					printWriter.println(labels[i]);
+				}
+			}
+		} finally {
+			printWriter.close();
 		}
 		
-		return runLouvain(linkedListFile);
+		return levelMappings;
 	}
 	
 	/** Run the Louvain method for detecting communities of the given file.
@@ -1413,95 +1669,157 @@ public class StackExchangeTopicGraph implements Graph {
 	 * available C++ for the Louvain method:
 	 * https://perso.uclouvain.be/vincent.blondel/research/louvain.html
 	 * 
-	 * @throws IOException 
+	 * findCommunities() does the same in-process; this runs the reference
+	 * C++ code, which must be built in Louvain_CPlusPlus, on a file from 
+	 * exportToLinkedListPlainText(), and waits for it to finish.
+	 * 
+	 * @return the file of level mappings, 
+	 * Louvain_CPlusPlus/<topic>LevelMappings.txt
+	 * @throws IOException if a program cannot be run or fails
+	 * @see #runLouvainAsync(File)
 	 */
 	public File runLouvain(File linkedListFile) throws IOException {
 		
-		//System.out.println("running louvain");
+		try {
+			return runLouvainAsync(linkedListFile).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException)e.getCause();
+			}
+			throw new IOException("Louvain method failed for " + topic, e.getCause());
+		}
+	}
+	
+	/** Run the reference C++ Louvain method on this graph without 
+	 * blocking.
+	 * 
+	 * The graph is streamed to the convert program through a pipe, so no
+	 * linked list file is written.  The programs run in a scratch 
+	 * directory of their own (see LouvainToolchain), so several graphs can
+	 * be run at once, and every level is extracted at the same time.
+	 * 
+	 * @return a future of the file of level mappings, 
+	 * Louvain_CPlusPlus/<topic>LevelMappings.txt; when it completes, the
+	 * file has been read as this graph's community hierarchy (see
+	 * readCommunities())
+	 */
+	public CompletableFuture<File> runLouvainAsync() {
+		
+		File levelMappings = new File("Louvain_CPlusPlus/"+topic+"LevelMappings.txt");
+		
+		return whenLevelsFound(new LouvainToolchain(new File("Louvain_CPlusPlus"))
+				.run(new VertexListAdjacency(vertices, vertexIndex), levelMappings), 
+				levelMappings);
+	}
+	
+	/** Run the reference C++ Louvain method on a linked list file without 
+	 * blocking.
+	 * 
+	 * @see #runLouvainAsync()
+	 */
+	public CompletableFuture<File> runLouvainAsync(File linkedListFile) {
 		
-		File communityMetadata = new File("Louvain_CPlusPlus/"+topic+"communityHierarchyInfo.txt");
-		PrintWriter clearWriter = new PrintWriter(communityMetadata);
-		clearWriter.close();
-		String levelMetadataMarker = "**** starting level info ****";
+		File levelMappings = new File("Louvain_CPlusPlus/"+topic+"LevelMappings.txt");
 		
-		// discover communities and write metadata to text file
-		ProcessBuilder buildCommunityHierarchy = new ProcessBuilder("bash", 
-				"-c", "cd Louvain_CPlusPlus ; "
-						+ "./convert -i '" + linkedListFile.getAbsolutePath() + "' -o graph.bin -r ; "
-						+ "./community graph.bin -l -1 -v > graph.tree ; "
-						+ "echo '" + levelMetadataMarker + "' ; "
-						+ "./hierarchy graph.tree");
-		buildCommunityHierarchy.redirectErrorStream(true);
-		buildCommunityHierarchy.redirectOutput(Redirect.to(communityMetadata));
+		return whenLevelsFound(new LouvainToolchain(new File("Louvain_CPlusPlus"))
+				.run(linkedListFile, levelMappings), levelMappings);
+	}
+	
+	private CompletableFuture<File> whenLevelsFound(
+			CompletableFuture<Integer> levelsFound, final File levelMappings) {
 		
-		Process buildingCommunityHierarchy = buildCommunityHierarchy.start();
-		while (buildingCommunityHierarchy.isAlive()) {
+		return levelsFound.thenApply(new Function<Integer,File>() {
 			
+			@Override
+			public File apply(Integer levels) {
+				
+				// the hierarchy and its highest level both from this run
+				try {
+					readCommunities(levelMappings);
+				} catch (IOException e) {
+					throw new CompletionException(e);
+				}
+				
+				return levelMappings;
+			}
+		});
+	}
+	
+	/** Populate this graph's communities at one level of a hierarchy
+	 * found by findCommunities().
+	 * 
+	 * Each community is a read-only view of this graph (see SubgraphView),
+	 * so no vertices or tags are copied.
+	 */
+	public void buildLevelToCommunityMap(LouvainHierarchy hierarchy, int level) {
+		
+		if (hierarchy.getVertexIndex() != vertexIndex.readOnly() 
+				|| hierarchy.getNumVertices() != vertexIndex.size()) {
+			throw new IllegalArgumentException("Communities are not of this graph");
 		}
-
-		// read output to determine number of levels
-		InputStream metaDataIn = new FileInputStream(communityMetadata.getAbsolutePath());
-		Scanner metaDataScanner = new Scanner(metaDataIn);
-        
-        String metaDataLine;
-        int levels = -1;
-        boolean inLevelMetaData = false;
-        
-        // probably a better way to do this, like reading just the last line
-        // to get highest level number
-        while (metaDataScanner.hasNextLine()) {
-        	
-        	//System.out.println("looking for level info");
-        	metaDataLine = metaDataScanner.nextLine();
-        	
-        	if (inLevelMetaData) {
-        		levels++;
-        	}
-        	else {
-        		if (metaDataLine.equals(levelMetadataMarker)) {
-        			inLevelMetaData = true;
-        		}
-        	}
-        }
-        
-        metaDataScanner.close();
-        
-        //System.out.println("levels: " + levels);
-        
-        // write all level mappings to a single file
-        // (a single level mapping contains a line for each vertex 
-        // with the tuple "vertexID communityNum")
-        ProcessBuilder writeLevelMapping;
-		File levelMappings = new File("Louvain_CPlusPlus/"+topic+"LevelMappings.txt");
-		clearWriter = new PrintWriter(levelMappings);
-		clearWriter.close();
-        
-		for (int level = 0; level < levels; level++) {
-       
-			//System.out.println("writing a mapping");
-			writeLevelMapping = 
-    				new ProcessBuilder("bash", "-c", 
-    						"cd Louvain_CPlusPlus ; "
-    							+ "./hierarchy graph.tree -l " + level + " >> " + levelMappings.getName());
-    		writeLevelMapping.redirectErrorStream(true);
-    		Process writeLevelMappingProcess = writeLevelMapping.start();
-    		while (writeLevelMappingProcess.isAlive()) {
-    			
-    		}
-        }
-		
-		highestLevelCommunity = levels-1;
 		
-		return levelMappings;
+		int[] labels = hierarchy.getLabels(level);
+		BitSet[] communityMembers = new BitSet[hierarchy.getNumCommunities(level)];
+		
+		for (int i = 0; i < labels.length; i++) {
+			
+			if (communityMembers[labels[i]] == null) {
+				communityMembers[labels[i]] = new BitSet();
+			}
+			communityMembers[labels[i]].set(i);
+		}
+		
+		Map<Integer,SubgraphView> levelCommunities = 
+				new HashMap<Integer,SubgraphView>(communityMembers.length*2, 1);
+		
+		for (int communityNum = 0; communityNum < communityMembers.length; 
+				communityNum++) {
+			
+			levelCommunities.put(communityNum, new SubgraphView(this, 
+					"Community " + communityNum + " of level " + 
+					level + " of " + topic, communityMembers[communityNum]));
+		}
+		
+		levelToCommunities.put(level, levelCommunities);
+	}
+	
+	/** Read every level of the communities the Louvain method wrote to a 
+	 * file, in one pass.
+	 * 
+	 * The file is read as level mappings written by runLouvain() or 
+	 * exportCommunities(): one line "vertexIndex communityNum" per vertex,
+	 * one level after another.  The hierarchy is kept, so any level's 
+	 * communities can be built afterwards without reading the file again.
+	 * 
+	 * @return the community of every vertex at each level
+	 * @throws IOException if the file cannot be read or is not level 
+	 * mappings of this graph
+	 * @see LouvainHierarchy#read(File, VertexIndex)
+	 */
+	public LouvainHierarchy readCommunities(File levelMappings) throws IOException {
+		
+		LouvainHierarchy hierarchy = LouvainHierarchy.read(levelMappings, vertexIndex);
+		
+		communityHierarchy = hierarchy;
+		highestLevelCommunity = hierarchy.getHighestLevel();
+		
+		return hierarchy;
 	}
 	
 	/** Populate this graph's communities with the file output
 	 * from running the Louvain method.
 	 * 
+	 * Each community is a read-only view of this graph (see SubgraphView),
+	 * so no vertices or tags are copied.
+	 * 
 	 * Go to the following link to read about and download the freely 
 	 * available C++ for the Louvain method:
 	 * https://perso.uclouvain.be/vincent.blondel/research/louvain.html
 	 * 
+	 * Reads the whole file with readCommunities(), so to build several 
+	 * levels, call that once and then buildLevelToCommunityMap() with the 
+	 * hierarchy for each level.
+	 * 
 	 * @param levelMappings is the file that contains all of the mappings
 	 * from vertex to community for each level of the hierarchy discovered
 	 * by running the Louvain method on this graph.
@@ -1509,137 +1827,299 @@ public class StackExchangeTopicGraph implements Graph {
 	 */
 	public void buildLevelToCommunityMap(File levelMappings, int level) throws IOException {
 		
-		InputStream levelMappingsIn = new FileInputStream(levelMappings.getAbsolutePath()); 
-		BufferedReader levelMappingsReader = new BufferedReader(new InputStreamReader(levelMappingsIn));
+		buildLevelToCommunityMap(readCommunities(levelMappings), level);
+	}
+	
+	/** Get the community hierarchy last found by findCommunities() or read
+	 * by readCommunities().
+	 * 
+	 * @return the hierarchy, or null if there is none yet
+	 */
+	public LouvainHierarchy getCommunityHierarchy() {
+		
+		return communityHierarchy;
+	}
+	
+	/** Get the highest level of the community hierarchy.
+	 * 
+	 * @return the level, or null if no communities have been found yet
+	 */
+	public Integer getHighestCommunityLevel() {
 		
-		String vertexMapping = "";
-		// only build given level
-		int thisLevel = 0;
-		int lineCounter = 0;
-		int vertexID;
-		int louvainVertexID;
-		int communityID;
-		StackExchangeTopicGraph community;
+		return highestLevelCommunity;
+	}
+	
+	/** Get the community of a vertex at a level of the community hierarchy.
+	 * 
+	 * Looks the vertex up in the hierarchy's labels (see 
+	 * getCommunityHierarchy()), so it takes constant time, with no 
+	 * community views built or searched.
+	 * 
+	 * @param vertexID is the ID of a vertex in this graph
+	 * @return the community's number, as in getCommunities().get(level)
+	 * @throws IllegalStateException if no communities have been found or read
+	 */
+	public int getCommunityOf(int level, int vertexID) {
 		
-		Map<Integer,StackExchangeTopicGraph> levelCommunities;
+		return communityHierarchy().getCommunityOf(level, vertexID);
+	}
+	
+	/** Get the number of vertices in a community at a level of the 
+	 * community hierarchy.
+	 * 
+	 * @throws IllegalStateException if no communities have been found or read
+	 */
+	public int getCommunitySize(int level, int communityID) {
 		
-		Object[] sortedOriginalIDs = vertices.keySet().toArray();
-		Arrays.sort(sortedOriginalIDs);
+		return communityHierarchy().getCommunitySize(level, communityID);
+	}
+	
+	/** Get the number of vertices in a vertex's community at a level of 
+	 * the community hierarchy, in constant time.
+	 * 
+	 * @param vertexID is the ID of a vertex in this graph
+	 * @throws IllegalStateException if no communities have been found or read
+	 */
+	public int getCommunitySizeOf(int level, int vertexID) {
 		
-		while ((vertexMapping = levelMappingsReader.readLine()) != null) {
-			
-			//System.out.println("in level " + thisLevel);
-			//System.out.println(vertexMapping);
+		LouvainHierarchy hierarchy = communityHierarchy();
+		
+		return hierarchy.getCommunitySize(level, 
+				hierarchy.getCommunityOf(level, vertexID));
+	}
+	
+	private LouvainHierarchy communityHierarchy() {
+		
+		if (communityHierarchy == null) {
+			throw new IllegalStateException("No communities of " + topic 
+					+ " yet; call findCommunities() or readCommunities()");
+		}
+		
+		return communityHierarchy;
+	}
+	
+	public String getTopic() {
+		return topic;
+	}
+	
+	public Map<Integer,Map<Integer,SubgraphView>> getCommunities() {
+
+		return levelToCommunities;	
+	}
+	
+	public void setTopic(String topic) {
+		this.topic = topic;
+	}
+	
+	/** Get this graph's tags by tag ID, as a read-only map.
+	 * 
+	 * Each Tag is made when read, with this graph's count, so changing it 
+	 * does not change the graph (use addTagToGraph() instead).
+	 */
+	public Map<Integer,Tag> getTagIDMap() {
+		
+		return new AbstractMap<Integer,Tag>() {
 			
-			if (thisLevel == level) {
-				
-				String[] vertexAndCommunity = vertexMapping.split(" ");
-				communityID = Integer.parseInt(vertexAndCommunity[1]);
-				// need to add one because the Louvain method indexes at zero
-				// will not work for egonets, SCCs, or for other graphs where 
-				// vertexIDs are not guaranteed to be numbered [1-numVertices]
-				louvainVertexID = Integer.parseInt(vertexAndCommunity[0]);
-				vertexID = (int)sortedOriginalIDs[louvainVertexID];
+			@Override
+			public boolean containsKey(Object key) {
 				
-				// everything should go here
-				
-				// put the a community map in the current level if not there
-				if (!levelToCommunities.containsKey(thisLevel)) {
+				return key instanceof Integer && tagTable.indexOf((Integer)key) >= 0;
+			}
+			
+			@Override
+			public Tag get(Object key) {
 				
-					levelToCommunities.put(thisLevel, 
-							new HashMap<Integer,StackExchangeTopicGraph>());
+				if (!containsKey(key)) {
+					return null;
 				}
 				
-				levelCommunities = levelToCommunities.get(thisLevel);
-				
+				return getTag(tagTable.indexOf((Integer)key));
+			}
+			
+			@Override
+			public Set<Map.Entry<Integer,Tag>> entrySet() {
 				
-				if (levelCommunities.containsKey(communityID)) {
+				return new TagEntries<Integer>() {
 					
-					community = levelCommunities.get(communityID);
-				}
-				else {
-
-					community =
-							new StackExchangeTopicGraph("Community " + communityID +
-									" of level " + thisLevel + " of " + topic);
-					// make a copy of each tag in the parent graph
-					// add it to the community but with 0 count for the community
-					for (int tagID : this.getTagIDMap().keySet()) {
+					@Override
+					Integer key(int tagIndex) {
 						
-						
-						Tag tag = this.getTagIDMap().get(tagID);
-						Tag tagCopy = tag.makeCopy();
-						community.getTagIDMap().put(tagCopy.getTagID(), tagCopy);
+						return tagTable.getTagID(tagIndex);
 					}
-					
-					levelCommunities.put(communityID, community);
-				}
+				};
+			}
+		};
+	}
+	
+	/** Replace this graph's tags.
+	 * 
+	 * @param tagIDMap are the new tags, with their counts in this graph
+	 */
+	public void setTagIDMap(Map<Integer,Tag> tagIDMap) {
+		
+		replaceTags(tagIDMap.values());
+	}
+	
+	/** Get this graph's tags by tag name, as a read-only map.
+	 * 
+	 * @see #getTagIDMap()
+	 */
+	public Map<String,Tag> getTagStringMap() {
+		
+		return new AbstractMap<String,Tag>() {
+			
+			@Override
+			public boolean containsKey(Object key) {
 				
-				Vertex parentVertex = vertices.get(vertexID);
-				Vertex vertexCopy = parentVertex.makeCopy();
-				vertexCopy.setName(vertexCopy.getName()
-						+ " in " + community.getTopic());
+				return key instanceof String && tagTable.indexOfName((String)key) >= 0;
+			}
+			
+			@Override
+			public Tag get(Object key) {
 				
-				community.addVertex(vertexCopy);
+				if (!containsKey(key)) {
+					return null;
+				}
 				
-				lineCounter++;
-				// done with this level
-				if (lineCounter % vertices.size() == 0) {
-					// is it better to have new var for community here?
-					// add all edges to each community at this level
-					for (int communityNum : levelCommunities.keySet()) {
+				return getTag(tagTable.indexOfName((String)key));
+			}
+			
+			@Override
+			public Set<Map.Entry<String,Tag>> entrySet() {
+				
+				return new TagEntries<String>() {
+					
+					@Override
+					String key(int tagIndex) {
 						
-						community = levelCommunities.get(communityNum);
-						community.addAllEdges();
+						return tagTable.getTagName(tagIndex);
 					}
-					
-					thisLevel++;
-				}
+				};
 			}
-			else {
-				lineCounter++;
-				if (lineCounter % vertices.size() == 0) {
-					thisLevel++;
-				}
-			}
-		}
-		
-		levelMappingsReader.close();
+		};
 	}
 	
-	public String getTopic() {
-		return topic;
+	/** Replace this graph's tags.
+	 * 
+	 * @param tagStringMap are the new tags, with their counts in this graph
+	 */
+	public void setTags(Map<String,Tag> tagStringMap) {
+		
+		replaceTags(tagStringMap.values());
 	}
 	
-	public Map<Integer,Map<Integer,StackExchangeTopicGraph>> getCommunities() {
-
-		return levelToCommunities;	
+	private void replaceTags(Collection<Tag> tags) {
+		
+		tagTable = new TagTable();
+		tagCounts = new TagCounts();
+		
+		for (Tag tag : tags) {
+			addTagToGraph(tag);
+		}
 	}
 	
-	public void setTopic(String topic) {
-		this.topic = topic;
+	/** Get the table of tags this graph shares with the graphs derived
+	 * from it.
+	 */
+	public TagTable getTagTable() {
+		
+		return tagTable;
 	}
 	
-	public Map<Integer,Tag> getTagIDMap() {
-		return tagIDMap;
+	/** Get the number of this graph's questions with a tag.
+	 * 
+	 * @return the count, or 0 if the graph has no such tag
+	 */
+	public int getTagCount(int tagID) {
+		
+		int tagIndex = tagTable.indexOf(tagID);
+		
+		return tagIndex < 0 ? 0 : tagCounts.get(tagIndex);
 	}
 	
-	public void setTagIDMap(Map<Integer,Tag> tagIDMap) {
-		this.tagIDMap = tagIDMap;
+	/** Set a tag's count in this graph (e.g. when restoring a snapshot).
+	 */
+	void setTagCount(int tagID, int count) {
+		
+		int tagIndex = tagTable.indexOf(tagID);
+		
+		if (tagIndex < 0) {
+			throw new IllegalArgumentException("Tag " + tagID 
+					+ " is not in the graph");
+		}
+		
+		tagCounts.set(tagIndex, count);
 	}
 	
-	public Map<String,Tag> getTagStringMap() {
-		return tagStringMap;
+	private Tag getTag(int tagIndex) {
+		
+		return tagTable.makeTag(tagIndex, tagCounts.get(tagIndex));
 	}
 	
-	public void setTags(Map<String,Tag> tagStringMap) {
-		this.tagStringMap = tagStringMap;
+	/** The entries of a read-only map of this graph's tags, in tag table
+	 * order.
+	 */
+	private abstract class TagEntries<K> extends AbstractSet<Map.Entry<K,Tag>> {
+		
+		abstract K key(int tagIndex);
+		
+		@Override
+		public Iterator<Map.Entry<K,Tag>> iterator() {
+			
+			// the table may be replaced (copy on write), so hold on to this one
+			final TagTable table = tagTable;
+			
+			return new Iterator<Map.Entry<K,Tag>>() {
+				
+				private int next = 0;
+				
+				@Override
+				public boolean hasNext() {
+					
+					return next < table.size();
+				}
+				
+				@Override
+				public Map.Entry<K,Tag> next() {
+					
+					if (next >= table.size()) {
+						throw new NoSuchElementException();
+					}
+					
+					int tagIndex = next++;
+					
+					return new AbstractMap.SimpleImmutableEntry<K,Tag>(
+							key(tagIndex), getTag(tagIndex));
+				}
+				
+				@Override
+				public void remove() {
+					
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+		
+		@Override
+		public int size() {
+			
+			return tagTable.size();
+		}
 	}
 	
 	public Map<Integer,Vertex> getVertices() {
 		return vertices;
 	}
 	
+	/** Get the dense index of this graph's vertex IDs.
+	 * 
+	 * Vertices are numbered 0..n-1 in the order they were added.  The index
+	 * is a read-only view of the graph's, so it sees vertices added later.
+	 */
+	public VertexIndex getVertexIndex() {
+		return vertexIndex.readOnly();
+	}
+	
 	public Map<Integer,QuestionNode> getQuestions() {
 		return questions;
 	}
@@ -1700,12 +2180,12 @@ public class StackExchangeTopicGraph implements Graph {
 			
 			Vertex vertex = vertices.get(vertexID);
 			
-			List<Integer> outVertices = vertex.getOutEdges();
+			IntList outVertices = vertex.getOutEdgeIDs();
 			HashSet<Integer> outVertexIDSet = new HashSet<Integer>(outVertices.size()*2,1);
 			
-			for (Integer outVertexID : outVertices) {
+			for (int i = 0; i < outVertices.size(); i++) {
 				
-				outVertexIDSet.add(outVertexID);
+				outVertexIDSet.add(outVertices.getInt(i));
 			}
 			
 			exportedGraph.put(vertexID, outVertexIDSet);
@@ -1736,7 +2216,7 @@ public class StackExchangeTopicGraph implements Graph {
 		System.out.println("---------------------");
 		
 		System.out.println("Tags:");
-		for (Tag tag : tagIDMap.values()) {
+		for (Tag tag : getTagIDMap().values()) {
 			
 			System.out.println("**********");
 			System.out.println(tag.toString());
@@ -1789,7 +2269,7 @@ public class StackExchangeTopicGraph implements Graph {
 				prctQsAtLeastOneA);
 		System.out.println("Num answers: " + answers.size());
 		System.out.println("Num comments: " + comments.size());
-		System.out.println("Num tags: " + tagIDMap.size());
+		System.out.println("Num tags: " + tagTable.size());
 		System.out.println("********************");
 	}
 	
@@ -1807,8 +2287,11 @@ public class StackExchangeTopicGraph implements Graph {
 	 * 3 1
 	 * . .
 	 * 
-	 * Each line has the form {"fromVertexID" "toVertexID"}
-	 * which indicates an edge between the vertices with specified IDs.
+	 * Each line has the form {"fromVertexIndex" "toVertexIndex"}
+	 * which indicates an edge between the vertices with the specified
+	 * dense indices (see getVertexIndex()), which run from 0 to 
+	 * numVertices-1 as the Louvain method expects, whatever the graph's 
+	 * vertex IDs are.
 	 * 
 	 * Discards edge weights, if any.
 	 * 
@@ -1826,23 +2309,19 @@ public class StackExchangeTopicGraph implements Graph {
 		FileWriter fileWriter = new FileWriter(linkedListFile, false);
 		PrintWriter printWriter = new PrintWriter(fileWriter);
 		
-		// to play nicely with Louvain method, which requires re-indexing to 0
-		// we are now guaranteed an ascending ordering of vertex IDs
-		// so we can convert back from index 0 ids even if the graph's vertex ids
-		// do not follow [1-numVertices], without touching the Louvain code.
-		Object[] sortedIDs = vertices.keySet().toArray();
-		Arrays.sort(sortedIDs);
-		
-		for (int i = 0; i < sortedIDs.length; i++) {
+		// the Louvain method numbers vertices from 0, so write dense indices
+		// (then its output maps straight back through the vertex index)
+		for (int i = 0; i < vertexIndex.size(); i++) {
 			
-			List<Integer> outEdges = vertices.get(sortedIDs[i]).getOutEdges();
+			IntList outEdges = vertices.get(vertexIndex.getVertexID(i)).getOutEdgeIDs();
 			
 			if (outEdges.size() < 1) {
-				printWriter.printf( "%s" + "%n" , sortedIDs[i] + " " + sortedIDs[i]);
+				printWriter.printf( "%s" + "%n" , i + " " + i);
 			}
-			for (int outEdgeVertID : outEdges) {
-			
-				printWriter.printf( "%s" + "%n" , sortedIDs[i] + " " + outEdgeVertID);
+			for (int j = 0; j < outEdges.size(); j++) {
+				
+				int outEdgeVertIndex = vertexIndex.indexOf(outEdges.getInt(j));
+				printWriter.printf( "%s" + "%n" , i + " " + outEdgeVertIndex);
 			}
 		}
 		
@@ -1852,6 +2331,48 @@ public class StackExchangeTopicGraph implements Graph {
 		return linkedListFile;
 	}
 	
+	/** Save the graph as a binary snapshot.
+	 *
+	 * The snapshot can be loaded back with
+	 * GraphLoader.loadStackExchangeTopicGraphSnapshot, which is much faster
+	 * than parsing the XML data dump again.  See TopicGraphSnapshot
+	 * for the format.
+	 *
+	 * @return the snapshot file
+	 */
+	public File exportSnapshot() throws IOException {
+
+		return exportSnapshot(new File("data/stack_exchange/"+topic+"_Snapshot.bin"));
+	}
+
+	/** Save the graph as a binary snapshot to the given file.
+	 *
+	 * @param snapshotFile is the file to write (overwritten if it exists)
+	 * @return the snapshot file
+	 */
+	public File exportSnapshot(File snapshotFile) throws IOException {
+
+		TopicGraphSnapshot.write(this, snapshotFile);
+
+		return snapshotFile;
+	}
+
+	/** Save the graph's structure and fixed-width attributes as a snapshot
+	 * that can be memory mapped and queried in place.
+	 *
+	 * Open it with GraphLoader.openMappedSnapshot.  Text (bodies, titles,
+	 * names, tags) is left out; see MappedGraphSnapshot for the layout.
+	 *
+	 * @param snapshotFile is the file to write (overwritten if it exists)
+	 * @return the snapshot file
+	 */
+	public File exportMappedSnapshot(File snapshotFile) throws IOException {
+
+		MappedGraphSnapshot.write(this, snapshotFile);
+
+		return snapshotFile;
+	}
+
 	/** Converts the graph to a format easily fed into regression analysis 
 	 * a question's "usefulness" score.
 	 * 
@@ -1904,6 +2425,16 @@ public class StackExchangeTopicGraph implements Graph {
 		//int numAccepted = 0;
 		//int numNotAccepted = 0;
 		
+		// every question's egonet size, found once per author
+		EgonetStats egonetStats = 
+				computeEgonetStats(Runtime.getRuntime().availableProcessors());
+		
+		// every vertex's community, found once for every question
+		if (communityHierarchy == null 
+				|| communityHierarchy.getNumVertices() != vertexIndex.size()) {
+			findCommunities();
+		}
+		
 		for (QuestionNode question : this.getQuestions().values()) {
 			
 			// discard if has no answers
@@ -1954,40 +2485,18 @@ public class StackExchangeTopicGraph implements Graph {
 				int totalTagQuestions = 0;
 				for (int tagID : question.getTags()) {
 				
-					totalTagQuestions += tagIDMap.get(tagID).getThisGraphTagCount();
+					totalTagQuestions += getTagCount(tagID);
 				}
 			
 				avgTagQuestions = ((double)totalTagQuestions) / 
 						((double)question.getTags().size());
 			
-				StackExchangeTopicGraph egonet = 
-						(StackExchangeTopicGraph)getEgonet(question.getVertexID());
-				numVertsInEgonet = egonet.getVertices().size();
+				numVertsInEgonet = 
+						egonetStats.getVertexCount(question.getVertexID());
 			
-				numVertsInHighestLevelCommunity = 0;
-				// clean this up
-				if (!levelToCommunities.containsKey(highestLevelCommunity)) {
-				
-					File levelMappings = exportCommunities();
-					buildLevelToCommunityMap(levelMappings, highestLevelCommunity);
-					//System.out.println("finished building: " + highestLevelCommunity +
-						//	" is highest level community");
-				}
-				Map<Integer,StackExchangeTopicGraph> highestLevelCommunities = 
-						levelToCommunities.get(highestLevelCommunity);
-				for (int communityID : highestLevelCommunities.keySet()) {
-				
-					StackExchangeTopicGraph community = 
-							highestLevelCommunities.get(communityID);
-				
-					if (community.getVertices().keySet().
-							contains(question.getVertexID())) {
-					
-						numVertsInHighestLevelCommunity = 
-								community.getVertices().size();
-						break;
-					}
-				}
+				numVertsInHighestLevelCommunity = 
+						getCommunitySizeOf(highestLevelCommunity, 
+										   question.getVertexID());
 			
 				// should this be numAnswers instead?
 				if (question.getAcceptedAnswerId() != null) {
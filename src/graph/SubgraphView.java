@@ -0,0 +1,583 @@
+/** A read-only view of part of a StackExchangeTopicGraph.
+ *
+ * Egonets, SCCs and communities used to be built as new graphs, with a
+ * renamed copy of every member vertex and every tag, and their edges added
+ * again.  A view instead keeps one bit per vertex of the parent graph (by
+ * dense index, see VertexIndex) saying whether the vertex is a member, and
+ * answers queries from the parent's own vertices: the view's edges are the
+ * parent's edges between members.  Thousands of views of one graph cost a
+ * bit set each.
+ *
+ * The vertices a view returns are the parent's, so they must not be
+ * changed.  Call materialize() to get an independent graph, built the
+ * way egonets, SCCs and communities used to be.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+public class SubgraphView implements Graph {
+
+	private final StackExchangeTopicGraph parent;
+	private final String topic;
+	// dense indices (in parent) of the member vertices
+	private final BitSet members;
+	private final int numVertices;
+	// counted the first time a tag count is asked for
+	private TagCounts tagCounts;
+
+	/** Make a view of some of a graph's vertices.
+	 *
+	 * @param parent is the graph to view
+	 * @param topic is the view's name, which materialize() gives the graph
+	 * it builds
+	 * @param members has the parent's dense index of each member set; the
+	 * view keeps it, so it must not be changed afterwards
+	 */
+	public SubgraphView(StackExchangeTopicGraph parent, String topic,
+						BitSet members) {
+
+		this.parent = parent;
+		this.topic = topic;
+		this.members = members;
+		this.numVertices = members.cardinality();
+	}
+
+	public StackExchangeTopicGraph getParent() {
+
+		return parent;
+	}
+
+	public String getTopic() {
+
+		return topic;
+	}
+
+	public int getNumVertices() {
+
+		return numVertices;
+	}
+
+	public boolean containsVertex(int vertexID) {
+
+		int index = parent.getVertexIndex().indexOf(vertexID);
+
+		return index >= 0 && members.get(index);
+	}
+
+	/** Get the vertex IDs of the members, in the parent's dense index order.
+	 */
+	public int[] getVertexIDs() {
+
+		VertexIndex vertexIndex = parent.getVertexIndex();
+		int[] vertexIDs = new int[numVertices];
+		int filled = 0;
+
+		for (int i = members.nextSetBit(0); i >= 0; i = members.nextSetBit(i + 1)) {
+			vertexIDs[filled++] = vertexIndex.getVertexID(i);
+		}
+
+		return vertexIDs;
+	}
+
+	/** Get the members' dense indices in the parent graph (a copy).
+	 */
+	public BitSet getMemberIndices() {
+
+		return (BitSet)members.clone();
+	}
+
+	/** Get the vertex IDs of a member's out neighbors in this view.
+	 */
+	public IntList getOutEdges(int vertexID) {
+
+		if (!containsVertex(vertexID)) {
+			throw new IllegalArgumentException("Vertex " + vertexID
+					+ " is not in " + topic);
+		}
+
+		IntList parentEdges = parent.getVertices().get(vertexID).getOutEdgeIDs();
+		IntList outEdges = new IntList(parentEdges.size());
+
+		for (int i = 0; i < parentEdges.size(); i++) {
+			if (containsVertex(parentEdges.getInt(i))) {
+				outEdges.addInt(parentEdges.getInt(i));
+			}
+		}
+
+		return outEdges;
+	}
+
+	/** Get the members by vertex ID, as a read-only map.
+	 */
+	public Map<Integer,Vertex> getVertices() {
+
+		return new AbstractMap<Integer,Vertex>() {
+
+			@Override
+			public boolean containsKey(Object key) {
+
+				return key instanceof Integer && containsVertex((Integer)key);
+			}
+
+			@Override
+			public Vertex get(Object key) {
+
+				if (!containsKey(key)) {
+					return null;
+				}
+
+				return parent.getVertices().get(key);
+			}
+
+			@Override
+			public int size() {
+
+				return numVertices;
+			}
+
+			@Override
+			public Set<Map.Entry<Integer,Vertex>> entrySet() {
+
+				return new AbstractSet<Map.Entry<Integer,Vertex>>() {
+
+					@Override
+					public Iterator<Map.Entry<Integer,Vertex>> iterator() {
+
+						return new Iterator<Map.Entry<Integer,Vertex>>() {
+
+							private int next = members.nextSetBit(0);
+
+							@Override
+							public boolean hasNext() {
+
+								return next >= 0;
+							}
+
+							@Override
+							public Map.Entry<Integer,Vertex> next() {
+
+								if (next < 0) {
+									throw new NoSuchElementException();
+								}
+
+								int vertexID = parent.getVertexIndex().getVertexID(next);
+								next = members.nextSetBit(next + 1);
+
+								return new AbstractMap.SimpleImmutableEntry<Integer,Vertex>(
+										vertexID, parent.getVertices().get(vertexID));
+							}
+
+							@Override
+							public void remove() {
+
+								throw new UnsupportedOperationException();
+							}
+						};
+					}
+
+					@Override
+					public int size() {
+
+						return numVertices;
+					}
+				};
+			}
+		};
+	}
+
+	/** Get the member questions by post ID, as a read-only map.
+	 */
+	public Map<Integer,QuestionNode> getQuestions() {
+
+		return new MemberMap<QuestionNode>(parent.getQuestions(), 
+										   QuestionNode.class);
+	}
+
+	/** Get the member answers by post ID, as a read-only map.
+	 */
+	public Map<Integer,AnswerNode> getAnswers() {
+
+		return new MemberMap<AnswerNode>(parent.getAnswers(), AnswerNode.class);
+	}
+
+	/** Get the member comments by post ID, as a read-only map.
+	 */
+	public Map<Integer,CommentNode> getComments() {
+
+		return new MemberMap<CommentNode>(parent.getComments(), 
+										  CommentNode.class);
+	}
+
+	/** Get the member users by user ID, as a read-only map.
+	 */
+	public Map<Integer,UserNode> getUsers() {
+
+		return new MemberMap<UserNode>(parent.getUsers(), UserNode.class);
+	}
+
+	/** Get the number of member questions with a tag.
+	 *
+	 * The first call counts the tags of every member question; the
+	 * counts are kept, keyed by the parent's tag table.
+	 *
+	 * @return the count, or 0 if the parent has no such tag
+	 */
+	public int getTagCount(int tagID) {
+
+		TagTable tagTable = parent.getTagTable();
+
+		if (tagCounts == null) {
+			tagCounts = new TagCounts();
+			for (QuestionNode question : getQuestions().values()) {
+				for (int questionTagID : question.getTags()) {
+					int tagIndex = tagTable.indexOf(questionTagID);
+					if (tagIndex >= 0) {
+						tagCounts.increment(tagIndex);
+					}
+				}
+			}
+		}
+
+		int tagIndex = tagTable.indexOf(tagID);
+
+		return tagIndex < 0 ? 0 : tagCounts.get(tagIndex);
+	}
+
+	/** Views are read-only.
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void addVertex(int num, int vertexType) {
+
+		throw new UnsupportedOperationException("Cannot add to a view of "
+				+ parent.getTopic() + "; materialize() it first");
+	}
+
+	/** Views are read-only.
+	 *
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void addEdge(int from, int to) {
+
+		throw new UnsupportedOperationException("Cannot add to a view of "
+				+ parent.getTopic() + "; materialize() it first");
+	}
+
+	/** Find an egonet within this view.
+	 *
+	 * The egonet is found among the view's members only (as if the view
+	 * were a graph of its own), and only the egonet is materialized.
+	 *
+	 * @throws IllegalArgumentException if center is not in the view, or
+	 * is a post whose author is not
+	 * @see graph.StackExchangeTopicGraph#getEgonet(int)
+	 */
+	@Override
+	public Graph getEgonet(int center) {
+
+		if (!containsVertex(center)) {
+			throw new IllegalArgumentException("Vertex " + center
+					+ " is not in " + topic);
+		}
+
+		Vertex centerVertex = parent.getVertices().get(center);
+
+		// as in the parent, a post's egonet is its author's
+		if (!(centerVertex instanceof UserNode)) {
+			centerVertex = getUsers().get(((Post)centerVertex).getAuthorUserID());
+			if (centerVertex == null) {
+				throw new IllegalArgumentException("The author of vertex "
+						+ center + " is not in " + topic);
+			}
+		}
+
+		BitSet egonetMembers = new BitSet(members.length());
+		parent.findEgonetMembers((UserNode)centerVertex, members, egonetMembers);
+
+		return new SubgraphView(parent, "Egonet for vertex " + center
+				+ " within " + topic, egonetMembers).materialize();
+	}
+
+	/** Find the SCCs within this view.
+	 *
+	 * The components are found over the view's own edges, and each SCC
+	 * graph is only materialized the first time it is read from the
+	 * returned list (see StackExchangeTopicGraph.getSCCs()).
+	 *
+	 * @see graph.StackExchangeTopicGraph#getSCCs()
+	 */
+	@Override
+	public List<Graph> getSCCs() {
+
+		VertexIndex parentIndex = parent.getVertexIndex();
+		VertexIndex memberIndex = VertexIndex.of(getVertexIDs());
+
+		final SCCResult sccs = TarjanSCC.findComponents(
+				new MemberAdjacency(memberIndex), memberIndex);
+		final List<int[]> componentMembers = sccs.getMembersByComponent();
+		final BitSet[] componentIndices = new BitSet[componentMembers.size()];
+
+		for (int c = 0; c < componentIndices.length; c++) {
+			componentIndices[c] = new BitSet();
+			for (int vertexID : componentMembers.get(c)) {
+				componentIndices[c].set(parentIndex.indexOf(vertexID));
+			}
+		}
+
+		return new AbstractList<Graph>() {
+
+			private final Graph[] built = new Graph[componentIndices.length];
+
+			@Override
+			public Graph get(int component) {
+
+				if (built[component] == null) {
+					built[component] = new SubgraphView(parent,
+							"SCC with Parent '" + topic + "' and Root "
+							+ sccs.getComponentRoot(component),
+							componentIndices[component]).materialize();
+				}
+
+				return built[component];
+			}
+
+			@Override
+			public int size() {
+
+				return built.length;
+			}
+		};
+	}
+
+	/** Return the view's edges (the parent's edges between members).
+	 *
+	 * @see graph.Graph#exportGraph()
+	 */
+	@Override
+	public HashMap<Integer, HashSet<Integer>> exportGraph() {
+
+		HashMap<Integer,HashSet<Integer>> exportedGraph =
+				new HashMap<Integer,HashSet<Integer>>(numVertices*2,1);
+
+		for (int vertexID : getVertexIDs()) {
+
+			IntList outEdges = getOutEdges(vertexID);
+			HashSet<Integer> outVertexIDSet = new HashSet<Integer>(outEdges.size()*2,1);
+
+			for (int i = 0; i < outEdges.size(); i++) {
+				outVertexIDSet.add(outEdges.getInt(i));
+			}
+
+			exportedGraph.put(vertexID, outVertexIDSet);
+		}
+
+		return exportedGraph;
+	}
+
+	/** Build an independent graph with this view's vertices and edges.
+	 *
+	 * The graph's topic is the view's.  It shares the parent's tag table
+	 * (counting only its own questions), and gets a copy of each member
+	 * vertex, named "<name> in <topic>".
+	 */
+	public StackExchangeTopicGraph materialize() {
+
+		// shares the parent's tags, with 0 count for the subgraph
+		StackExchangeTopicGraph subgraph =
+				new StackExchangeTopicGraph(topic, parent.getTagTable());
+
+		for (int vertexID : getVertexIDs()) {
+
+			Vertex vertexCopy = parent.getVertices().get(vertexID).makeCopy();
+			vertexCopy.setName(vertexCopy.getName() + " in " + topic);
+			subgraph.addVertex(vertexCopy);
+		}
+
+		subgraph.addAllEdges();
+
+		return subgraph;
+	}
+
+	@Override
+	public String toString() {
+
+		return "View '" + topic + "' of " + parent.getTopic() + " ("
+				+ numVertices + " vertices)";
+	}
+
+	/** The view's edges, addressed by the members' own dense indices.
+	 */
+	private class MemberAdjacency implements IndexedAdjacency {
+
+		private final VertexIndex memberIndex;
+		private final IntList[] outEdges;
+
+		MemberAdjacency(VertexIndex memberIndex) {
+
+			this.memberIndex = memberIndex;
+			this.outEdges = new IntList[memberIndex.size()];
+
+			for (int i = 0; i < outEdges.length; i++) {
+				outEdges[i] = getOutEdges(memberIndex.getVertexID(i));
+			}
+		}
+
+		@Override
+		public int size() {
+
+			return outEdges.length;
+		}
+
+		@Override
+		public int outDegree(int index) {
+
+			return outEdges[index].size();
+		}
+
+		@Override
+		public int outNeighbor(int index, int i) {
+
+			return memberIndex.indexOf(outEdges[index].getInt(i));
+		}
+	}
+
+	/** One of the parent's maps of vertices by post or user ID, limited to
+	 * members.  Iterating it walks the members of its vertex type, not the
+	 * parent's whole map.
+	 */
+	private class MemberMap<V extends Vertex> extends AbstractMap<Integer,V> {
+
+		private final Map<Integer,V> parentMap;
+		private final Class<V> type;
+		private int size = -1;
+
+		MemberMap(Map<Integer,V> parentMap, Class<V> type) {
+
+			this.parentMap = parentMap;
+			this.type = type;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+
+			return get(key) != null;
+		}
+
+		@Override
+		public V get(Object key) {
+
+			V vertex = parentMap.get(key);
+
+			if (vertex == null || !containsVertex(vertex.getVertexID())) {
+				return null;
+			}
+
+			return vertex;
+		}
+
+		@Override
+		public int size() {
+
+			if (size < 0) {
+				size = 0;
+				for (Iterator<Map.Entry<Integer,V>> entries = entrySet().iterator();
+						entries.hasNext(); entries.next()) {
+					size++;
+				}
+			}
+
+			return size;
+		}
+
+		@Override
+		public Set<Map.Entry<Integer,V>> entrySet() {
+
+			return new AbstractSet<Map.Entry<Integer,V>>() {
+
+				@Override
+				public Iterator<Map.Entry<Integer,V>> iterator() {
+
+					return new Iterator<Map.Entry<Integer,V>>() {
+
+						private int nextIndex = -1;
+						private V next = advance();
+
+						// the next member of this map's type
+						private V advance() {
+
+							VertexIndex vertexIndex = parent.getVertexIndex();
+							Map<Integer,Vertex> vertices = parent.getVertices();
+
+							while ((nextIndex = members.nextSetBit(nextIndex + 1)) >= 0) {
+								Vertex vertex = vertices.get(vertexIndex.getVertexID(nextIndex));
+								if (type.isInstance(vertex)) {
+									return type.cast(vertex);
+								}
+							}
+
+							return null;
+						}
+
+						@Override
+						public boolean hasNext() {
+
+							return next != null;
+						}
+
+						@Override
+						public Map.Entry<Integer,V> next() {
+
+							if (next == null) {
+								throw new NoSuchElementException();
+							}
+
+							V vertex = next;
+							next = advance();
+
+							return new AbstractMap.SimpleImmutableEntry<Integer,V>(
+									keyOf(vertex), vertex);
+						}
+
+						@Override
+						public void remove() {
+
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+
+					return MemberMap.this.size();
+				}
+			};
+		}
+
+		// the parent's maps are keyed by post ID, or user ID for users
+		private int keyOf(V vertex) {
+
+			if (vertex instanceof UserNode) {
+				return ((UserNode)vertex).getUserID();
+			}
+
+			return ((Post)vertex).getPostID();
+		}
+	}
+}
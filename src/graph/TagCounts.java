@@ -0,0 +1,102 @@
+/** One graph's count of each tag, by the tag's index in a TagTable.
+ *
+ * Only tags with a count are stored, in an open-addressing table of
+ * primitive ints, so a small subgraph of a topic with thousands of tags
+ * costs a few ints per tag its questions actually use.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+final class TagCounts {
+
+	private static final int INITIAL_CAPACITY = 8;
+
+	// tag index + 1 (0 marks an empty slot) -> count
+	private int[] slotKeys;
+	private int[] slotCounts;
+	private int mask;
+	private int size;
+
+	TagCounts() {
+
+		this.slotKeys = new int[INITIAL_CAPACITY];
+		this.slotCounts = new int[INITIAL_CAPACITY];
+		this.mask = INITIAL_CAPACITY - 1;
+		this.size = 0;
+	}
+
+	/** Get a tag's count.
+	 *
+	 * @return the count, or 0 if it was never set
+	 */
+	int get(int tagIndex) {
+
+		int slot = findSlot(tagIndex);
+
+		return slotKeys[slot] == 0 ? 0 : slotCounts[slot];
+	}
+
+	void set(int tagIndex, int count) {
+
+		int slot = findSlot(tagIndex);
+
+		if (slotKeys[slot] == 0) {
+			if (count == 0) {
+				return;
+			}
+			slotKeys[slot] = tagIndex + 1;
+			size++;
+		}
+
+		slotCounts[slot] = count;
+
+		if (size * 2 > slotKeys.length) {
+			rehash(slotKeys.length * 2);
+		}
+	}
+
+	void increment(int tagIndex) {
+
+		set(tagIndex, get(tagIndex) + 1);
+	}
+
+	/** The number of tags with a stored count.
+	 */
+	int size() {
+
+		return size;
+	}
+
+	private int findSlot(int tagIndex) {
+
+		int key = tagIndex + 1;
+		int h = key * 0x9E3779B9;
+		int slot = (h ^ (h >>> 16)) & mask;
+
+		while (slotKeys[slot] != 0 && slotKeys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+
+		return slot;
+	}
+
+	private void rehash(int capacity) {
+
+		int[] oldKeys = slotKeys;
+		int[] oldCounts = slotCounts;
+
+		slotKeys = new int[capacity];
+		slotCounts = new int[capacity];
+		mask = capacity - 1;
+
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != 0) {
+				int slot = findSlot(oldKeys[i] - 1);
+				slotKeys[slot] = oldKeys[i];
+				slotCounts[slot] = oldCounts[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,185 @@
+/** The tags of a Stack Exchange topic, shared by a graph and every graph
+ * derived from it.
+ *
+ * A tag's ID, name, topic and count in the whole topic are the same in an
+ * egonet, SCC, community or transpose as in the graph it came from; only
+ * the tag's count in each graph differs.  So one table holds the shared
+ * part, each tag at a dense index 0..size()-1, and each graph keeps just
+ * its own counts (see TagCounts), for the tags its questions use.
+ *
+ * Tables are copy on write: a graph that is given another graph's table
+ * marks it shared, and whichever graph adds a tag to a shared table
+ * first copies it, so graphs never see each other's additions.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public final class TagTable {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	// tag ID -> dense index (any int IDs work in a VertexIndex)
+	private VertexIndex tagIndex;
+	private Map<String,Integer> nameIndex;
+
+	private String[] names;
+	private String[] topics;
+	private int[] highestLevelGraphTagCounts;
+
+	private boolean shared;
+
+	public TagTable() {
+
+		this.tagIndex = new VertexIndex(INITIAL_CAPACITY);
+		this.nameIndex = new HashMap<String,Integer>();
+		this.names = new String[INITIAL_CAPACITY];
+		this.topics = new String[INITIAL_CAPACITY];
+		this.highestLevelGraphTagCounts = new int[INITIAL_CAPACITY];
+		this.shared = false;
+	}
+
+	public int size() {
+
+		return tagIndex.size();
+	}
+
+	/** Get the dense index of a tag.
+	 *
+	 * @return the index, or -1 if the table has no tag with the ID
+	 */
+	public int indexOf(int tagID) {
+
+		return tagIndex.indexOf(tagID);
+	}
+
+	/** Get the dense index of a tag by name.
+	 *
+	 * @return the index, or -1 if the table has no tag with the name
+	 */
+	public int indexOfName(String tagName) {
+
+		Integer index = nameIndex.get(tagName);
+
+		return index == null ? -1 : index;
+	}
+
+	public int getTagID(int index) {
+
+		return tagIndex.getVertexID(index);
+	}
+
+	public String getTagName(int index) {
+
+		checkIndex(index);
+
+		return names[index];
+	}
+
+	public String getTopic(int index) {
+
+		checkIndex(index);
+
+		return topics[index];
+	}
+
+	public int getHighestLevelGraphTagCount(int index) {
+
+		checkIndex(index);
+
+		return highestLevelGraphTagCounts[index];
+	}
+
+	/** Make a Tag object for a tag.
+	 *
+	 * @param thisGraphTagCount is the tag's count in the graph asking
+	 * @return a new Tag; changing it does not change the table
+	 */
+	public Tag makeTag(int index, int thisGraphTagCount) {
+
+		return new Tag(getTopic(index), getTagID(index), getTagName(index),
+					   getHighestLevelGraphTagCount(index), thisGraphTagCount);
+	}
+
+	/** Add a tag, or replace the tag with the same ID.
+	 *
+	 * Must not be called on a shared table (copy() it first).
+	 *
+	 * @return the tag's dense index
+	 */
+	int add(int tagID, String tagName, String topic,
+			int highestLevelGraphTagCount) {
+
+		if (shared) {
+			throw new IllegalStateException("Cannot add to a shared tag table");
+		}
+
+		int index = tagIndex.add(tagID);
+
+		if (index == names.length) {
+			names = Arrays.copyOf(names, index * 2);
+			topics = Arrays.copyOf(topics, index * 2);
+			highestLevelGraphTagCounts = Arrays.copyOf(highestLevelGraphTagCounts,
+													   index * 2);
+		}
+
+		// a replaced tag's old name no longer finds it
+		if (names[index] != null) {
+			nameIndex.remove(names[index]);
+		}
+
+		names[index] = tagName;
+		topics[index] = topic;
+		highestLevelGraphTagCounts[index] = highestLevelGraphTagCount;
+		nameIndex.put(tagName, index);
+
+		return index;
+	}
+
+	/** Mark this table as used by more than one graph, so neither adds
+	 * to it in place.
+	 *
+	 * @return this table
+	 */
+	TagTable share() {
+
+		shared = true;
+
+		return this;
+	}
+
+	boolean isShared() {
+
+		return shared;
+	}
+
+	/** Copy this table; the copy is not shared, and tags keep their
+	 * indices.
+	 */
+	TagTable copy() {
+
+		TagTable copy = new TagTable();
+
+		copy.tagIndex = VertexIndex.of(tagIndex.toVertexIDArray());
+		copy.nameIndex = new HashMap<String,Integer>(nameIndex);
+		copy.names = Arrays.copyOf(names, names.length);
+		copy.topics = Arrays.copyOf(topics, topics.length);
+		copy.highestLevelGraphTagCounts = Arrays.copyOf(highestLevelGraphTagCounts,
+														highestLevelGraphTagCounts.length);
+
+		return copy;
+	}
+
+	private void checkIndex(int index) {
+
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Index " + index
+					+ ", size " + size());
+		}
+	}
+}
@@ -0,0 +1,115 @@
+/** Tarjan's strongly connected components algorithm, without recursion.
+ *
+ * One depth-first pass over the graph finds every SCC; no transpose is
+ * built.  The search keeps its own stack of vertices and, per vertex, the
+ * position of the next out edge to follow, so paths of any length fit in
+ * a few int arrays instead of on the thread's call stack.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+final class TarjanSCC {
+
+	private TarjanSCC() {
+
+	}
+
+	/** Find the strongly connected components of a graph.
+	 *
+	 * @param graph is the graph to search
+	 * @param vertexIndex is the graph's index, used to name the result's
+	 * vertices
+	 * @return the component of every vertex.  Components are numbered in
+	 * the order they are completed, which is a reverse topological order
+	 * of the condensation: no edge goes from a component to a higher
+	 * numbered one.
+	 */
+	static SCCResult findComponents(IndexedAdjacency graph,
+									VertexIndex vertexIndex) {
+
+		int n = graph.size();
+
+		// discovery order, starting at 1 so 0 means undiscovered
+		int[] discovered = new int[n];
+		int[] lowLink = new int[n];
+		boolean[] onStack = new boolean[n];
+		int[] nextEdge = new int[n];
+
+		int[] callStack = new int[n];
+		int[] componentStack = new int[n];
+		int componentTop = -1;
+
+		int[] componentOf = new int[n];
+		int[] sizes = new int[Math.max(n, 1)];
+		int[] roots = new int[Math.max(n, 1)];
+		int numComponents = 0;
+		int counter = 0;
+
+		for (int start = 0; start < n; start++) {
+
+			if (discovered[start] != 0) {
+				continue;
+			}
+
+			int callTop = 0;
+			callStack[0] = start;
+			discovered[start] = lowLink[start] = ++counter;
+			componentStack[++componentTop] = start;
+			onStack[start] = true;
+			nextEdge[start] = 0;
+
+			while (callTop >= 0) {
+
+				int vertex = callStack[callTop];
+
+				if (nextEdge[vertex] < graph.outDegree(vertex)) {
+
+					int neighbor = graph.outNeighbor(vertex, nextEdge[vertex]++);
+
+					if (discovered[neighbor] == 0) {
+						discovered[neighbor] = lowLink[neighbor] = ++counter;
+						componentStack[++componentTop] = neighbor;
+						onStack[neighbor] = true;
+						nextEdge[neighbor] = 0;
+						callStack[++callTop] = neighbor;
+					}
+					else if (onStack[neighbor]
+							 && discovered[neighbor] < lowLink[vertex]) {
+						lowLink[vertex] = discovered[neighbor];
+					}
+				}
+				else {
+					// done with vertex: it roots a component if nothing
+					// it reaches on the stack was discovered before it
+					if (lowLink[vertex] == discovered[vertex]) {
+
+						int member;
+						do {
+							member = componentStack[componentTop--];
+							onStack[member] = false;
+							componentOf[member] = numComponents;
+							sizes[numComponents]++;
+						} while (member != vertex);
+
+						roots[numComponents] = vertex;
+						numComponents++;
+					}
+
+					callTop--;
+
+					if (callTop >= 0) {
+						int parent = callStack[callTop];
+						if (lowLink[vertex] < lowLink[parent]) {
+							lowLink[parent] = lowLink[vertex];
+						}
+					}
+				}
+			}
+		}
+
+		return new SCCResult(vertexIndex, componentOf, sizes, roots,
+							 numComponents);
+	}
+}
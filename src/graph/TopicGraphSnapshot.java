@@ -0,0 +1,359 @@
+/** Binary snapshots of a StackExchangeTopicGraph.
+ *
+ * A snapshot holds everything the XML loaders produce (tags, every vertex
+ * by type, every edge, the disallowed posts and the vertex ID counter), so
+ * a graph can be reloaded without touching the data dump again.  Derived
+ * state (SCCs, communities) is not saved.
+ *
+ * Layout (big-endian, as written by DataOutputStream):
+ *
+ * magic "SETG", format version, topic, uniqueVertexIDCounter,
+ * tags, users, questions, answers, comments, adjacency lists,
+ * disallowed posts.
+ *
+ * Every section is a count followed by fixed-order records, and strings are
+ * a UTF-8 byte length (-1 for null) followed by the bytes, so the file is
+ * read front to back in one sequential pass.  Snapshots with a different
+ * magic or version are rejected with an IOException.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public final class TopicGraphSnapshot {
+
+	public static final int MAGIC = 0x53455447; // "SETG"
+	// bump whenever the layout changes
+	public static final int VERSION = 1;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private TopicGraphSnapshot() {
+
+	}
+
+	/** Write a snapshot of a graph to a file.
+	 *
+	 * @param graph is the graph to save
+	 * @param snapshotFile is the file to write (overwritten if it exists)
+	 */
+	public static void write(StackExchangeTopicGraph graph, File snapshotFile)
+							 throws IOException {
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(snapshotFile), BUFFER_SIZE));
+
+		try {
+			String topic = graph.getTopic();
+
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeString(out, topic);
+			out.writeInt(graph.getUniqueVertexIDCounter());
+
+			out.writeInt(graph.getTagIDMap().size());
+			for (Tag tag : graph.getTagIDMap().values()) {
+				out.writeInt(tag.getTagID());
+				writeString(out, tag.getTagName());
+				writeString(out, tag.getTopic());
+				out.writeInt(tag.getHighestLevelGraphTagCount());
+				out.writeInt(tag.getThisGraphTagCount());
+			}
+
+			out.writeInt(graph.getUsers().size());
+			for (UserNode user : graph.getUsers().values()) {
+				out.writeInt(user.getVertexID());
+				writeString(out, user.getName());
+				out.writeInt(user.getUserID());
+				out.writeInt(user.getReputation());
+				out.writeBoolean(user.getAge() != null);
+				if (user.getAge() != null) {
+					out.writeInt(user.getAge());
+				}
+				out.writeInt(user.getUpvotes());
+				out.writeInt(user.getDownvotes());
+				out.writeInt(user.getAccountID());
+			}
+
+			out.writeInt(graph.getQuestions().size());
+			for (QuestionNode question : graph.getQuestions().values()) {
+				writePost(out, question, topic);
+				out.writeInt(question.getComments().size());
+				out.writeBoolean(question.getAcceptedAnswerId() != null);
+				if (question.getAcceptedAnswerId() != null) {
+					out.writeInt(question.getAcceptedAnswerId());
+				}
+				writeString(out, question.getTitle());
+				out.writeInt(question.getTags().size());
+				for (int tagID : question.getTags()) {
+					out.writeInt(tagID);
+				}
+				out.writeInt(question.getAnswers().size());
+				out.writeInt(question.getFavoriteCount());
+			}
+
+			out.writeInt(graph.getAnswers().size());
+			for (AnswerNode answer : graph.getAnswers().values()) {
+				writePost(out, answer, topic);
+				out.writeInt(answer.getComments().size());
+				out.writeInt(answer.getParentQuestionPostID());
+			}
+
+			out.writeInt(graph.getComments().size());
+			for (CommentNode comment : graph.getComments().values()) {
+				writePost(out, comment, topic);
+				out.writeInt(comment.getParentPostID());
+			}
+
+			// edges in each vertex's own order, so replaying them rebuilds
+			// the users' and posts' child lists in the same order too
+			Map<Integer,Vertex> vertices = graph.getVertices();
+			out.writeInt(vertices.size());
+			for (Vertex vertex : vertices.values()) {
+				IntList outEdges = vertex.getOutEdgeIDs();
+				out.writeInt(vertex.getVertexID());
+				out.writeInt(outEdges.size());
+				for (int j = 0; j < outEdges.size(); j++) {
+					out.writeInt(outEdges.getInt(j));
+				}
+			}
+
+			Map<Integer,Boolean> disallowedPosts = graph.getDisallowedPosts();
+			out.writeInt(disallowedPosts.size());
+			for (Map.Entry<Integer,Boolean> disallowed : disallowedPosts.entrySet()) {
+				out.writeInt(disallowed.getKey());
+				out.writeBoolean(disallowed.getValue());
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/** Populate an empty graph from a snapshot file.
+	 *
+	 * The graph's topic is set to the snapshot's topic.
+	 *
+	 * @param graph is the (empty) graph to populate
+	 * @param snapshotFile is a file written by write()
+	 * @throws IOException if the file cannot be read, is not a snapshot,
+	 * or was written by a different snapshot version
+	 */
+	public static void read(StackExchangeTopicGraph graph, File snapshotFile)
+							throws IOException {
+
+		if (!graph.getVertices().isEmpty()) {
+			throw new IllegalArgumentException("Snapshots can only be read "
+					+ "into an empty graph");
+		}
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(snapshotFile), BUFFER_SIZE));
+
+		try {
+			int magic = in.readInt();
+			if (magic != MAGIC) {
+				throw new IOException(snapshotFile + " is not a "
+						+ "StackExchangeTopicGraph snapshot");
+			}
+
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException(snapshotFile + " is a version " + version
+						+ " snapshot but this build reads version " + VERSION);
+			}
+
+			String topic = readString(in);
+			graph.setTopic(topic);
+			int uniqueVertexIDCounter = in.readInt();
+
+			// questions bump their tags' counts when added,
+			// so the saved counts are put back at the end
+			int numTags = in.readInt();
+			List<Tag> tags = new ArrayList<Tag>(numTags);
+			int[] thisGraphTagCounts = new int[numTags];
+			for (int i = 0; i < numTags; i++) {
+				int tagID = in.readInt();
+				String tagName = readString(in);
+				String tagTopic = readString(in);
+				int highestLevelGraphTagCount = in.readInt();
+				thisGraphTagCounts[i] = in.readInt();
+
+				Tag tag = new Tag(tagTopic, tagID, tagName,
+								  highestLevelGraphTagCount, 0);
+				tags.add(tag);
+				graph.addTagToGraph(tag);
+			}
+
+			int numUsers = in.readInt();
+			for (int i = 0; i < numUsers; i++) {
+				int vertexID = in.readInt();
+				String name = readString(in);
+				int userID = in.readInt();
+				int reputation = in.readInt();
+				Integer age = in.readBoolean() ? in.readInt() : null;
+				int upvotes = in.readInt();
+				int downvotes = in.readInt();
+				int accountID = in.readInt();
+
+				graph.addVertex(new UserNode(vertexID, name, userID, reputation,
+						age, upvotes, downvotes, accountID));
+			}
+
+			int numQuestions = in.readInt();
+			for (int i = 0; i < numQuestions; i++) {
+				int vertexID = in.readInt();
+				String name = readString(in);
+				String postTopic = readPostTopic(in, topic);
+				int postID = in.readInt();
+				int rawScore = in.readInt();
+				String body = readString(in);
+				int authorUserID = in.readInt();
+				int viewCount = in.readInt();
+				int commentCount = in.readInt();
+				Integer acceptedAnswerID = in.readBoolean() ? in.readInt() : null;
+				String title = readString(in);
+				int numQuestionTags = in.readInt();
+				List<Integer> tagIDs = new ArrayList<Integer>(numQuestionTags);
+				for (int j = 0; j < numQuestionTags; j++) {
+					tagIDs.add(in.readInt());
+				}
+				int answerCount = in.readInt();
+				int favoriteCount = in.readInt();
+
+				graph.addVertex(new QuestionNode(vertexID, name, postTopic, postID,
+						rawScore, body, authorUserID, commentCount, viewCount,
+						acceptedAnswerID, title, tagIDs, answerCount, favoriteCount));
+			}
+
+			int numAnswers = in.readInt();
+			for (int i = 0; i < numAnswers; i++) {
+				int vertexID = in.readInt();
+				String name = readString(in);
+				String postTopic = readPostTopic(in, topic);
+				int postID = in.readInt();
+				int rawScore = in.readInt();
+				String body = readString(in);
+				int authorUserID = in.readInt();
+				int viewCount = in.readInt();
+				int commentCount = in.readInt();
+				int parentQuestionPostID = in.readInt();
+
+				graph.addVertex(new AnswerNode(vertexID, name, postTopic, postID,
+						rawScore, body, authorUserID, commentCount,
+						parentQuestionPostID, viewCount));
+			}
+
+			int numComments = in.readInt();
+			for (int i = 0; i < numComments; i++) {
+				int vertexID = in.readInt();
+				String name = readString(in);
+				String postTopic = readPostTopic(in, topic);
+				int postID = in.readInt();
+				int rawScore = in.readInt();
+				String body = readString(in);
+				int authorUserID = in.readInt();
+				int viewCount = in.readInt();
+				int parentPostID = in.readInt();
+
+				graph.addVertex(new CommentNode(vertexID, name, postTopic, postID,
+						rawScore, body, authorUserID, parentPostID, viewCount));
+			}
+
+			int numVertices = in.readInt();
+			for (int i = 0; i < numVertices; i++) {
+				int fromVertexID = in.readInt();
+				int outDegree = in.readInt();
+				for (int j = 0; j < outDegree; j++) {
+					graph.addEdge(fromVertexID, in.readInt());
+				}
+			}
+
+			int numDisallowed = in.readInt();
+			Map<Integer,Boolean> disallowedPosts = graph.getDisallowedPosts();
+			for (int i = 0; i < numDisallowed; i++) {
+				int postID = in.readInt();
+				disallowedPosts.put(postID, in.readBoolean());
+			}
+
+			for (int i = 0; i < numTags; i++) {
+				graph.setTagCount(tags.get(i).getTagID(), thisGraphTagCounts[i]);
+			}
+
+			graph.setUniqueVertexIDCounter(uniqueVertexIDCounter);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void writePost(DataOutputStream out, Post post,
+								  String graphTopic) throws IOException {
+
+		out.writeInt(post.getVertexID());
+		writeString(out, post.getName());
+		// almost every post has the graph's topic, so only write others
+		boolean sameTopic = graphTopic == null ? post.getTopic() == null
+											   : graphTopic.equals(post.getTopic());
+		out.writeBoolean(sameTopic);
+		if (!sameTopic) {
+			writeString(out, post.getTopic());
+		}
+		out.writeInt(post.getPostID());
+		out.writeInt(post.getRawScore());
+		writeString(out, post.getBody());
+		out.writeInt(post.getAuthorUserID());
+		out.writeInt(post.getViewCount());
+	}
+
+	private static String readPostTopic(DataInputStream in, String graphTopic)
+										throws IOException {
+
+		if (in.readBoolean()) {
+			return graphTopic;
+		}
+
+		return readString(in);
+	}
+
+	// unlike writeUTF, not limited to 64KB (post bodies can be longer)
+	private static void writeString(DataOutputStream out, String string)
+									throws IOException {
+
+		if (string == null) {
+			out.writeInt(-1);
+			return;
+		}
+
+		byte[] bytes = string.getBytes(UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+
+		int length = in.readInt();
+
+		if (length < 0) {
+			return null;
+		}
+
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+
+		return new String(bytes, UTF8);
+	}
+}
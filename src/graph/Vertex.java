@@ -5,7 +5,6 @@
  */
 package graph;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -20,13 +19,14 @@ public class Vertex {
 	 * the Vertex has in each subgraph.
 	 * To do this we also need to modify several other methods.
 	 * 
-	 * Could also change "List<Vertex> outEdges" to 
+	 * Could also change "IntList outEdges" to 
 	 * "List<Map<Vertex,Integer>> outEdges" to store info about edge weights.
 	 */
 	private int vertexID; // unique ID for this community graph
 	private String name;
 	
-	private List<Integer> outEdges;
+	// primitive ints, so edges are not boxed; getOutEdges() views them as a List
+	private IntList outEdges;
 	
 	// map from hierarchy level to id of community this vertex is a member of
 	// private Map<Integer,Integer> communityMembership;
@@ -41,7 +41,7 @@ public class Vertex {
 		this.vertexID = vertexID;
 		this.name = name;
 		
-		this.outEdges = new ArrayList<Integer>();
+		this.outEdges = new IntList();
 		//this.communityMembership = new HashMap<Integer,Integer>();
 	}
 	
@@ -51,7 +51,16 @@ public class Vertex {
 	 */
 	public void createEdge(Vertex toVertex) {
 		
-		outEdges.add(toVertex.getVertexID());
+		outEdges.addInt(toVertex.getVertexID());
+	}
+	
+	/** Create an edge between this vertex and the vertex with the given ID.
+	 * 
+	 * @param toVertexID the ID of the vertex the edge goes to
+	 */
+	public void createEdge(int toVertexID) {
+		
+		outEdges.addInt(toVertexID);
 	}
 	
 	/** Makes a copy of this Vertex
@@ -82,14 +91,53 @@ public class Vertex {
 		return name;
 	}
 	
+	/** Get the IDs of the vertices this vertex has edges to, as a List.
+	 * 
+	 * The list is a live view of this vertex's edges, but its elements are
+	 * boxed on every get; loops over many edges should use getOutDegree()
+	 * and getOutEdge(int), or getOutEdgeIDs().
+	 */
 	public List<Integer> getOutEdges() {
 		
 		return outEdges;
 	}
 	
+	/** Get the IDs of the vertices this vertex has edges to, unboxed.
+	 */
+	public IntList getOutEdgeIDs() {
+		
+		return outEdges;
+	}
+	
+	public int getOutDegree() {
+		
+		return outEdges.size();
+	}
+	
+	/** Get the ID of the vertex at the end of one of this vertex's edges.
+	 * 
+	 * @param i is which edge, in the order the edges were created
+	 */
+	public int getOutEdge(int i) {
+		
+		return outEdges.getInt(i);
+	}
+	
+	/** Replace this vertex's edges.
+	 * 
+	 * An IntList is used as is; any other list is copied.
+	 */
 	public void setOutEdges(List<Integer> outEdges) {
 		
-		this.outEdges = outEdges;
+		if (outEdges instanceof IntList) {
+			this.outEdges = (IntList)outEdges;
+		}
+		else {
+			this.outEdges = new IntList(outEdges.size());
+			for (int outEdgeVertexID : outEdges) {
+				this.outEdges.addInt(outEdgeVertexID);
+			}
+		}
 	}
 	
 	public void setName(String name) {
@@ -113,8 +161,8 @@ public class Vertex {
 		returnString += "Name: " + name;
 		returnString += "\n";
 		returnString += "Out edge vertex IDs: ";
-		for (int outEdgeVertexID : outEdges) {
-			returnString += outEdgeVertexID + ", ";
+		for (int i = 0; i < outEdges.size(); i++) {
+			returnString += outEdges.getInt(i) + ", ";
 		}
 		returnString += "\n";
 		
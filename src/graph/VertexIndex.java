@@ -0,0 +1,231 @@
+/** A two-way mapping between a graph's vertex IDs and dense indices.
+ *
+ * Vertex IDs can be any ints, so they cannot index arrays directly.  Each
+ * vertex added to a graph is also given the next index in 0..n-1, which
+ * algorithms can use for plain arrays and bit sets (visited flags,
+ * component numbers, and so on) while the graph's own methods keep
+ * speaking vertex IDs.
+ *
+ * Lookups go through an open-addressing table of primitive ints, so
+ * neither direction boxes or allocates.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+import java.util.Arrays;
+
+public class VertexIndex {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	// index -> vertex ID
+	private int[] vertexIDs;
+	private int size;
+
+	// hash table of vertex ID -> index + 1 (0 marks an empty slot)
+	private int[] slotIDs;
+	private int[] slotIndices;
+	private int mask;
+
+	// the view handed out by readOnly(), made once so results can compare it
+	private final VertexIndex readOnlyView;
+
+	public VertexIndex() {
+
+		this(INITIAL_CAPACITY);
+	}
+
+	public VertexIndex(int expectedSize) {
+
+		this.vertexIDs = new int[Math.max(expectedSize, 1)];
+		this.size = 0;
+
+		// at most half full
+		int capacity = Integer.highestOneBit(Math.max(expectedSize, 1) * 2 - 1) << 1;
+		this.slotIDs = new int[capacity];
+		this.slotIndices = new int[capacity];
+		this.mask = capacity - 1;
+
+		this.readOnlyView = new ReadOnlyView(this);
+	}
+
+	// for ReadOnlyView, which keeps no table of its own
+	private VertexIndex(VertexIndex backing) {
+
+		this.readOnlyView = this;
+	}
+
+	/** Make an index whose index i is vertexIDs[i].
+	 *
+	 * @param vertexIDs are distinct vertex IDs
+	 */
+	public static VertexIndex of(int[] vertexIDs) {
+
+		VertexIndex vertexIndex = new VertexIndex(vertexIDs.length);
+
+		for (int vertexID : vertexIDs) {
+			vertexIndex.add(vertexID);
+		}
+
+		return vertexIndex;
+	}
+
+	/** Give a vertex ID the next dense index.
+	 *
+	 * @param vertexID is the ID to add
+	 * @return the ID's index (its existing index if it was already added)
+	 */
+	public int add(int vertexID) {
+
+		int slot = findSlot(vertexID);
+
+		if (slotIndices[slot] != 0) {
+			return slotIndices[slot] - 1;
+		}
+
+		if (size == vertexIDs.length) {
+			vertexIDs = Arrays.copyOf(vertexIDs, size * 2);
+		}
+
+		int index = size++;
+		vertexIDs[index] = vertexID;
+		slotIDs[slot] = vertexID;
+		slotIndices[slot] = index + 1;
+
+		if (size * 2 > slotIDs.length) {
+			rehash(slotIDs.length * 2);
+		}
+
+		return index;
+	}
+
+	/** Get the dense index of a vertex ID.
+	 *
+	 * @return the index, or -1 if the ID was never added
+	 */
+	public int indexOf(int vertexID) {
+
+		return slotIndices[findSlot(vertexID)] - 1;
+	}
+
+	public boolean contains(int vertexID) {
+
+		return indexOf(vertexID) >= 0;
+	}
+
+	/** Get the vertex ID at a dense index.
+	 */
+	public int getVertexID(int index) {
+
+		if (index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index
+					+ ", size " + size);
+		}
+
+		return vertexIDs[index];
+	}
+
+	public int size() {
+
+		return size;
+	}
+
+	/** Copy the vertex IDs, in index order.
+	 */
+	public int[] toVertexIDArray() {
+
+		return Arrays.copyOf(vertexIDs, size);
+	}
+
+	/** Get a view of this index that cannot be added to.
+	 *
+	 * The view sees vertices added to this index later.  It is the same
+	 * object every time, so graphs hand it out and check results against it.
+	 */
+	public VertexIndex readOnly() {
+
+		return readOnlyView;
+	}
+
+	// the slot holding vertexID, or the empty slot where it would go
+	private int findSlot(int vertexID) {
+
+		int slot = hash(vertexID) & mask;
+
+		while (slotIndices[slot] != 0 && slotIDs[slot] != vertexID) {
+			slot = (slot + 1) & mask;
+		}
+
+		return slot;
+	}
+
+	private void rehash(int capacity) {
+
+		slotIDs = new int[capacity];
+		slotIndices = new int[capacity];
+		mask = capacity - 1;
+
+		for (int index = 0; index < size; index++) {
+			int slot = findSlot(vertexIDs[index]);
+			slotIDs[slot] = vertexIDs[index];
+			slotIndices[slot] = index + 1;
+		}
+	}
+
+	// vertex IDs are often consecutive, so spread them over the table
+	private static int hash(int vertexID) {
+
+		int h = vertexID * 0x9E3779B9;
+
+		return h ^ (h >>> 16);
+	}
+
+	private static final class ReadOnlyView extends VertexIndex {
+
+		private final VertexIndex index;
+
+		ReadOnlyView(VertexIndex index) {
+
+			super(index);
+			this.index = index;
+		}
+
+		@Override
+		public int add(int vertexID) {
+
+			throw new UnsupportedOperationException("The index is read-only");
+		}
+
+		@Override
+		public int indexOf(int vertexID) {
+
+			return index.indexOf(vertexID);
+		}
+
+		@Override
+		public boolean contains(int vertexID) {
+
+			return index.contains(vertexID);
+		}
+
+		@Override
+		public int getVertexID(int index) {
+
+			return this.index.getVertexID(index);
+		}
+
+		@Override
+		public int size() {
+
+			return index.size();
+		}
+
+		@Override
+		public int[] toVertexIDArray() {
+
+			return index.toVertexIDArray();
+		}
+	}
+}
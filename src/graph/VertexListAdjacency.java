@@ -0,0 +1,47 @@
+/** IndexedAdjacency over a graph's vertex map.
+ * 
+ * Looks every vertex up once, when created, so walking edges afterwards
+ * only costs a VertexIndex lookup per edge.  The out edge lists are the
+ * vertices' own, so edges added to the graph later are seen; vertices 
+ * added later are not.
+ * 
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+import java.util.Map;
+
+final class VertexListAdjacency implements IndexedAdjacency {
+
+	private final VertexIndex vertexIndex;
+	private final IntList[] outEdges;
+
+	VertexListAdjacency(Map<Integer,Vertex> vertices, VertexIndex vertexIndex) {
+
+		this.vertexIndex = vertexIndex;
+		this.outEdges = new IntList[vertexIndex.size()];
+
+		for (int i = 0; i < outEdges.length; i++) {
+			outEdges[i] = vertices.get(vertexIndex.getVertexID(i)).getOutEdgeIDs();
+		}
+	}
+
+	@Override
+	public int size() {
+
+		return outEdges.length;
+	}
+
+	@Override
+	public int outDegree(int index) {
+
+		return outEdges[index].size();
+	}
+
+	@Override
+	public int outNeighbor(int index, int i) {
+
+		return vertexIndex.indexOf(outEdges[index].getInt(i));
+	}
+}
@@ -0,0 +1,186 @@
+/** An undirected, weighted graph in compressed sparse row (CSR) form.
+ *
+ * Vertex i's neighbors are neighbors[offsets[i]] to
+ * neighbors[offsets[i+1] - 1], with the weight of each edge at the same
+ * position of weights.  Every edge between two different vertices is
+ * stored in both their rows, and a loop once, in its vertex's row, so a
+ * vertex's weighted degree is the sum of its row and the total weight is
+ * the sum of every row.  These are the conventions of the Louvain method
+ * (see Louvain), whose levels are graphs of this kind.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package graph;
+
+import java.util.Arrays;
+
+final class WeightedAdjacency {
+
+	final int[] offsets;
+	final int[] neighbors;
+	final double[] weights;
+	// sum of each row, and of every row
+	final double[] degrees;
+	final double totalWeight;
+
+	WeightedAdjacency(int[] offsets, int[] neighbors, double[] weights) {
+
+		this.offsets = offsets;
+		this.neighbors = neighbors;
+		this.weights = weights;
+
+		int n = offsets.length - 1;
+		this.degrees = new double[n];
+		double total = 0;
+		for (int i = 0; i < n; i++) {
+			for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+				degrees[i] += weights[e];
+			}
+			total += degrees[i];
+		}
+		this.totalWeight = total;
+	}
+
+	/** Build the undirected form of a directed graph.
+	 *
+	 * Each directed edge adds 1 to the weight of the undirected edge
+	 * between its ends, so an edge and its reverse make an edge of weight
+	 * 2, as when the Louvain method's C++ code reads an edge list.
+	 */
+	static WeightedAdjacency fromDirected(IndexedAdjacency graph) {
+
+		int n = graph.size();
+
+		int[] offsets = new int[n + 1];
+		long m = 0;
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < graph.outDegree(i); j++) {
+				int to = graph.outNeighbor(i, j);
+				offsets[i + 1]++;
+				if (to != i) {
+					offsets[to + 1]++;
+				}
+				m += to != i ? 2 : 1;
+			}
+		}
+
+		if (m > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many edges to weigh: " + m);
+		}
+
+		for (int i = 0; i < n; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+
+		int[] fill = new int[n];
+		System.arraycopy(offsets, 0, fill, 0, n);
+		int[] neighbors = new int[(int)m];
+		double[] weights = new double[(int)m];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < graph.outDegree(i); j++) {
+				int to = graph.outNeighbor(i, j);
+				neighbors[fill[i]] = to;
+				weights[fill[i]++] = 1;
+				if (to != i) {
+					neighbors[fill[to]] = i;
+					weights[fill[to]++] = 1;
+				}
+			}
+		}
+
+		// merge the repeats of each edge
+		int[] identity = new int[n];
+		for (int i = 0; i < n; i++) {
+			identity[i] = i;
+		}
+
+		return new WeightedAdjacency(offsets, neighbors, weights)
+				.aggregate(identity, n);
+	}
+
+	/** The number of vertices, whose indices are 0..size()-1.
+	 */
+	int size() {
+
+		return degrees.length;
+	}
+
+	/** The weight of a vertex's loop, or 0 if it has none.
+	 */
+	double loopWeight(int index) {
+
+		double weight = 0;
+
+		for (int e = offsets[index]; e < offsets[index + 1]; e++) {
+			if (neighbors[e] == index) {
+				weight += weights[e];
+			}
+		}
+
+		return weight;
+	}
+
+	/** Build the graph of groups of this graph's vertices.
+	 *
+	 * Each group is a vertex, and the weight of the edge between two groups
+	 * is the total weight of the edges between their members.  Edges
+	 * within a group become the group's loop, counted from both ends, so
+	 * each group's weighted degree is the sum of its members'.
+	 *
+	 * @param groupOf is the group, 0..numGroups-1, of every vertex
+	 */
+	WeightedAdjacency aggregate(int[] groupOf, int numGroups) {
+
+		int n = size();
+
+		// vertices in group order (a counting sort)
+		int[] groupStart = new int[numGroups + 1];
+		for (int i = 0; i < n; i++) {
+			groupStart[groupOf[i] + 1]++;
+		}
+		for (int g = 0; g < numGroups; g++) {
+			groupStart[g + 1] += groupStart[g];
+		}
+		int[] members = new int[n];
+		int[] fill = new int[numGroups];
+		System.arraycopy(groupStart, 0, fill, 0, numGroups);
+		for (int i = 0; i < n; i++) {
+			members[fill[groupOf[i]]++] = i;
+		}
+
+		int[] groupOffsets = new int[numGroups + 1];
+		IntList groupNeighbors = new IntList();
+		double[] groupWeights = new double[neighbors.length];
+		// where each group is in the row being built, or -1
+		int[] position = new int[numGroups];
+		Arrays.fill(position, -1);
+
+		for (int g = 0; g < numGroups; g++) {
+
+			int rowStart = groupNeighbors.size();
+			groupOffsets[g] = rowStart;
+
+			for (int k = groupStart[g]; k < groupStart[g + 1]; k++) {
+				int i = members[k];
+				for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+					int h = groupOf[neighbors[e]];
+					if (position[h] < 0) {
+						position[h] = groupNeighbors.size();
+						groupNeighbors.addInt(h);
+						groupWeights[position[h]] = 0;
+					}
+					groupWeights[position[h]] += weights[e];
+				}
+			}
+
+			for (int e = rowStart; e < groupNeighbors.size(); e++) {
+				position[groupNeighbors.getInt(e)] = -1;
+			}
+		}
+		groupOffsets[numGroups] = groupNeighbors.size();
+
+		return new WeightedAdjacency(groupOffsets, groupNeighbors.toIntArray(),
+				Arrays.copyOf(groupWeights, groupNeighbors.size()));
+	}
+}
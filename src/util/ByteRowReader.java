@@ -0,0 +1,484 @@
+/** An XMLRowReader that scans <row .../> elements straight out of bytes.
+ *
+ * The data dump puts each record on its own line as a single attribute-only
+ * <row/> element, so a full XML parser is not needed to read it.  This
+ * reader finds each row in a ByteBuffer, records where each attribute's
+ * name and value start and end, and then:
+ *
+ * - getInt parses digits straight from the buffer, with no String created
+ * - hasAttribute compares names byte by byte, with no String created
+ * - getString decodes UTF-8 and XML entities into a String, and is the
+ *   only call that allocates (counted by getStringsMaterialized())
+ *
+ * So a loader that only asks for ids, scores and counts allocates nothing
+ * per row, and one that also asks for Body/Title pays for exactly those.
+ *
+ * Files bigger than one mapping window (e.g. Posts.xml for the biggest
+ * sites) are mapped window by window, always restarting at a row boundary.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+public class ByteRowReader implements XMLRowReader {
+
+	// how much of a file is mapped at a time
+	static final int DEFAULT_WINDOW_SIZE = 1 << 28;
+
+	private static final int MAX_ATTRIBUTES = 64;
+
+	private ByteBuffer buffer;
+	private int position;
+
+	// only set when reading a file window by window
+	private FileChannel channel;
+	private long windowStart;
+	private int windowSize;
+	private long rangeEnd;
+
+	// start/end offsets (in buffer) of each attribute of the current row
+	private int numAttributes;
+	private int[] nameStarts;
+	private int[] nameEnds;
+	private int[] valueStarts;
+	private int[] valueEnds;
+
+	// reused by getString so decoding only allocates the String itself
+	private char[] decodeBuffer;
+
+	private long rowsRead;
+	private long stringsMaterialized;
+
+	/** Create a reader over the rows in a buffer.
+	 *
+	 * Reads from the buffer's position to its limit.  The buffer is not
+	 * modified.
+	 *
+	 * @param buffer is the buffer that holds the rows
+	 */
+	public ByteRowReader(ByteBuffer buffer) {
+
+		this.buffer = buffer.slice();
+		this.position = 0;
+
+		this.nameStarts = new int[16];
+		this.nameEnds = new int[16];
+		this.valueStarts = new int[16];
+		this.valueEnds = new int[16];
+		this.decodeBuffer = new char[256];
+	}
+
+	/** Create a reader over the rows of a file, mapped into memory.
+	 *
+	 * @param xmlFile is a data dump XML file
+	 */
+	public ByteRowReader(File xmlFile) throws IOException {
+
+		this(xmlFile, DEFAULT_WINDOW_SIZE);
+	}
+
+	ByteRowReader(File xmlFile, int windowSize) throws IOException {
+
+		this(xmlFile, 0, xmlFile.length(), windowSize);
+	}
+
+	/** Create a reader over the rows in part of a file.
+	 *
+	 * The range must start and end on line boundaries (see
+	 * ShardedRowParser), so that every row is in exactly one range.
+	 *
+	 * @param xmlFile is a data dump XML file
+	 * @param start is the offset of the first byte of the range
+	 * @param end is the offset just past the last byte of the range
+	 */
+	ByteRowReader(File xmlFile, long start, long end, int windowSize) 
+				  throws IOException {
+
+		this(ByteBuffer.allocate(0));
+
+		RandomAccessFile file = new RandomAccessFile(xmlFile, "r");
+		this.channel = file.getChannel();
+		this.windowSize = windowSize;
+		this.rangeEnd = Math.min(end, channel.size());
+		mapWindow(start);
+	}
+
+	@Override
+	public boolean nextRow() throws IOException {
+
+		while (true) {
+
+			int rowStart = indexOfRow(position);
+
+			if (rowStart >= 0 && scanAttributes(rowStart + 4)) {
+				rowsRead++;
+				return true;
+			}
+
+			// the row (or the next "<row") runs past the end of the window
+			if (!hasMoreWindows()) {
+				numAttributes = 0;
+				position = buffer.limit();
+				return false;
+			}
+
+			mapWindow(windowStart + (rowStart >= 0 ? rowStart : lastLineStart()));
+		}
+	}
+
+	@Override
+	public boolean hasAttribute(String name) {
+
+		return indexOfAttribute(name) >= 0;
+	}
+
+	@Override
+	public int getInt(String name) {
+
+		int attribute = indexOfAttribute(name);
+
+		if (attribute < 0) {
+			throw new IllegalArgumentException("Row has no attribute " + name);
+		}
+
+		int i = valueStarts[attribute];
+		int end = valueEnds[attribute];
+		boolean negative = false;
+
+		if (i < end && buffer.get(i) == '-') {
+			negative = true;
+			i++;
+		}
+
+		if (i == end) {
+			throw new NumberFormatException("Attribute " + name + " is not a number");
+		}
+
+		// accumulate negatively so Integer.MIN_VALUE does not overflow
+		int value = 0;
+		for (; i < end; i++) {
+			int digit = buffer.get(i) - '0';
+			// value*10 - digit must not go below Integer.MIN_VALUE
+			if (digit < 0 || digit > 9
+					|| value < (Integer.MIN_VALUE + digit) / 10) {
+				throw new NumberFormatException("Attribute " + name + " is not "
+						+ "an int");
+			}
+			value = value * 10 - digit;
+		}
+
+		if (!negative) {
+			if (value == Integer.MIN_VALUE) {
+				throw new NumberFormatException("Attribute " + name + " is not "
+						+ "an int");
+			}
+			value = -value;
+		}
+
+		return value;
+	}
+
+	@Override
+	public String getString(String name) {
+
+		int attribute = indexOfAttribute(name);
+
+		if (attribute < 0) {
+			return null;
+		}
+
+		int start = valueStarts[attribute];
+		int end = valueEnds[attribute];
+
+		// a UTF-8 value never decodes to more chars than it has bytes
+		if (decodeBuffer.length < end - start) {
+			decodeBuffer = new char[Math.max(end - start, decodeBuffer.length * 2)];
+		}
+
+		int length = 0;
+		int i = start;
+
+		while (i < end) {
+
+			int b = buffer.get(i) & 0xFF;
+			int codePoint;
+
+			if (b == '&') {
+				int semicolon = i + 1;
+				while (semicolon < end && buffer.get(semicolon) != ';') {
+					semicolon++;
+				}
+				codePoint = decodeEntity(i + 1, semicolon);
+				i = semicolon + 1;
+			}
+			else if (b < 0x80) {
+				codePoint = b;
+				i++;
+			}
+			else if (b < 0xE0) {
+				codePoint = ((b & 0x1F) << 6) | (buffer.get(i + 1) & 0x3F);
+				i += 2;
+			}
+			else if (b < 0xF0) {
+				codePoint = ((b & 0x0F) << 12) | ((buffer.get(i + 1) & 0x3F) << 6)
+						| (buffer.get(i + 2) & 0x3F);
+				i += 3;
+			}
+			else {
+				codePoint = ((b & 0x07) << 18) | ((buffer.get(i + 1) & 0x3F) << 12)
+						| ((buffer.get(i + 2) & 0x3F) << 6) | (buffer.get(i + 3) & 0x3F);
+				i += 4;
+			}
+
+			if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+				decodeBuffer[length++] = (char)codePoint;
+			}
+			else {
+				decodeBuffer[length++] = Character.highSurrogate(codePoint);
+				decodeBuffer[length++] = Character.lowSurrogate(codePoint);
+			}
+		}
+
+		stringsMaterialized++;
+
+		return new String(decodeBuffer, 0, length);
+	}
+
+	/** Get the number of rows read so far.
+	 */
+	public long getRowsRead() {
+
+		return rowsRead;
+	}
+
+	/** Get the number of Strings created by getString so far.
+	 *
+	 * Nothing else this reader does allocates per row, so
+	 * getStringsMaterialized() / getRowsRead() is this reader's
+	 * allocation-per-row budget.
+	 */
+	public long getStringsMaterialized() {
+
+		return stringsMaterialized;
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		if (channel != null) {
+			channel.close();
+		}
+	}
+
+	/** Find the next "<row" at or after from.
+	 *
+	 * @return the offset of the '<', or -1 if there is none in the buffer
+	 */
+	private int indexOfRow(int from) {
+
+		int limit = buffer.limit() - 4;
+
+		for (int i = from; i < limit; i++) {
+			if (buffer.get(i) == '<' && buffer.get(i + 1) == 'r' &&
+				buffer.get(i + 2) == 'o' && buffer.get(i + 3) == 'w' &&
+				isWhitespace(buffer.get(i + 4))) {
+
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/** Record the attributes of the row whose attributes start at i.
+	 *
+	 * @return true if the whole row was in the buffer, false otherwise
+	 */
+	private boolean scanAttributes(int i) {
+
+		int limit = buffer.limit();
+		numAttributes = 0;
+
+		while (true) {
+
+			while (i < limit && isWhitespace(buffer.get(i))) {
+				i++;
+			}
+
+			if (i >= limit) {
+				return false;
+			}
+
+			byte b = buffer.get(i);
+			if (b == '/' || b == '>') {
+				position = i + 1;
+				return true;
+			}
+
+			int nameStart = i;
+			while (i < limit && buffer.get(i) != '=' && !isWhitespace(buffer.get(i))) {
+				i++;
+			}
+			int nameEnd = i;
+
+			while (i < limit && buffer.get(i) != '"' && buffer.get(i) != '\'') {
+				i++;
+			}
+			if (i >= limit) {
+				return false;
+			}
+
+			byte quote = buffer.get(i);
+			int valueStart = ++i;
+			while (i < limit && buffer.get(i) != quote) {
+				i++;
+			}
+			if (i >= limit) {
+				return false;
+			}
+
+			addAttribute(nameStart, nameEnd, valueStart, i);
+			i++;
+		}
+	}
+
+	private void addAttribute(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+
+		if (numAttributes == nameStarts.length) {
+
+			if (numAttributes == MAX_ATTRIBUTES) {
+				throw new IllegalArgumentException("Row at offset " +
+						(windowStart + nameStart) + " has too many attributes");
+			}
+
+			int newCapacity = numAttributes * 2;
+			nameStarts = Arrays.copyOf(nameStarts, newCapacity);
+			nameEnds = Arrays.copyOf(nameEnds, newCapacity);
+			valueStarts = Arrays.copyOf(valueStarts, newCapacity);
+			valueEnds = Arrays.copyOf(valueEnds, newCapacity);
+		}
+
+		nameStarts[numAttributes] = nameStart;
+		nameEnds[numAttributes] = nameEnd;
+		valueStarts[numAttributes] = valueStart;
+		valueEnds[numAttributes] = valueEnd;
+		numAttributes++;
+	}
+
+	private int indexOfAttribute(String name) {
+
+		int nameLength = name.length();
+
+		for (int a = 0; a < numAttributes; a++) {
+
+			int start = nameStarts[a];
+
+			if (nameEnds[a] - start != nameLength) {
+				continue;
+			}
+
+			int j = 0;
+			while (j < nameLength && buffer.get(start + j) == name.charAt(j)) {
+				j++;
+			}
+
+			if (j == nameLength) {
+				return a;
+			}
+		}
+
+		return -1;
+	}
+
+	/** Decode the entity between '&' and ';' (exclusive).
+	 *
+	 * @return the entity's code point
+	 */
+	private int decodeEntity(int start, int end) {
+
+		if (buffer.get(start) == '#') {
+
+			int radix = 10;
+			int i = start + 1;
+			if (buffer.get(i) == 'x' || buffer.get(i) == 'X') {
+				radix = 16;
+				i++;
+			}
+
+			int codePoint = 0;
+			for (; i < end; i++) {
+				codePoint = codePoint * radix + Character.digit(buffer.get(i), radix);
+			}
+
+			return codePoint;
+		}
+
+		int length = end - start;
+		byte first = buffer.get(start);
+
+		if (length == 2 && first == 'l') {
+			return '<';
+		}
+		else if (length == 2 && first == 'g') {
+			return '>';
+		}
+		else if (length == 3 && first == 'a') {
+			return '&';
+		}
+		else if (length == 4 && first == 'q') {
+			return '"';
+		}
+		else if (length == 4 && first == 'a') {
+			return '\'';
+		}
+
+		throw new IllegalArgumentException("Unknown XML entity at offset " +
+				(windowStart + start));
+	}
+
+	private boolean hasMoreWindows() throws IOException {
+
+		return channel != null && windowStart + buffer.limit() < rangeEnd;
+	}
+
+	/** Find the start of the last (incomplete) line in the buffer.
+	 */
+	private int lastLineStart() {
+
+		int i = buffer.limit() - 1;
+
+		while (i > position && buffer.get(i - 1) != '\n') {
+			i--;
+		}
+
+		return i;
+	}
+
+	private void mapWindow(long start) throws IOException {
+
+		if (start <= windowStart && buffer.limit() > 0) {
+			// the current window does not hold a single whole row
+			throw new IOException("Row at offset " + start + " is longer than "
+					+ "the mapping window of " + windowSize + " bytes");
+		}
+
+		long size = Math.min(windowSize, rangeEnd - start);
+
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+		windowStart = start;
+		position = 0;
+	}
+
+	private static boolean isWhitespace(byte b) {
+
+		return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+	}
+}
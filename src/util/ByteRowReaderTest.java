@@ -0,0 +1,144 @@
+/** Tests that ByteRowReader keeps to its allocation-per-row budget.
+ *
+ * Reads a sample Posts.xml dump, as the loader does, and counts the
+ * Strings getString() creates (getStringsMaterialized()): none when only
+ * int attributes are read, and one per row when only Body is.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ByteRowReaderTest {
+
+	private static final String SAMPLE_POSTS =
+			"\uFEFF<?xml version=\"1.0\" encoding=\"utf-8\"?>\r\n"
+			+ "<posts>\r\n"
+			+ "  <row Id=\"1\" PostTypeId=\"1\" AcceptedAnswerId=\"3\" "
+			+ "CreationDate=\"2011-01-03T20:52:52.880\" Score=\"9\" "
+			+ "ViewCount=\"541\" Body=\"&lt;p&gt;What is a monad?&lt;/p&gt;\" "
+			+ "OwnerUserId=\"8\" Title=\"Monads &amp; you\" "
+			+ "Tags=\"&lt;haskell&gt;&lt;monads&gt;\" AnswerCount=\"2\" "
+			+ "CommentCount=\"1\" FavoriteCount=\"4\" />\r\n"
+			+ "  <row Id=\"2\" PostTypeId=\"2\" ParentId=\"1\" "
+			+ "CreationDate=\"2011-01-03T21:00:00.000\" Score=\"-2\" "
+			+ "Body=\"&lt;p&gt;A burrito.&lt;/p&gt;\" OwnerUserId=\"12\" "
+			+ "CommentCount=\"0\" />\r\n"
+			+ "  <row Id=\"3\" PostTypeId=\"2\" ParentId=\"1\" "
+			+ "CreationDate=\"2011-01-04T08:13:27.117\" Score=\"14\" "
+			+ "Body=\"&lt;p&gt;Café → λ &#x1F600;&lt;/p&gt;\" "
+			+ "CommentCount=\"3\" />\r\n"
+			+ "  <row Id=\"4\" PostTypeId=\"1\" Score=\"2147483647\" "
+			+ "ViewCount=\"0\" Body=\"\" OwnerUserId=\"2147483649\" "
+			+ "Title=\"Big numbers\" Tags=\"&lt;ints&gt;\" AnswerCount=\"0\" "
+			+ "CommentCount=\"0\" />\r\n"
+			+ "</posts>\r\n";
+
+	private static final int SAMPLE_ROWS = 4;
+
+	private File dump;
+
+	@Before
+	public void writeDump() throws IOException {
+
+		dump = File.createTempFile("Posts", ".xml");
+		OutputStream out = new FileOutputStream(dump);
+		try {
+			out.write(SAMPLE_POSTS.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+
+	@After
+	public void deleteDump() {
+
+		dump.delete();
+	}
+
+	@Test
+	public void readingIntsMaterializesNoStrings() throws IOException {
+
+		ByteRowReader rows = new ByteRowReader(dump);
+		long scoreSum = 0;
+
+		try {
+			while (rows.nextRow()) {
+				rows.getInt("Id");
+				rows.getInt("PostTypeId");
+				scoreSum += rows.getInt("Score");
+				rows.getInt("CommentCount");
+				if (rows.hasAttribute("ParentId")) {
+					assertEquals(1, rows.getInt("ParentId"));
+				}
+			}
+		} finally {
+			rows.close();
+		}
+
+		assertEquals(9 - 2 + 14 + (long)Integer.MAX_VALUE, scoreSum);
+		assertEquals(SAMPLE_ROWS, rows.getRowsRead());
+		assertEquals(0, rows.getStringsMaterialized());
+	}
+
+	@Test
+	public void readingBodyMaterializesOneStringPerRow() throws IOException {
+
+		ByteRowReader rows = new ByteRowReader(dump);
+		String[] bodies = new String[SAMPLE_ROWS];
+		int row = 0;
+
+		try {
+			while (rows.nextRow()) {
+				bodies[row++] = rows.getString("Body");
+			}
+		} finally {
+			rows.close();
+		}
+
+		assertEquals(SAMPLE_ROWS, rows.getRowsRead());
+		assertEquals(rows.getRowsRead(), rows.getStringsMaterialized());
+
+		assertEquals("<p>What is a monad?</p>", bodies[0]);
+		assertEquals("<p>A burrito.</p>", bodies[1]);
+		assertEquals("<p>Café → λ 😀</p>", bodies[2]);
+		assertEquals("", bodies[3]);
+	}
+
+	@Test
+	public void intsThatOverflowAreRejected() throws IOException {
+
+		ByteRowReader rows = new ByteRowReader(dump);
+
+		try {
+			while (rows.nextRow()) {
+				if (rows.getInt("Id") == 4) {
+					assertEquals(Integer.MAX_VALUE, rows.getInt("Score"));
+					try {
+						rows.getInt("OwnerUserId");
+						fail("2147483649 was read as an int");
+					} catch (NumberFormatException e) {
+						assertTrue(e.getMessage().contains("OwnerUserId"));
+					}
+				}
+			}
+		} finally {
+			rows.close();
+		}
+
+		assertEquals(0, rows.getStringsMaterialized());
+	}
+}
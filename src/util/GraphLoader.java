@@ -7,9 +7,16 @@ package util;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -21,11 +28,30 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
+import graph.CommentNode;
+import graph.MappedGraphSnapshot;
 import graph.StackExchangeTopicGraph;
+import graph.TopicGraphSnapshot;
 import graph.UserNode;
+import graph.VertexIndex;
 
 public class GraphLoader {
 	
+	// the attributes the row handlers below read from each file, numeric
+	// ones apart from text ones so a RowBatch can keep them as ints
+	static final String[] TAG_INT_ATTRIBUTES = {"Id", "Count"};
+	static final String[] TAG_TEXT_ATTRIBUTES = {"TagName"};
+	static final String[] USER_INT_ATTRIBUTES = {"Id", "Reputation", "Age",
+			"UpVotes", "DownVotes", "AccountId"};
+	static final String[] USER_TEXT_ATTRIBUTES = {"DisplayName"};
+	static final String[] POST_INT_ATTRIBUTES = {"Id", "PostTypeId", "ParentId",
+			"AcceptedAnswerId", "Score", "ViewCount", "OwnerUserId",
+			"AnswerCount", "CommentCount", "FavoriteCount"};
+	static final String[] POST_TEXT_ATTRIBUTES = {"Body", "Title", "Tags"};
+	static final String[] COMMENT_INT_ATTRIBUTES = {"Id", "PostId", "Score",
+			"UserId"};
+	static final String[] COMMENT_TEXT_ATTRIBUTES = {"Text"};
+	
     /**
      * Loads graph with data from a file.
      * The file should consist of lines with 2 integers each, corresponding
@@ -59,6 +85,100 @@ public class GraphLoader {
         sc.close();
     }
     
+    /**
+     * Loads graph with data from a file, parsing the file in parallel.
+     * 
+     * Same file format as loadGraph, and for a file of ints the same result
+     * (vertices are added in the order they first appear, edges in file 
+     * order), but the file is memory mapped, cut into line-aligned chunks 
+     * and each chunk's integers are parsed straight from the mapped bytes 
+     * on its own thread.  Only inserting into the graph, which is not 
+     * thread safe, is sequential.  Where loadGraph stops quietly at the 
+     * first token that is not an int, this throws, and adds nothing from
+     * the chunk it is in or any later chunk.
+     * 
+     * @param g the graph to add vertices and edges to
+     * @param filename the edge list file
+     * @param numThreads the number of chunks to parse at the same time
+     * @throws IOException if the file cannot be read or has something other
+     * than an int (including one out of int range)
+     */
+    public static void loadGraphMapped(graph.Graph g, String filename,
+    								   int numThreads) throws IOException {
+    	
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("Need at least one thread");
+        }
+    	
+        final File file = new File(filename);
+        final long[] boundaries = 
+        		ShardedRowParser.splitAtLineBoundaries(file, numThreads);
+        
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        List<Future<int[]>> chunks = new ArrayList<Future<int[]>>();
+        
+        try {
+            for (int i = 0; i < boundaries.length - 1; i++) {
+        	
+                final int chunk = i;
+                chunks.add(executor.submit(new Callable<int[]>() {
+                    @Override
+                    public int[] call() throws IOException {
+                        return MappedEdgeListParser.parse(file, 
+                        		boundaries[chunk], boundaries[chunk + 1]);
+                    }
+                }));
+            }
+            
+            // an open addressing table of the vertices added so far, sized by
+            // how many there are rather than by the largest vertex ID
+            VertexIndex seen = new VertexIndex();
+            
+            // insert in file order, one chunk at a time as each is ready
+            for (Future<int[]> chunk : chunks) {
+            	
+                int[] edges = awaitChunk(chunk);
+                
+                for (int i = 0; i < edges.length; i += 2) {
+                    addVertexIfUnseen(g, edges[i], seen);
+                    addVertexIfUnseen(g, edges[i + 1], seen);
+                    g.addEdge(edges[i], edges[i + 1]);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private static void addVertexIfUnseen(graph.Graph g, int v, VertexIndex seen) {
+    	
+        if (!seen.contains(v)) {
+            g.addVertex(v, 1);
+            seen.add(v);
+        }
+    }
+    
+    private static int[] awaitChunk(Future<int[]> chunk) throws IOException {
+    	
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a chunk to be parsed", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException)e.getCause();
+            }
+            if (e.getCause() instanceof NumberFormatException) {
+                throw new IOException(e.getCause().getMessage(), e.getCause());
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+    
     /** Populates a StackExchangeTopicGraph with data from a Stack Exchange topic.
      * 
      * Uses the following XML files from a specified topic data dump bundle:
@@ -100,6 +220,409 @@ public class GraphLoader {
 		graph.addAllEdges();
 	}
 	
+	/** Populates a StackExchangeTopicGraph by streaming a Stack Exchange topic.
+	 * 
+	 * Drop-in alternative to populateStackExchangeTopicGraph that reads each
+	 * XML file row by row with a pull parser instead of building a DOM, so 
+	 * memory used while loading is proportional to the graph being built
+	 * rather than to the graph plus the DOM of the biggest file.
+	 * 
+	 * Files are read in the same order as populateStackExchangeTopicGraph,
+	 * so the resulting graph (including vertex IDs) is the same.
+	 * 
+	 * @param graph the StackExchangeTopicGraph to populate
+	 * @param directoryWithXMLFiles the directory with all of a Stack Exchange
+	 * topic's data in the form of XML files found at the data dump.
+	 * @throws IOException if a file cannot be read or is malformed
+	 */
+	public static void streamStackExchangeTopicGraph(StackExchangeTopicGraph graph,
+													 String directoryWithXMLFiles) 
+													 throws IOException {
+		
+		streamStackExchangeTopicGraph(graph, directoryWithXMLFiles, false);
+	}
+	
+	/** Populates a StackExchangeTopicGraph by streaming a Stack Exchange topic.
+	 * 
+	 * If singlePassPosts is true, Posts.xml (by far the biggest file) is read
+	 * once instead of twice: questions and answers are added in file order,
+	 * and answers that show up before their question are buffered and added
+	 * at the end of the file.  The resulting graph has the same vertices and
+	 * edges as the two-pass load, but questions and answers are no longer
+	 * numbered in separate blocks, so vertex IDs differ.
+	 * 
+	 * @param graph the StackExchangeTopicGraph to populate
+	 * @param directoryWithXMLFiles the directory with all of a Stack Exchange
+	 * topic's data in the form of XML files found at the data dump.
+	 * @param singlePassPosts whether to read Posts.xml in a single pass
+	 * @throws IOException if a file cannot be read or is malformed
+	 */
+	public static void streamStackExchangeTopicGraph(StackExchangeTopicGraph graph,
+													 String directoryWithXMLFiles,
+													 boolean singlePassPosts) 
+													 throws IOException {
+		
+		streamStackExchangeTopicGraph(graph, directoryWithXMLFiles, 
+									  singlePassPosts, RowDecoder.STAX);
+	}
+	
+	/** Populates a StackExchangeTopicGraph by streaming a Stack Exchange topic.
+	 * 
+	 * Same as streamStackExchangeTopicGraph(graph, directory, singlePassPosts)
+	 * but with a choice of how rows are decoded.  RowDecoder.BYTE_SCANNER
+	 * skips the XML parser and reads numeric attributes straight from the
+	 * file's bytes, which is much cheaper on the biggest dumps.
+	 * 
+	 * @param graph the StackExchangeTopicGraph to populate
+	 * @param directoryWithXMLFiles the directory with all of a Stack Exchange
+	 * topic's data in the form of XML files found at the data dump.
+	 * @param singlePassPosts whether to read Posts.xml in a single pass
+	 * @param decoder how to decode each file's rows
+	 * @throws IOException if a file cannot be read or is malformed
+	 */
+	public static void streamStackExchangeTopicGraph(StackExchangeTopicGraph graph,
+													 String directoryWithXMLFiles,
+													 boolean singlePassPosts,
+													 RowDecoder decoder) 
+													 throws IOException {
+		
+		// same dependency order as the DOM loader:
+		// tags, then users, then questions, then answers, then comments
+		streamTagsIntoGraph(graph, decoder, directoryWithXMLFiles + "Tags.xml");
+		streamUsersIntoGraph(graph, decoder, directoryWithXMLFiles + "Users.xml");
+		
+		if (singlePassPosts) {
+			streamPostsIntoGraph(graph, decoder, directoryWithXMLFiles + "Posts.xml");
+		}
+		else {
+			streamQuestionsIntoGraph(graph, decoder, directoryWithXMLFiles + "Posts.xml");
+			streamAnswersIntoGraph(graph, decoder, directoryWithXMLFiles + "Posts.xml");
+		}
+		
+		streamCommentsIntoGraph(graph, decoder, directoryWithXMLFiles + "Comments.xml");
+		
+		graph.addAllEdges();
+	}
+	
+	/** Populates a StackExchangeTopicGraph by parsing a Stack Exchange
+	 * topic's XML files concurrently.
+	 * 
+	 * Each of Tags.xml, Users.xml, Posts.xml (once for questions and once
+	 * for answers) and Comments.xml is parsed on its own task, which hands
+	 * its rows over in small batches, a few batches ahead of the graph
+	 * (see RowBatchStream).  The graph is built on the calling thread in 
+	 * the usual dependency order (tags, users, questions, answers, 
+	 * comments), replaying each file's batches as they arrive.  Because 
+	 * vertices are added on one thread in the same order as the sequential
+	 * loaders, vertex IDs (uniqueVertexIDCounter) are the same on every run
+	 * and the same as streamStackExchangeTopicGraph(graph, directory).
+	 * 
+	 * Only a few batches per file are held at a time, so memory used while
+	 * loading stays proportional to the graph, as with the sequential 
+	 * loaders, rather than to the graph plus the dump's text.  The price 
+	 * is that a task can only get a few batches ahead of the graph, so 
+	 * parsing overlaps building the graph rather than running all at once,
+	 * and Posts.xml is parsed twice rather than kept for the answers.
+	 * 
+	 * @param graph the StackExchangeTopicGraph to populate
+	 * @param directoryWithXMLFiles the directory with all of a Stack Exchange
+	 * topic's data in the form of XML files found at the data dump.
+	 * @param numThreads the number of files to parse at the same time
+	 * @throws IOException if a file cannot be read or is malformed
+	 */
+	public static void streamStackExchangeTopicGraphInParallel(
+			StackExchangeTopicGraph graph, String directoryWithXMLFiles,
+			int numThreads) throws IOException {
+		
+		streamStackExchangeTopicGraphInParallel(graph, directoryWithXMLFiles,
+				numThreads, RowDecoder.STAX);
+	}
+	
+	/** Populates a StackExchangeTopicGraph by parsing a Stack Exchange
+	 * topic's XML files concurrently, with a choice of how rows are decoded.
+	 * 
+	 * @see #streamStackExchangeTopicGraphInParallel(StackExchangeTopicGraph, String, int)
+	 * 
+	 * @param decoder how to decode each file's rows
+	 */
+	public static void streamStackExchangeTopicGraphInParallel(
+			StackExchangeTopicGraph graph, String directoryWithXMLFiles,
+			int numThreads, RowDecoder decoder) throws IOException {
+		
+		if (numThreads < 1) {
+			throw new IllegalArgumentException("Need at least one thread");
+		}
+		
+		RowBatchStream tags = new RowBatchStream(decoder, 
+				new File(directoryWithXMLFiles + "Tags.xml"),
+				TAG_INT_ATTRIBUTES, TAG_TEXT_ATTRIBUTES);
+		RowBatchStream users = new RowBatchStream(decoder, 
+				new File(directoryWithXMLFiles + "Users.xml"),
+				USER_INT_ATTRIBUTES, USER_TEXT_ATTRIBUTES);
+		RowBatchStream questions = new RowBatchStream(decoder, 
+				new File(directoryWithXMLFiles + "Posts.xml"),
+				POST_INT_ATTRIBUTES, POST_TEXT_ATTRIBUTES);
+		RowBatchStream answers = new RowBatchStream(decoder, 
+				new File(directoryWithXMLFiles + "Posts.xml"),
+				POST_INT_ATTRIBUTES, POST_TEXT_ATTRIBUTES);
+		RowBatchStream comments = new RowBatchStream(decoder, 
+				new File(directoryWithXMLFiles + "Comments.xml"),
+				COMMENT_INT_ATTRIBUTES, COMMENT_TEXT_ATTRIBUTES);
+		
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		
+		try {
+			// submitted in the order they are replayed: the pool runs tasks
+			// in that order, so the file being replayed always has a thread
+			// even while later files' tasks wait for room in their queues
+			executor.submit(tags);
+			executor.submit(users);
+			executor.submit(questions);
+			executor.submit(answers);
+			executor.submit(comments);
+			
+			addTagRows(graph, tags);
+			tags.close();
+			
+			addUserRows(graph, users);
+			users.close();
+			
+			addQuestionRows(graph, questions);
+			questions.close();
+			
+			addAnswerRows(graph, answers);
+			answers.close();
+			
+			addCommentRows(graph, comments);
+			comments.close();
+		} finally {
+			executor.shutdownNow();
+		}
+		
+		// edges touch vertices from every file, so they are added last
+		// (and on this thread, since vertex edge lists are not thread safe)
+		graph.addAllEdges();
+	}
+	
+	/** Populates a StackExchangeTopicGraph by parsing each of a Stack 
+	 * Exchange topic's XML files with several workers.
+	 * 
+	 * Each file is cut into byte ranges at line boundaries and each range
+	 * is scanned by its own worker (see ShardedRowParser), so even a single
+	 * huge Posts.xml is spread across cores.  Shards are replayed into the
+	 * graph on the calling thread in file order and in the usual dependency
+	 * order (tags, users, questions, answers, comments), so the graph and
+	 * its vertex IDs are the same as streamStackExchangeTopicGraph(graph,
+	 * directory).
+	 * 
+	 * Only a few shards per worker are parsed ahead of the graph, and 
+	 * Posts.xml is scanned a second time for the answers rather than kept,
+	 * so memory used while loading stays proportional to the graph rather
+	 * than to the graph plus the dump's text.
+	 * 
+	 * Always decodes rows with RowDecoder.BYTE_SCANNER, since a range in
+	 * the middle of a file is not a well-formed XML document.
+	 * 
+	 * @param graph the StackExchangeTopicGraph to populate
+	 * @param directoryWithXMLFiles the directory with all of a Stack Exchange
+	 * topic's data in the form of XML files found at the data dump.
+	 * @param numWorkers the number of threads parsing shards, and the
+	 * fewest shards each file is cut into
+	 * @return the throughput of each shard, in the order shards finished
+	 * @throws IOException if a file cannot be read or is malformed
+	 */
+	public static List<ShardReport> streamStackExchangeTopicGraphSharded(
+			StackExchangeTopicGraph graph, String directoryWithXMLFiles,
+			int numWorkers) throws IOException {
+		
+		if (numWorkers < 1) {
+			throw new IllegalArgumentException("Need at least one worker");
+		}
+		
+		List<ShardReport> reports = new ArrayList<ShardReport>();
+		ExecutorService executor = Executors.newFixedThreadPool(numWorkers);
+		
+		try {
+			// each file's shards are submitted only once the file before it
+			// has been replayed, and only a few ahead of the one replayed
+			XMLRowReader tags = new ShardedRowParser(
+					new File(directoryWithXMLFiles + "Tags.xml"), 
+					TAG_INT_ATTRIBUTES, TAG_TEXT_ATTRIBUTES, numWorkers, 
+					executor, reports);
+			try {
+				addTagRows(graph, tags);
+			} finally {
+				tags.close();
+			}
+			
+			XMLRowReader users = new ShardedRowParser(
+					new File(directoryWithXMLFiles + "Users.xml"),
+					USER_INT_ATTRIBUTES, USER_TEXT_ATTRIBUTES, numWorkers, 
+					executor, reports);
+			try {
+				addUserRows(graph, users);
+			} finally {
+				users.close();
+			}
+			
+			// every question before any answer, so Posts.xml is scanned 
+			// twice rather than kept for the answers
+			XMLRowReader questions = new ShardedRowParser(
+					new File(directoryWithXMLFiles + "Posts.xml"),
+					POST_INT_ATTRIBUTES, POST_TEXT_ATTRIBUTES, numWorkers, 
+					executor, reports);
+			try {
+				addQuestionRows(graph, questions);
+			} finally {
+				questions.close();
+			}
+			
+			XMLRowReader answers = new ShardedRowParser(
+					new File(directoryWithXMLFiles + "Posts.xml"),
+					POST_INT_ATTRIBUTES, POST_TEXT_ATTRIBUTES, numWorkers, 
+					executor, reports);
+			try {
+				addAnswerRows(graph, answers);
+			} finally {
+				answers.close();
+			}
+			
+			XMLRowReader comments = new ShardedRowParser(
+					new File(directoryWithXMLFiles + "Comments.xml"),
+					COMMENT_INT_ATTRIBUTES, COMMENT_TEXT_ATTRIBUTES, numWorkers, 
+					executor, reports);
+			try {
+				addCommentRows(graph, comments);
+			} finally {
+				comments.close();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		
+		graph.addAllEdges();
+		
+		return reports;
+	}
+	
+	/** Populate an empty StackExchangeTopicGraph from a binary snapshot.
+	 *
+	 * The snapshot must have been written by
+	 * StackExchangeTopicGraph.exportSnapshot with the same snapshot format
+	 * version as this build.  The graph ends up in the same state as the
+	 * graph that was saved, including vertex IDs, and its topic is set to
+	 * the saved graph's topic.
+	 *
+	 * @param graph the empty StackExchangeTopicGraph to populate
+	 * @param snapshotFileName the snapshot file
+	 * @throws IOException if the file cannot be read, is not a snapshot,
+	 * or was written with a different snapshot format version
+	 */
+	public static void loadStackExchangeTopicGraphSnapshot(
+			StackExchangeTopicGraph graph, String snapshotFileName)
+			throws IOException {
+
+		TopicGraphSnapshot.read(graph, new File(snapshotFileName));
+	}
+
+	/** Open a memory-mapped snapshot of a CapGraph or 
+	 * StackExchangeTopicGraph as a read-only graph.
+	 *
+	 * The snapshot must have been written by CapGraph.exportMappedSnapshot
+	 * or StackExchangeTopicGraph.exportMappedSnapshot with the same mapped
+	 * snapshot version as this build.  Only its header is read: the graph
+	 * is queried in place from the mapped file, so opening takes the same 
+	 * time for any size of graph.
+	 *
+	 * @param snapshotFileName the snapshot file
+	 * @return the snapshot, as a read-only graph
+	 * @throws IOException if the file cannot be mapped, is not a mapped
+	 * snapshot, or was written with a different version
+	 */
+	public static MappedGraphSnapshot openMappedSnapshot(String snapshotFileName)
+			throws IOException {
+
+		return MappedGraphSnapshot.open(new File(snapshotFileName));
+	}
+
+	private static void streamTagsIntoGraph(StackExchangeTopicGraph graph,
+											RowDecoder decoder,
+											String tagsXMLFilePath) 
+											throws IOException {
+		
+		XMLRowReader rows = decoder.open(new File(tagsXMLFilePath));
+		try {
+			addTagRows(graph, rows);
+		} finally {
+			rows.close();
+		}
+	}
+	
+	private static void streamUsersIntoGraph(StackExchangeTopicGraph graph,
+											 RowDecoder decoder,
+											 String usersXMLFilePath) 
+											 throws IOException {
+		
+		XMLRowReader rows = decoder.open(new File(usersXMLFilePath));
+		try {
+			addUserRows(graph, rows);
+		} finally {
+			rows.close();
+		}
+	}
+	
+	private static void streamQuestionsIntoGraph(StackExchangeTopicGraph graph,
+												 RowDecoder decoder,
+												 String postsXMLFilePath) 
+												 throws IOException {
+		
+		XMLRowReader rows = decoder.open(new File(postsXMLFilePath));
+		try {
+			addQuestionRows(graph, rows);
+		} finally {
+			rows.close();
+		}
+	}
+	
+	private static void streamAnswersIntoGraph(StackExchangeTopicGraph graph,
+											   RowDecoder decoder,
+											   String postsXMLFilePath) 
+											   throws IOException {
+		
+		XMLRowReader rows = decoder.open(new File(postsXMLFilePath));
+		try {
+			addAnswerRows(graph, rows);
+		} finally {
+			rows.close();
+		}
+	}
+	
+	private static void streamPostsIntoGraph(StackExchangeTopicGraph graph,
+											 RowDecoder decoder,
+											 String postsXMLFilePath) 
+											 throws IOException {
+		
+		XMLRowReader rows = decoder.open(new File(postsXMLFilePath));
+		try {
+			addPostRows(graph, rows);
+		} finally {
+			rows.close();
+		}
+	}
+	
+	private static void streamCommentsIntoGraph(StackExchangeTopicGraph graph,
+												RowDecoder decoder,
+												String commentsXMLFilePath) 
+												throws IOException {
+		
+		XMLRowReader rows = decoder.open(new File(commentsXMLFilePath));
+		try {
+			addCommentRows(graph, rows);
+		} finally {
+			rows.close();
+		}
+	}
+	
 	public static Document getXMLFileDOM(DocumentBuilder dBuilder,
 										 String xmlFilePath) {
 		
@@ -183,7 +706,7 @@ public class GraphLoader {
 					graph.addVertex(graph.getUniqueVertexIDCounter(), 
 							post, StackExchangeTopicGraph.QUESTION);
 				}
-				else if (post.getNodeType() != 2) {
+				else if (Integer.parseInt(postType) != 2) {
 					// disallow if not a question or answer
 					graph.getDisallowedPosts().put(Integer.parseInt(
 							post.getAttributes().getNamedItem("Id").getNodeValue()),
@@ -294,4 +817,221 @@ public class GraphLoader {
 			}
 		}
 	}
+	
+	/*
+	 * Row handlers shared by the streaming loaders.  Each one reads the
+	 * current row of an XMLRowReader and adds the corresponding vertex
+	 * (or tag) to the graph, exactly like the DOM loaders above do for a
+	 * DOM node.
+	 */
+	
+	static void addTagRows(StackExchangeTopicGraph graph, XMLRowReader rows)
+						   throws IOException {
+		
+		while (rows.nextRow()) {
+			addTagRow(graph, rows);
+		}
+	}
+	
+	static void addUserRows(StackExchangeTopicGraph graph, XMLRowReader rows)
+							throws IOException {
+		
+		while (rows.nextRow()) {
+			addUserRow(graph, rows);
+		}
+	}
+	
+	/** Add every question in a reader over Posts.xml.
+	 * 
+	 * Also disallows every post that is neither a question nor an answer.
+	 */
+	static void addQuestionRows(StackExchangeTopicGraph graph, XMLRowReader rows)
+								throws IOException {
+		
+		while (rows.nextRow()) {
+			int postType = rows.getInt("PostTypeId");
+			if (postType == 1) {
+				addQuestionRow(graph, rows);
+			}
+			else if (postType != 2) {
+				// disallow if not a question or answer
+				graph.getDisallowedPosts().put(rows.getInt("Id"), true);
+			}
+		}
+	}
+	
+	/** Add every answer in a reader over Posts.xml.
+	 * 
+	 * Every question must already be in the graph.
+	 */
+	static void addAnswerRows(StackExchangeTopicGraph graph, XMLRowReader rows)
+							  throws IOException {
+		
+		while (rows.nextRow()) {
+			if (rows.getInt("PostTypeId") == 2) {
+				addAnswerRow(graph, rows);
+			}
+		}
+	}
+	
+	/** Add every question and answer in a reader over Posts.xml in one pass.
+	 * 
+	 * See addPostRow.  Buffered answers are added at the end.
+	 */
+	static void addPostRows(StackExchangeTopicGraph graph, XMLRowReader rows)
+							throws IOException {
+		
+		PendingAnswerTable pendingAnswers = new PendingAnswerTable();
+		
+		while (rows.nextRow()) {
+			addPostRow(graph, rows, pendingAnswers);
+		}
+		
+		// every question is in the graph now, so every parent is known
+		pendingAnswers.resolveInto(graph);
+	}
+	
+	static void addCommentRows(StackExchangeTopicGraph graph, XMLRowReader rows)
+							   throws IOException {
+		
+		while (rows.nextRow()) {
+			addCommentRow(graph, rows);
+		}
+	}
+	
+	static void addTagRow(StackExchangeTopicGraph graph, XMLRowReader row) {
+		
+		graph.addTagToGraph(graph.createTag(row.getInt("Id"),
+				row.getString("TagName"), row.getInt("Count")));
+	}
+	
+	static void addUserRow(StackExchangeTopicGraph graph, XMLRowReader row) {
+		
+		if (!row.hasAttribute("DisplayName")) {
+			throw new IllegalArgumentException("Given row does not represent "
+					+ "a user");
+		}
+		
+		Integer age = null;
+		if (row.hasAttribute("Age")) {
+			age = row.getInt("Age");
+		}
+		
+		Integer accountID = null;
+		if (row.hasAttribute("AccountId")) {
+			accountID = row.getInt("AccountId");
+		}
+		
+		graph.addVertex(graph.createUser(graph.getUniqueVertexIDCounter(),
+				row.getString("DisplayName"), row.getInt("Id"),
+				row.getInt("Reputation"), age, row.getInt("UpVotes"),
+				row.getInt("DownVotes"), accountID));
+	}
+	
+	static void addQuestionRow(StackExchangeTopicGraph graph, XMLRowReader row) {
+		
+		// if the question's user has been deleted,
+		// create a dummy user and add it to the graph first
+		int authorUserID;
+		if (row.hasAttribute("OwnerUserId")) {
+			authorUserID = row.getInt("OwnerUserId");
+		}
+		else {
+			authorUserID = addDummyUser(graph);
+		}
+		
+		Integer acceptedAnswerID = null;
+		if (row.hasAttribute("AcceptedAnswerId")) {
+			acceptedAnswerID = row.getInt("AcceptedAnswerId");
+		}
+		
+		int favoriteCount = 0;
+		if (row.hasAttribute("FavoriteCount")) {
+			favoriteCount = row.getInt("FavoriteCount");
+		}
+		
+		graph.addVertex(graph.createQuestion(graph.getUniqueVertexIDCounter(),
+				row.getInt("Id"), row.getInt("Score"), row.getString("Body"),
+				authorUserID, row.getInt("CommentCount"), row.getInt("ViewCount"),
+				acceptedAnswerID, row.getString("Title"), row.getString("Tags"),
+				row.getInt("AnswerCount"), favoriteCount));
+	}
+	
+	/** Add a question or answer row, whichever it is, in file order.
+	 * 
+	 * Answers whose question is not in the graph yet go to pendingAnswers
+	 * instead; other post types are disallowed.
+	 */
+	static void addPostRow(StackExchangeTopicGraph graph, XMLRowReader row,
+						   PendingAnswerTable pendingAnswers) {
+		
+		int postType = row.getInt("PostTypeId");
+		
+		if (postType == 1) {
+			addQuestionRow(graph, row);
+		}
+		else if (postType == 2) {
+			if (graph.getQuestions().containsKey(row.getInt("ParentId"))) {
+				addAnswerRow(graph, row);
+			}
+			else {
+				pendingAnswers.add(row);
+			}
+		}
+		else {
+			// disallow if not a question or answer
+			graph.getDisallowedPosts().put(row.getInt("Id"), true);
+		}
+	}
+	
+	static void addAnswerRow(StackExchangeTopicGraph graph, XMLRowReader row) {
+		
+		// if the answer's user has been deleted,
+		// create a dummy user and add it to the graph first
+		int authorUserID;
+		if (row.hasAttribute("OwnerUserId")) {
+			authorUserID = row.getInt("OwnerUserId");
+		}
+		else {
+			authorUserID = addDummyUser(graph);
+		}
+		
+		graph.addVertex(graph.createAnswer(graph.getUniqueVertexIDCounter(),
+				row.getInt("Id"), row.getInt("Score"), row.getString("Body"),
+				authorUserID, row.getInt("CommentCount"), row.getInt("ParentId")));
+	}
+	
+	static void addCommentRow(StackExchangeTopicGraph graph, XMLRowReader row) {
+		
+		// if the comment's user has been deleted,
+		// create a dummy user and add it to the graph first
+		int authorUserID;
+		if (row.hasAttribute("UserId")) {
+			authorUserID = row.getInt("UserId");
+		}
+		else {
+			authorUserID = addDummyUser(graph);
+		}
+		
+		CommentNode comment = graph.createComment(graph.getUniqueVertexIDCounter(),
+				row.getInt("Id"), row.getInt("Score"), row.getString("Text"),
+				authorUserID, row.getInt("PostId"));
+		
+		// null if the comment's parent post is disallowed
+		if (comment != null) {
+			graph.addVertex(comment);
+		}
+	}
+	
+	/** Add a dummy user to stand in for a deleted author.
+	 * 
+	 * @return the userID of the new dummy user
+	 */
+	static int addDummyUser(StackExchangeTopicGraph graph) {
+		
+		UserNode user = graph.createDummyUser(graph.getUniqueVertexIDCounter());
+		graph.addVertex(user);
+		
+		return user.getUserID();
+	}
 }
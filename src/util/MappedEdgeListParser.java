@@ -0,0 +1,137 @@
+/** Parses an edge list file ("from to" per line) straight from mapped bytes.
+ * 
+ * Used by GraphLoader.loadGraphMapped.  Each range of the file (cut at line
+ * boundaries by ShardedRowParser.splitAtLineBoundaries) can be parsed on
+ * its own thread into a flat int array of (from, to) pairs.
+ * 
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+class MappedEdgeListParser {
+	
+	// biggest piece of a range mapped at once (a mapping must be < 2GB)
+	private static final int WINDOW_SIZE = 1 << 28;
+	
+	private MappedEdgeListParser() {
+		
+	}
+	
+	/** Parse every integer in a range of an edge list file.
+	 * 
+	 * @param file is the edge list file
+	 * @param start is the offset of the first byte of the range (must be
+	 * the start of a line)
+	 * @param end is the offset just past the last byte of the range (must
+	 * be the start of a line or the end of the file)
+	 * @return the integers in the order they appear, so element 2i is the
+	 * "from" vertex and element 2i+1 the "to" vertex of the range's edge i.
+	 * A trailing unpaired integer is dropped.
+	 * @throws NumberFormatException if the range has something other than
+	 * an int
+	 */
+	static int[] parse(File file, long start, long end) throws IOException {
+		
+		int[] ints = new int[(int)Math.min(1 << 20, Math.max(16, (end - start) / 4))];
+		int numInts = 0;
+		
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		FileChannel channel = randomAccessFile.getChannel();
+		
+		try {
+			long windowStart = start;
+			
+			while (windowStart < end) {
+				
+				long windowEnd = Math.min(end, windowStart + WINDOW_SIZE);
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+						windowStart, windowEnd - windowStart);
+				int limit = buffer.limit();
+				
+				// don't split a number across windows: stop this window
+				// after its last whitespace and start the next one there
+				if (windowEnd < end) {
+					while (limit > 0 && !isWhitespace(buffer.get(limit - 1))) {
+						limit--;
+					}
+					if (limit == 0) {
+						throw new IOException("No whitespace in " + WINDOW_SIZE +
+								" bytes at offset " + windowStart);
+					}
+				}
+				
+				int i = 0;
+				while (i < limit) {
+					
+					byte b = buffer.get(i);
+					
+					if (isWhitespace(b)) {
+						i++;
+						continue;
+					}
+					
+					boolean negative = false;
+					if (b == '-') {
+						negative = true;
+						i++;
+					}
+					
+					// accumulate negatively so Integer.MIN_VALUE does not overflow
+					int value = 0;
+					int digits = 0;
+					while (i < limit) {
+						int digit = buffer.get(i) - '0';
+						if (digit < 0 || digit > 9) {
+							break;
+						}
+						// value*10 - digit must not go below Integer.MIN_VALUE
+						if (value < (Integer.MIN_VALUE + digit) / 10) {
+							throw new NumberFormatException("Integer out of range at " 
+									+ "offset " + (windowStart + i) + " of " + file);
+						}
+						value = value * 10 - digit;
+						digits++;
+						i++;
+					}
+					
+					if (digits == 0 || (i < limit && !isWhitespace(buffer.get(i)))) {
+						throw new NumberFormatException("Not an integer at offset " 
+								+ (windowStart + i) + " of " + file);
+					}
+					
+					if (!negative) {
+						if (value == Integer.MIN_VALUE) {
+							throw new NumberFormatException("Integer out of range "
+									+ "at offset " + (windowStart + i) + " of " + file);
+						}
+						value = -value;
+					}
+					
+					if (numInts == ints.length) {
+						ints = Arrays.copyOf(ints, ints.length * 2);
+					}
+					ints[numInts++] = value;
+				}
+				
+				windowStart += limit;
+			}
+		} finally {
+			channel.close();
+		}
+		
+		return Arrays.copyOf(ints, numInts - (numInts % 2));
+	}
+	
+	private static boolean isWhitespace(byte b) {
+		
+		return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+	}
+}
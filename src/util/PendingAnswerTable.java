@@ -0,0 +1,115 @@
+/** A compact buffer for answers read before their parent question.
+ *
+ * Used when Posts.xml is read in a single pass: an answer whose question
+ * has not been seen yet cannot become an AnswerNode (it needs the parent's
+ * view count), so its fields are parked here in parallel primitive arrays
+ * (one slot per answer, no per-answer objects) until the end of the file.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package util;
+
+import java.util.Arrays;
+
+import graph.StackExchangeTopicGraph;
+
+class PendingAnswerTable {
+
+	// marks an answer whose author was deleted and still needs a dummy user
+	static final int NO_AUTHOR = Integer.MIN_VALUE;
+
+	private int size;
+	private int[] postIDs;
+	private int[] rawScores;
+	private int[] authorUserIDs;
+	private int[] commentCounts;
+	private int[] parentQuestionIDs;
+	private String[] bodies;
+
+	PendingAnswerTable() {
+
+		this(16);
+	}
+
+	PendingAnswerTable(int initialCapacity) {
+
+		this.size = 0;
+		this.postIDs = new int[initialCapacity];
+		this.rawScores = new int[initialCapacity];
+		this.authorUserIDs = new int[initialCapacity];
+		this.commentCounts = new int[initialCapacity];
+		this.parentQuestionIDs = new int[initialCapacity];
+		this.bodies = new String[initialCapacity];
+	}
+
+	/** Buffer the answer in the current row of a reader.
+	 *
+	 * @param row is a reader positioned on an answer row
+	 */
+	void add(XMLRowReader row) {
+
+		if (size == postIDs.length) {
+			grow();
+		}
+
+		postIDs[size] = row.getInt("Id");
+		rawScores[size] = row.getInt("Score");
+		if (row.hasAttribute("OwnerUserId")) {
+			authorUserIDs[size] = row.getInt("OwnerUserId");
+		}
+		else {
+			authorUserIDs[size] = NO_AUTHOR;
+		}
+		commentCounts[size] = row.getInt("CommentCount");
+		parentQuestionIDs[size] = row.getInt("ParentId");
+		bodies[size] = row.getString("Body");
+
+		size++;
+	}
+
+	/** Add every buffered answer to the graph, in the order buffered.
+	 *
+	 * All parent questions must be in the graph by now.  Answers that lost
+	 * their author get a dummy user just before they are added, the same
+	 * way the row handlers do it.  Empties the table.
+	 *
+	 * @param graph is the graph the answers belong to
+	 */
+	void resolveInto(StackExchangeTopicGraph graph) {
+
+		for (int i = 0; i < size; i++) {
+
+			int authorUserID = authorUserIDs[i];
+			if (authorUserID == NO_AUTHOR) {
+				authorUserID = GraphLoader.addDummyUser(graph);
+			}
+
+			graph.addVertex(graph.createAnswer(graph.getUniqueVertexIDCounter(),
+					postIDs[i], rawScores[i], bodies[i], authorUserID,
+					commentCounts[i], parentQuestionIDs[i]));
+
+			// let the body be collected as soon as the node has it
+			bodies[i] = null;
+		}
+
+		size = 0;
+	}
+
+	int size() {
+
+		return size;
+	}
+
+	private void grow() {
+
+		int newCapacity = postIDs.length * 2;
+
+		postIDs = Arrays.copyOf(postIDs, newCapacity);
+		rawScores = Arrays.copyOf(rawScores, newCapacity);
+		authorUserIDs = Arrays.copyOf(authorUserIDs, newCapacity);
+		commentCounts = Arrays.copyOf(commentCounts, newCapacity);
+		parentQuestionIDs = Arrays.copyOf(parentQuestionIDs, newCapacity);
+		bodies = Arrays.copyOf(bodies, newCapacity);
+	}
+}
@@ -0,0 +1,210 @@
+/** An in-memory batch of rows that can be replayed as an XMLRowReader.
+ *
+ * Lets a worker thread do the expensive part of loading (parsing XML and
+ * decoding attribute values) ahead of time, while the graph itself is
+ * still only touched by one thread when the batch is replayed.
+ *
+ * Only the attributes named when the batch is created are kept.  Numeric
+ * attributes are kept as ints, read with getInt() (so a ByteRowReader
+ * creates no String for them), one slot per attribute per row in a flat
+ * int array, with a bit per attribute per row for whether the row has it.
+ * Only text attributes (Body, Title, DisplayName, ...) are kept as
+ * Strings.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package util;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+class RowBatch implements XMLRowReader {
+
+	private final String[] intAttributeNames;
+	private final String[] textAttributeNames;
+	private int[] ints;
+	// bit i of a row's mask is set if the row has int attribute i
+	private long[] present;
+	private String[] texts;
+	private int numRows;
+	private int currentRow;
+
+	/** Create an empty batch.
+	 *
+	 * @param intAttributeNames are the numeric attributes to keep (at most
+	 * 64)
+	 * @param textAttributeNames are the text attributes to keep
+	 */
+	RowBatch(String[] intAttributeNames, String[] textAttributeNames) {
+
+		if (intAttributeNames.length > Long.SIZE) {
+			throw new IllegalArgumentException("Cannot keep more than "
+					+ Long.SIZE + " numeric attributes");
+		}
+
+		this.intAttributeNames = intAttributeNames;
+		this.textAttributeNames = textAttributeNames;
+		this.ints = new int[intAttributeNames.length * 64];
+		this.present = new long[64];
+		this.texts = new String[textAttributeNames.length * 64];
+		this.numRows = 0;
+		this.currentRow = -1;
+	}
+
+	/** Read every remaining row of a reader into a new batch.
+	 *
+	 * Does not close the reader.
+	 *
+	 * @param rows is the reader to drain
+	 * @param intAttributeNames are the numeric attributes to keep
+	 * @param textAttributeNames are the text attributes to keep
+	 * @return a batch positioned before its first row
+	 */
+	static RowBatch readAll(XMLRowReader rows, String[] intAttributeNames,
+							String[] textAttributeNames) throws IOException {
+
+		RowBatch batch = new RowBatch(intAttributeNames, textAttributeNames);
+
+		while (rows.nextRow()) {
+			batch.add(rows);
+		}
+
+		return batch;
+	}
+
+	/** Copy the kept attributes of a reader's current row into this batch.
+	 *
+	 * @throws NumberFormatException if a numeric attribute is not an int
+	 */
+	void add(XMLRowReader row) {
+
+		int intWidth = intAttributeNames.length;
+		int textWidth = textAttributeNames.length;
+
+		if (numRows == present.length) {
+			int capacity = numRows * 2;
+			ints = Arrays.copyOf(ints, capacity * intWidth);
+			present = Arrays.copyOf(present, capacity);
+			texts = Arrays.copyOf(texts, capacity * textWidth);
+		}
+
+		int base = numRows * intWidth;
+		long mask = 0;
+		for (int i = 0; i < intWidth; i++) {
+			if (row.hasAttribute(intAttributeNames[i])) {
+				ints[base + i] = row.getInt(intAttributeNames[i]);
+				mask |= 1L << i;
+			}
+		}
+		present[numRows] = mask;
+
+		base = numRows * textWidth;
+		for (int i = 0; i < textWidth; i++) {
+			texts[base + i] = row.getString(textAttributeNames[i]);
+		}
+
+		numRows++;
+	}
+
+	/** Move back to before the first row so the batch can be replayed.
+	 */
+	void rewind() {
+
+		currentRow = -1;
+	}
+
+	int size() {
+
+		return numRows;
+	}
+
+	@Override
+	public boolean nextRow() {
+
+		if (currentRow + 1 >= numRows) {
+			currentRow = numRows;
+			return false;
+		}
+
+		currentRow++;
+		return true;
+	}
+
+	@Override
+	public boolean hasAttribute(String name) {
+
+		int attribute = indexOf(intAttributeNames, name);
+
+		if (attribute >= 0) {
+			return (present[currentRow] & (1L << attribute)) != 0;
+		}
+
+		return getString(name) != null;
+	}
+
+	@Override
+	public int getInt(String name) {
+
+		int attribute = indexOf(intAttributeNames, name);
+
+		if (attribute < 0) {
+			String value = getString(name);
+			if (value == null) {
+				throw new IllegalArgumentException("Row has no attribute " + name);
+			}
+			return Integer.parseInt(value);
+		}
+
+		if ((present[currentRow] & (1L << attribute)) == 0) {
+			throw new IllegalArgumentException("Row has no attribute " + name);
+		}
+
+		return ints[currentRow * intAttributeNames.length + attribute];
+	}
+
+	@Override
+	public String getString(String name) {
+
+		int attribute = indexOf(textAttributeNames, name);
+
+		if (attribute >= 0) {
+			return texts[currentRow * textAttributeNames.length + attribute];
+		}
+
+		// a numeric attribute, asked for as text
+		attribute = indexOf(intAttributeNames, name);
+
+		if (attribute < 0) {
+			throw new IllegalArgumentException("Attribute " + name + " was not "
+					+ "kept in this batch");
+		}
+
+		if ((present[currentRow] & (1L << attribute)) == 0) {
+			return null;
+		}
+
+		return Integer.toString(
+				ints[currentRow * intAttributeNames.length + attribute]);
+	}
+
+	@Override
+	public void close() {
+
+		ints = null;
+		present = null;
+		texts = null;
+		numRows = 0;
+	}
+
+	private static int indexOf(String[] names, String name) {
+
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].equals(name)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+}
@@ -0,0 +1,158 @@
+/** The rows of a data dump file, read ahead by a worker in bounded batches
+ * and replayed as one XMLRowReader.
+ *
+ * The worker (call()) decodes the file into RowBatches of BATCH_ROWS rows
+ * and hands them over through a queue that holds at most MAX_BATCHES_AHEAD
+ * of them, blocking once it is full.  The reading thread replays the
+ * batches in file order, dropping each one when it moves on.  So however
+ * big the file, at most about MAX_BATCHES_AHEAD batches of its rows are on
+ * the heap at once, while the worker still decodes ahead of the thread
+ * building the graph.
+ *
+ * A failure in the worker is thrown by nextRow() once the rows read before
+ * it have been replayed.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+
+class RowBatchStream implements Callable<Void>, XMLRowReader {
+
+	// rows per batch
+	static final int BATCH_ROWS = 1 << 12;
+	// batches the worker may get ahead of the reader by
+	static final int MAX_BATCHES_AHEAD = 4;
+
+	// marks the end of the file (or the worker's failure)
+	private static final RowBatch END = new RowBatch(new String[0], new String[0]);
+
+	private final RowDecoder decoder;
+	private final File xmlFile;
+	private final String[] intAttributeNames;
+	private final String[] textAttributeNames;
+
+	private final BlockingQueue<RowBatch> batches =
+			new ArrayBlockingQueue<RowBatch>(MAX_BATCHES_AHEAD);
+	private volatile Throwable failure;
+
+	// the batch being replayed, or END once every batch has been
+	private RowBatch current;
+
+	RowBatchStream(RowDecoder decoder, File xmlFile, String[] intAttributeNames,
+				   String[] textAttributeNames) {
+
+		this.decoder = decoder;
+		this.xmlFile = xmlFile;
+		this.intAttributeNames = intAttributeNames;
+		this.textAttributeNames = textAttributeNames;
+	}
+
+	/** Decode the file into batches, handing each over as it fills.
+	 *
+	 * Run by the worker; returns when the whole file has been handed over,
+	 * the reader has failed, or the worker is interrupted.
+	 */
+	@Override
+	public Void call() throws InterruptedException {
+
+		try {
+			XMLRowReader rows = decoder.open(xmlFile);
+			try {
+				boolean more = true;
+				while (more) {
+					RowBatch batch = new RowBatch(intAttributeNames,
+												  textAttributeNames);
+					while (batch.size() < BATCH_ROWS && (more = rows.nextRow())) {
+						batch.add(rows);
+					}
+					if (batch.size() > 0) {
+						batches.put(batch);
+					}
+				}
+			} finally {
+				rows.close();
+			}
+		} catch (InterruptedException e) {
+			// the reader has given up on the file
+			throw e;
+		} catch (Throwable e) {
+			failure = e;
+		}
+
+		batches.put(END);
+
+		return null;
+	}
+
+	@Override
+	public boolean nextRow() throws IOException {
+
+		while (current != END) {
+
+			if (current != null && current.nextRow()) {
+				return true;
+			}
+
+			if (current != null) {
+				current.close();
+			}
+
+			try {
+				current = batches.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for "
+						+ xmlFile.getName() + " to be parsed");
+			}
+		}
+
+		if (failure instanceof IOException) {
+			throw (IOException)failure;
+		}
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException)failure;
+		}
+		if (failure != null) {
+			throw new IOException(failure);
+		}
+
+		return false;
+	}
+
+	@Override
+	public boolean hasAttribute(String name) {
+
+		return current.hasAttribute(name);
+	}
+
+	@Override
+	public int getInt(String name) {
+
+		return current.getInt(name);
+	}
+
+	@Override
+	public String getString(String name) {
+
+		return current.getString(name);
+	}
+
+	/** Drop the batch being replayed.  The worker is stopped by shutting
+	 * down (interrupting) its executor.
+	 */
+	@Override
+	public void close() {
+
+		if (current != null && current != END) {
+			current.close();
+		}
+	}
+}
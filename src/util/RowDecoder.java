@@ -0,0 +1,35 @@
+/** The ways a loader can decode the rows of a data dump XML file.
+ * 
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package util;
+
+import java.io.File;
+import java.io.IOException;
+
+public enum RowDecoder {
+	
+	/** A standard StAX pull parser (see StAXRowReader). */
+	STAX {
+		@Override
+		public XMLRowReader open(File xmlFile) throws IOException {
+			return new StAXRowReader(xmlFile);
+		}
+	},
+	
+	/** A byte-level <row/> scanner over the mapped file (see ByteRowReader). 
+	 * Relies on the data dump's one-attribute-only-row-per-line layout. */
+	BYTE_SCANNER {
+		@Override
+		public XMLRowReader open(File xmlFile) throws IOException {
+			return new ByteRowReader(xmlFile);
+		}
+	};
+	
+	/** Open a reader over the rows of a file.
+	 * 
+	 * @param xmlFile is a data dump XML file
+	 */
+	public abstract XMLRowReader open(File xmlFile) throws IOException;
+}
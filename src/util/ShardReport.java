@@ -0,0 +1,68 @@
+/** Throughput of one shard of a file parsed by ShardedRowParser.
+ * 
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package util;
+
+public class ShardReport {
+	
+	private String fileName;
+	private int shard;
+	private long startByte;
+	private long endByte;
+	private long rows;
+	private long nanos;
+	
+	public ShardReport(String fileName, int shard, long startByte, 
+					   long endByte, long rows, long nanos) {
+		
+		this.fileName = fileName;
+		this.shard = shard;
+		this.startByte = startByte;
+		this.endByte = endByte;
+		this.rows = rows;
+		this.nanos = nanos;
+	}
+	
+	public double calculateRowsPerSecond() {
+		
+		if (nanos == 0) {
+			return 0;
+		}
+		
+		return rows / (nanos / 1e9);
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public int getShard() {
+		return shard;
+	}
+
+	public long getStartByte() {
+		return startByte;
+	}
+
+	public long getEndByte() {
+		return endByte;
+	}
+
+	public long getRows() {
+		return rows;
+	}
+
+	public long getNanos() {
+		return nanos;
+	}
+	
+	@Override
+	public String toString() {
+		
+		return fileName + " shard " + shard + " [" + startByte + ", " + endByte
+				+ "): " + rows + " rows in " + (nanos / 1000000) + " ms ("
+				+ Math.round(calculateRowsPerSecond()) + " rows/sec)";
+	}
+}
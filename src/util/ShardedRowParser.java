@@ -0,0 +1,254 @@
+/** Parses one data dump XML file with several workers at once, and
+ * replays its rows as one XMLRowReader.
+ * 
+ * Every row of a data dump file is on its own line, so the file can be cut
+ * into byte ranges at line boundaries and each range scanned on its own by
+ * a ByteRowReader.  Each worker fills its own RowBatch, keeping numeric
+ * attributes as ints so that only text attributes become Strings; the
+ * batches are replayed in file order, so reading this is the same as 
+ * reading the file from start to end.
+ * 
+ * Ranges are at most MAX_SHARD_SIZE bytes, and only a few per worker are
+ * submitted ahead of the one being replayed: the next is submitted as 
+ * each one is replayed, and a range's batch is dropped once the reader 
+ * moves past it.  So however big the file, only a bounded part of its 
+ * decoded text is on the heap at once.
+ * 
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+class ShardedRowParser implements XMLRowReader {
+	
+	// don't bother splitting ranges smaller than this
+	private static final long MIN_SHARD_SIZE = 1 << 20;
+	// nor keep ranges bigger than this, so a shard's batch stays small
+	private static final long MAX_SHARD_SIZE = 1 << 22;
+	// shards submitted ahead of the one being replayed, per worker
+	private static final int SHARDS_AHEAD_PER_WORKER = 2;
+	
+	private final File xmlFile;
+	private final String[] intAttributeNames;
+	private final String[] textAttributeNames;
+	private final ExecutorService executor;
+	private final List<ShardReport> reports;
+	
+	private final long[] boundaries;
+	private final int maxShardsAhead;
+	// shards submitted but not yet replayed, in file order
+	private final Deque<Future<RowBatch>> pending = 
+			new ArrayDeque<Future<RowBatch>>();
+	private int nextShard;
+	
+	// the batch being replayed
+	private RowBatch current;
+	
+	/** Start parsing a file's first shards on an executor.
+	 * 
+	 * @param xmlFile is a data dump XML file
+	 * @param intAttributeNames are the numeric attributes to keep from each
+	 * row, as ints
+	 * @param textAttributeNames are the text attributes to keep from each row
+	 * @param numWorkers is the number of threads the executor has; the file
+	 * is cut into at least this many ranges (small files get fewer)
+	 * @param executor runs the shards
+	 * @param reports gets each shard's throughput as it finishes
+	 */
+	ShardedRowParser(File xmlFile, String[] intAttributeNames,
+					 String[] textAttributeNames, int numWorkers,
+					 ExecutorService executor, List<ShardReport> reports)
+					 throws IOException {
+		
+		this.xmlFile = xmlFile;
+		this.intAttributeNames = intAttributeNames;
+		this.textAttributeNames = textAttributeNames;
+		this.executor = executor;
+		this.reports = reports;
+		
+		long numShards = Math.max(numWorkers, 
+				(xmlFile.length() + MAX_SHARD_SIZE - 1) / MAX_SHARD_SIZE);
+		this.boundaries = splitAtLineBoundaries(xmlFile, 
+				(int)Math.min(numShards, Integer.MAX_VALUE));
+		this.maxShardsAhead = numWorkers * SHARDS_AHEAD_PER_WORKER;
+		this.nextShard = 0;
+		
+		submitAhead();
+	}
+	
+	@Override
+	public boolean nextRow() throws IOException {
+		
+		while (current == null || !current.nextRow()) {
+			
+			if (current != null) {
+				current.close();
+				current = null;
+			}
+			
+			if (pending.isEmpty()) {
+				return false;
+			}
+			
+			current = awaitBatch(pending.removeFirst());
+			submitAhead();
+		}
+		
+		return true;
+	}
+	
+	@Override
+	public boolean hasAttribute(String name) {
+		
+		return current.hasAttribute(name);
+	}
+	
+	@Override
+	public int getInt(String name) {
+		
+		return current.getInt(name);
+	}
+	
+	@Override
+	public String getString(String name) {
+		
+		return current.getString(name);
+	}
+	
+	/** Drop the batch being replayed and any shards not yet replayed.
+	 */
+	@Override
+	public void close() {
+		
+		if (current != null) {
+			current.close();
+			current = null;
+		}
+		
+		for (Future<RowBatch> shard : pending) {
+			shard.cancel(true);
+		}
+		pending.clear();
+	}
+	
+	private void submitAhead() {
+		
+		while (pending.size() < maxShardsAhead 
+				&& nextShard < boundaries.length - 1) {
+			pending.addLast(executor.submit(shardTask(nextShard++)));
+		}
+	}
+	
+	private Callable<RowBatch> shardTask(final int shard) {
+		
+		return new Callable<RowBatch>() {
+			
+			@Override
+			public RowBatch call() throws IOException {
+				
+				long start = System.nanoTime();
+				
+				ByteRowReader rows = new ByteRowReader(xmlFile, 
+						boundaries[shard], boundaries[shard + 1],
+						ByteRowReader.DEFAULT_WINDOW_SIZE);
+				RowBatch batch;
+				try {
+					batch = RowBatch.readAll(rows, intAttributeNames,
+							textAttributeNames);
+				} finally {
+					rows.close();
+				}
+				
+				synchronized (reports) {
+					reports.add(new ShardReport(xmlFile.getName(), shard,
+							boundaries[shard], boundaries[shard + 1],
+							batch.size(), System.nanoTime() - start));
+				}
+				
+				return batch;
+			}
+		};
+	}
+	
+	private RowBatch awaitBatch(Future<RowBatch> batch) throws IOException {
+		
+		try {
+			return batch.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for " 
+					+ xmlFile.getName() + " to be parsed", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException)e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+	
+	/** Cut a file into byte ranges that each start at the start of a line.
+	 * 
+	 * @return the offsets of the range boundaries: range i is
+	 * [boundaries[i], boundaries[i+1]).  The first is 0 and the last is the
+	 * file's length.
+	 */
+	static long[] splitAtLineBoundaries(File file, int numShards) 
+										throws IOException {
+		
+		long length = file.length();
+		numShards = (int)Math.max(1, Math.min(numShards, length / MIN_SHARD_SIZE));
+		
+		long[] boundaries = new long[numShards + 1];
+		boundaries[numShards] = length;
+		
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		FileChannel channel = randomAccessFile.getChannel();
+		ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+		
+		try {
+			for (int i = 1; i < numShards; i++) {
+				
+				// start looking for the next line at the even split point
+				// (or after the last boundary, if a line was that long)
+				long offset = Math.max(length * i / numShards, boundaries[i - 1]);
+				boundaries[i] = length;
+				
+				search:
+				while (offset < length) {
+					
+					buffer.clear();
+					int read = channel.read(buffer, offset);
+					if (read <= 0) {
+						break;
+					}
+					
+					for (int j = 0; j < read; j++) {
+						if (buffer.get(j) == '\n') {
+							boundaries[i] = offset + j + 1;
+							break search;
+						}
+					}
+					
+					offset += read;
+				}
+			}
+		} finally {
+			channel.close();
+		}
+		
+		return boundaries;
+	}
+}
@@ -0,0 +1,100 @@
+/** An XMLRowReader backed by a StAX (javax.xml.stream) pull parser.
+ *
+ * Only the current row's attributes are held in memory, so reading a file
+ * never costs more than one row, no matter how big the file is.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package util;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+public class StAXRowReader implements XMLRowReader {
+
+	private static final String ROW = "row";
+
+	private InputStream in;
+	private XMLStreamReader reader;
+
+	public StAXRowReader(File xmlFile) throws IOException {
+
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		// the data dump has no DTDs or external entities
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+		this.in = new BufferedInputStream(new FileInputStream(xmlFile), 1 << 16);
+
+		try {
+			this.reader = factory.createXMLStreamReader(in);
+		} catch (XMLStreamException e) {
+			in.close();
+			throw new IOException("Could not open " + xmlFile + " for streaming", e);
+		}
+	}
+
+	@Override
+	public boolean nextRow() throws IOException {
+
+		try {
+			while (reader.hasNext()) {
+
+				if (reader.next() == XMLStreamConstants.START_ELEMENT &&
+					ROW.equals(reader.getLocalName())) {
+
+					return true;
+				}
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+
+		return false;
+	}
+
+	@Override
+	public boolean hasAttribute(String name) {
+
+		return reader.getAttributeValue(null, name) != null;
+	}
+
+	@Override
+	public int getInt(String name) {
+
+		String value = reader.getAttributeValue(null, name);
+
+		if (value == null) {
+			throw new IllegalArgumentException("Row has no attribute " + name);
+		}
+
+		return Integer.parseInt(value);
+	}
+
+	@Override
+	public String getString(String name) {
+
+		return reader.getAttributeValue(null, name);
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		try {
+			reader.close();
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		} finally {
+			in.close();
+		}
+	}
+}
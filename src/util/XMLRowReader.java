@@ -0,0 +1,48 @@
+/** A pull-based reader over the <row .../> elements of a Stack Exchange
+ * data dump XML file.
+ *
+ * Every file in the data dump (Posts.xml, Users.xml, etc.) is a single
+ * root element with one attribute-only <row> child per record, so a loader
+ * only ever needs to walk the rows in file order and read attributes of the
+ * current row.  Implementations must not hold on to previous rows.
+ *
+ * @author ryanwilliamconnor
+ * © 2016 Ryan William Connor
+ */
+package util;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+public interface XMLRowReader extends Closeable {
+
+	/** Advance to the next <row> element.
+	 *
+	 * @return true if the reader is now positioned on a row, false if
+	 * the end of the file was reached
+	 */
+	public boolean nextRow() throws IOException;
+
+	/** Check whether the current row has the given attribute.
+	 *
+	 * @param name is the attribute name (e.g. "OwnerUserId")
+	 */
+	public boolean hasAttribute(String name);
+
+	/** Get an attribute of the current row as an int.
+	 *
+	 * @param name is the attribute name (e.g. "Score")
+	 * @return the attribute's value
+	 * @throws IllegalArgumentException if the row has no such attribute
+	 */
+	public int getInt(String name);
+
+	/** Get an attribute of the current row as a String.
+	 *
+	 * XML entities (e.g. "&lt;") are decoded in the returned value.
+	 *
+	 * @param name is the attribute name (e.g. "Body")
+	 * @return the attribute's value, or null if the row has no such attribute
+	 */
+	public String getString(String name);
+}